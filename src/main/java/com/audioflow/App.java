@@ -1,5 +1,7 @@
 package com.audioflow;
 
+import com.audioflow.controller.MainController;
+import com.audioflow.service.MetadataCache;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -43,6 +45,14 @@ public class App extends Application {
         System.out.println("✓ AudioFlow iniciado correctamente");
     }
 
+    @Override
+    public void stop() {
+        // Cierra la sesión de la canción que suena: queda en el historial
+        MainController.getAudioService().dispose();
+        // La caché de metadatos se escribe en segundo plano: vaciar lo pendiente
+        MetadataCache.getShared().flush();
+    }
+
     /**
      * Obtiene el stage principal (útil para diálogos modales)
      */
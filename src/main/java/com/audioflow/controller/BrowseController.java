@@ -0,0 +1,210 @@
+package com.audioflow.controller;
+
+import com.audioflow.model.Song;
+import com.audioflow.search.LibraryFacets;
+import com.jfoenix.controls.JFXButton;
+import com.jfoenix.controls.JFXListView;
+import javafx.beans.binding.Bindings;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.SplitPane;
+import javafx.scene.layout.VBox;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.function.Consumer;
+
+/**
+ * Controlador de las vistas Explorar por Artista y por Álbum.
+ * Muestra las facetas ya calculadas por {@link LibraryFacets}: abrir la vista no
+ * recorre la biblioteca.
+ */
+public class BrowseController implements Initializable {
+
+    /**
+     * Qué se explora
+     */
+    public enum Mode {
+        ARTISTS, ALBUMS
+    }
+
+    // ========== ELEMENTOS DE UI ==========
+    @FXML
+    private VBox rootPane;
+    @FXML
+    private FontIcon headerIcon;
+    @FXML
+    private Label titleLabel;
+    @FXML
+    private Label summaryLabel;
+    @FXML
+    private SplitPane splitPane;
+    @FXML
+    private Label facetSectionLabel;
+    @FXML
+    private JFXListView<LibraryFacets.Facet> facetListView;
+    @FXML
+    private VBox albumsPanel;
+    @FXML
+    private JFXListView<LibraryFacets.AlbumFacet> albumListView;
+    @FXML
+    private Label selectionLabel;
+    @FXML
+    private Label selectionStatsLabel;
+    @FXML
+    private JFXButton playAllBtn;
+    @FXML
+    private JFXListView<Song> songsListView;
+
+    // Callbacks
+    private Consumer<Song> onPlaySong;
+    private Consumer<List<Song>> onPlaySongs;
+
+    @Override
+    public void initialize(URL url, ResourceBundle resourceBundle) {
+        System.out.println("✓ Inicializando BrowseController...");
+
+        facetListView.setCellFactory(lv -> new FacetCell<>());
+        albumListView.setCellFactory(lv -> new FacetCell<>());
+        songsListView.setCellFactory(lv -> {
+            ListCell<Song> cell = new ListCell<>() {
+                @Override
+                protected void updateItem(Song song, boolean empty) {
+                    super.updateItem(song, empty);
+                    if (empty || song == null) {
+                        setText(null);
+                    } else {
+                        setText(song.getTitle() + " - " + song.getArtist() + "   " + song.getFormattedDuration());
+                    }
+                }
+            };
+
+            // Doble clic para reproducir
+            cell.setOnMouseClicked(event -> {
+                if (event.getClickCount() == 2 && cell.getItem() != null && onPlaySong != null) {
+                    onPlaySong.accept(cell.getItem());
+                }
+            });
+            return cell;
+        });
+
+        facetListView.getSelectionModel().selectedItemProperty().addListener(
+                (obs, oldVal, newVal) -> selectFacet(newVal));
+        albumListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                showFacet(newVal, newVal.getSongs());
+            } else {
+                selectFacet(facetListView.getSelectionModel().getSelectedItem());
+            }
+        });
+    }
+
+    /**
+     * Conecta la vista con las facetas de la biblioteca
+     */
+    @SuppressWarnings("unchecked")
+    public void setFacets(LibraryFacets facets, Mode mode) {
+        ObservableList<? extends LibraryFacets.Facet> items;
+        if (mode == Mode.ARTISTS) {
+            items = facets.getArtists();
+            titleLabel.setText("Artistas");
+            facetSectionLabel.setText("Artistas");
+            headerIcon.setIconLiteral("fas-microphone");
+        } else {
+            items = facets.getAlbums();
+            titleLabel.setText("Álbumes");
+            facetSectionLabel.setText("Álbumes");
+            headerIcon.setIconLiteral("fas-compact-disc");
+            splitPane.getItems().remove(albumsPanel);
+            splitPane.setDividerPositions(0.4);
+        }
+
+        // Las listas de facetas son de solo lectura: se muestran tal cual, sin copiarlas
+        facetListView.setItems((ObservableList<LibraryFacets.Facet>) items);
+        String noun = mode == Mode.ARTISTS ? " artistas" : " álbumes";
+        summaryLabel.textProperty().bind(Bindings.size(items).asString("%d" + noun));
+    }
+
+    // ========== SELECCIÓN ==========
+
+    private void selectFacet(LibraryFacets.Facet facet) {
+        if (facet instanceof LibraryFacets.ArtistFacet) {
+            LibraryFacets.ArtistFacet artist = (LibraryFacets.ArtistFacet) facet;
+            albumListView.setItems(artist.getAlbums());
+
+            // Todas las canciones del artista, álbum por álbum
+            List<Song> songs = new ArrayList<>(artist.getSongCount());
+            for (LibraryFacets.AlbumFacet album : artist.getAlbums()) {
+                songs.addAll(album.getSongs());
+            }
+            showFacet(artist, FXCollections.observableArrayList(songs));
+        } else if (facet instanceof LibraryFacets.AlbumFacet) {
+            showFacet(facet, ((LibraryFacets.AlbumFacet) facet).getSongs());
+        } else {
+            albumListView.setItems(FXCollections.observableArrayList());
+            selectionLabel.textProperty().unbind();
+            selectionStatsLabel.textProperty().unbind();
+            selectionLabel.setText("Selecciona un elemento");
+            selectionStatsLabel.setText("");
+            songsListView.setItems(FXCollections.observableArrayList());
+        }
+    }
+
+    private void showFacet(LibraryFacets.Facet facet, ObservableList<Song> songs) {
+        selectionLabel.setText(facet.getName());
+        selectionStatsLabel.textProperty().bind(Bindings.createStringBinding(
+                () -> facet.getSongCount() + (facet.getSongCount() == 1 ? " canción" : " canciones")
+                        + " • " + facet.getFormattedDuration(),
+                facet.songCountProperty(), facet.totalDurationMillisProperty()));
+        songsListView.setItems(songs);
+    }
+
+    @FXML
+    private void handlePlayAll() {
+        if (onPlaySongs != null && !songsListView.getItems().isEmpty()) {
+            onPlaySongs.accept(new ArrayList<>(songsListView.getItems()));
+        }
+    }
+
+    // ========== CALLBACKS ==========
+
+    public void setOnPlaySong(Consumer<Song> callback) {
+        this.onPlaySong = callback;
+    }
+
+    public void setOnPlaySongs(Consumer<List<Song>> callback) {
+        this.onPlaySongs = callback;
+    }
+
+    /**
+     * Celda de faceta: nombre, cantidad de canciones y duración total.
+     * Observa los totales de la faceta visible, así se actualiza sin refrescar la lista.
+     */
+    private static final class FacetCell<T extends LibraryFacets.Facet> extends ListCell<T> {
+        @Override
+        protected void updateItem(T facet, boolean empty) {
+            super.updateItem(facet, empty);
+            textProperty().unbind();
+            if (empty || facet == null) {
+                setText(null);
+            } else if (facet instanceof LibraryFacets.AlbumFacet) {
+                LibraryFacets.AlbumFacet album = (LibraryFacets.AlbumFacet) facet;
+                textProperty().bind(Bindings.createStringBinding(
+                        () -> album.getName() + " — " + album.getArtist().getName()
+                                + " (" + album.getSongCount() + ")",
+                        album.songCountProperty()));
+            } else {
+                textProperty().bind(Bindings.createStringBinding(
+                        () -> facet.getName() + " (" + facet.getSongCount() + " • " + facet.getFormattedDuration() + ")",
+                        facet.songCountProperty(), facet.totalDurationMillisProperty()));
+            }
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.audioflow.controller;
 
+import com.audioflow.model.LibraryRegistry;
+import com.audioflow.model.PlayQueue;
+import com.audioflow.model.PlaybackNavigator;
 import com.audioflow.model.Playlist;
+import com.audioflow.model.PlaylistStats;
 import com.audioflow.model.Song;
+import com.audioflow.search.LibraryFacets;
+import com.audioflow.search.SearchResult;
+import com.audioflow.search.SearchWorker;
+import com.audioflow.search.SmartPlaylist;
+import com.audioflow.search.SongQuery;
+import com.audioflow.search.SongSearchIndex;
+import com.audioflow.search.SongSort;
+import com.audioflow.search.SuggestionIndex;
 import com.audioflow.service.AudioService;
 import com.audioflow.service.KeyboardService;
+import com.audioflow.service.MetadataCache;
+import com.audioflow.service.PlayHistory;
+import com.audioflow.service.PlaylistService;
 import com.audioflow.util.DragDropHandler;
+import com.audioflow.util.ReplaceOnUpdateList;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXListView;
 import com.jfoenix.controls.JFXSlider;
@@ -17,16 +33,29 @@ import javafx.animation.PauseTransition;
 import javafx.animation.RotateTransition;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
 import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.Menu;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.RadioMenuItem;
+import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.DragEvent;
@@ -48,8 +77,15 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
 
 /**
  * Controlador principal de la aplicación AudioFlow.
@@ -87,7 +123,13 @@ public class MainController implements Initializable {
     @FXML
     private JFXButton shuffleBtn;
     @FXML
+    private JFXButton shuffleBtnBar;
+    @FXML
     private TextField searchField;
+    @FXML
+    private MenuButton sortMenuButton;
+    @FXML
+    private MenuButton smartMenuButton;
 
     // Lista de Canciones
     @FXML
@@ -134,8 +176,34 @@ public class MainController implements Initializable {
 
     private static AudioService audioService;
     private final Playlist playlist = new Playlist("Mi Biblioteca");
+    private final PlayQueue playQueue = new PlayQueue(); // "A continuación": tiene prioridad sobre la biblioteca
+    private final PlaybackNavigator navigator = new PlaybackNavigator(playlist, playQueue);
     private boolean isUserDraggingSlider = false;
     private FilteredList<Song> filteredSongs;
+    private SortedList<Song> sortedSongs;
+    private SearchResult activeSearch;          // Resultado de búsqueda libre vigente (para ordenar por relevancia)
+    private SongSort.Field sortField;           // null = orden de la lista
+    private boolean sortAscending = true;
+    private final SongSearchIndex searchIndex = new SongSearchIndex();
+    private final SearchWorker searchWorker = new SearchWorker(searchIndex);
+    // Hilo de fondo para leer metadatos de los archivos arrastrados
+    private final ExecutorService ingestExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "library-ingest");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex();
+    private final LibraryFacets facets = new LibraryFacets();
+    private final PlaylistService playlistService = new PlaylistService();
+    private final List<SmartPlaylist> smartPlaylists = new ArrayList<>();
+    // Cada cuánto se reevalúan las reglas con antigüedades (added<30d, played>90d)
+    private static final Duration SMART_REFRESH_INTERVAL = Duration.minutes(10);
+    // Canciones que encola "Reproducir escuchadas recientemente"
+    private static final int RECENT_LIMIT = 50;
+    // Duraciones de crossfade ofrecidas en el menú del volumen (segundos)
+    private static final int[] CROSSFADE_OPTIONS = {0, 2, 4, 6, 8, 10, 12};
+    private ContextMenu suggestionMenu;
+    private boolean applyingSuggestion = false;
     private double savedVolumeBeforeSeek = 0.7;
 
     public static AudioService getAudioService() {
@@ -158,6 +226,8 @@ public class MainController implements Initializable {
         setupProgressSlider();
         setupAudioServiceCallbacks();
         setupSearch();
+        setupSortMenu();
+        setupSmartPlaylists();
 
         updatePlaylistStats();
         updateNowPlayingUI(null);
@@ -190,8 +260,23 @@ public class MainController implements Initializable {
     }
 
     private void setupPlaylist() {
+        // El índice escucha la lista antes que el FilteredList, así las canciones
+        // nuevas ya tienen id cuando se evalúa el filtro
+        searchIndex.attach(playlist.getSongs());
+        // Al compactar, el resultado vigente queda con ids viejos: volver a buscar
+        // (diferido: el aviso llega en medio del cambio de la lista)
+        searchIndex.setOnRenumbered(() -> Platform.runLater(() -> {
+            if (activeSearch != null) {
+                updateFilteredList();
+            }
+        }));
+        suggestionIndex.attach(playlist.getSongs());
+        facets.attach(playlist.getSongs());
         filteredSongs = new FilteredList<>(playlist.getSongs(), p -> true);
-        songListView.setItems(filteredSongs);
+        // Orden elegido por el usuario; sin él, orden de la lista o relevancia de la búsqueda.
+        // Las ediciones de una canción llegan como reemplazo: el SortedList solo la reubica
+        sortedSongs = new SortedList<>(new ReplaceOnUpdateList<>(filteredSongs));
+        songListView.setItems(sortedSongs);
 
         // Mostrar/ocultar placeholder según si hay canciones
         updateEmptyPlaceholderVisibility();
@@ -199,11 +284,16 @@ public class MainController implements Initializable {
             updateEmptyPlaceholderVisibility();
         });
 
+        // Los totales se mantienen en la playlist; aquí solo se vuelven a mostrar
+        PlaylistStats stats = playlist.getStats();
+        stats.countProperty().addListener((obs, oldCount, newCount) -> updatePlaylistStats());
+        stats.totalMillisProperty().addListener((obs, oldTotal, newTotal) -> updatePlaylistStats());
+
         songListView.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2) {
-                Song selected = songListView.getSelectionModel().getSelectedItem();
-                if (selected != null) {
-                    int index = playlist.getSongs().indexOf(selected);
+                // Posición en la biblioteca a partir de la fila, sin buscar la canción
+                int index = libraryIndexOf(songListView.getSelectionModel().getSelectedIndex());
+                if (index >= 0) {
                     playlist.goToIndex(index);
                     loadAndPlayCurrentSong();
                 }
@@ -226,8 +316,19 @@ public class MainController implements Initializable {
             private final StackPane artContainer = new StackPane();
             private final ImageView cellAlbumArt = new ImageView();
             private final FontIcon artPlaceholder = new FontIcon("fas-compact-disc");
+            private final ContextMenu cellMenu;
+
+            // Al cambiar de pista solo se actualizan las filas de la anterior y la nueva
+            private final ChangeListener<Song> nowPlayingListener = (obs, previous, next) -> {
+                Song item = getItem();
+                if (item != null && (item == previous || item == next)) {
+                    updatePlayingState(item);
+                }
+            };
 
             {
+                audioService.currentSongProperty().addListener(new WeakChangeListener<>(nowPlayingListener));
+
                 indexLabel.getStyleClass().add("song-cell-index");
                 titleLabel.getStyleClass().add("song-cell-title");
                 artistLabel.getStyleClass().add("song-cell-artist");
@@ -266,13 +367,26 @@ public class MainController implements Initializable {
                 // Doble clic para reproducir canción
                 container.setOnMouseClicked(event -> {
                     if (event.getClickCount() == 2 && getItem() != null) {
-                        int index = playlist.getSongs().indexOf(getItem());
+                        int index = libraryIndexOf(getIndex());
                         playlist.goToIndex(index);
                         loadAndPlayCurrentSong();
                         event.consume();
                     }
                 });
 
+                // Menú contextual: encolar sin tocar la biblioteca
+                MenuItem playNextItem = new MenuItem("Reproducir a continuación");
+                playNextItem.setOnAction(e -> {
+                    playQueue.playNext(getItem());
+                    showToast("A continuación: " + getItem().getTitle(), false);
+                });
+                MenuItem addToQueueItem = new MenuItem("Agregar a la cola");
+                addToQueueItem.setOnAction(e -> {
+                    playQueue.add(getItem());
+                    showToast("Agregada a la cola (" + playQueue.size() + ")", false);
+                });
+                cellMenu = new ContextMenu(playNextItem, addToQueueItem);
+
                 // Drag-to-reorder: iniciar drag (solo con clic sostenido)
                 container.setOnDragDetected(event -> {
                     if (getItem() != null) {
@@ -317,12 +431,12 @@ public class MainController implements Initializable {
                     // Solo procesar si es reordenamiento interno (String sin Files)
                     if (db.hasString() && !db.hasFiles()) {
                         try {
-                            int draggedIdx = Integer.parseInt(db.getString());
-                            int targetIdx = getIndex();
-                            if (draggedIdx != targetIdx && targetIdx >= 0 && targetIdx < playlist.getSongs().size()) {
-                                Song draggedSong = playlist.getSongs().get(draggedIdx);
-                                playlist.getSongs().remove(draggedIdx);
-                                playlist.getSongs().add(targetIdx, draggedSong);
+                            // Índices de la vista (filtrada/ordenada) → índices de la biblioteca
+                            int draggedIdx = libraryIndexOf(Integer.parseInt(db.getString()));
+                            int targetIdx = libraryIndexOf(getIndex());
+                            if (draggedIdx >= 0 && targetIdx >= 0 && draggedIdx != targetIdx) {
+                                // Una permutación: la canción actual no se pierde
+                                playlist.moveRange(draggedIdx, draggedIdx + 1, targetIdx);
                                 success = true;
                             }
                         } catch (NumberFormatException e) {
@@ -351,7 +465,9 @@ public class MainController implements Initializable {
                 if (empty || song == null) {
                     setText(null);
                     setGraphic(null);
+                    setContextMenu(null);
                 } else {
+                    setContextMenu(cellMenu);
                     int idx = getIndex() + 1;
                     indexLabel.setText(String.valueOf(idx));
                     titleLabel.setText(song.getTitle());
@@ -371,23 +487,38 @@ public class MainController implements Initializable {
                         artPlaceholder.setVisible(true);
                     }
 
-                    if (song.isPlaying()) {
+                    updatePlayingState(song);
+                    setGraphic(container);
+                }
+            }
+
+            private void updatePlayingState(Song song) {
+                if (song == audioService.getCurrentSong()) {
+                    if (!container.getStyleClass().contains("song-cell-playing")) {
                         container.getStyleClass().add("song-cell-playing");
-                        indexLabel.setVisible(false);
-                        playIcon.setVisible(true);
-                        playIcon.setIconLiteral("fas-volume-up");
-                    } else {
-                        container.getStyleClass().remove("song-cell-playing");
-                        indexLabel.setVisible(true);
-                        playIcon.setVisible(false);
                     }
-
-                    setGraphic(container);
+                    indexLabel.setVisible(false);
+                    playIcon.setVisible(true);
+                    playIcon.setIconLiteral("fas-volume-up");
+                } else {
+                    container.getStyleClass().remove("song-cell-playing");
+                    indexLabel.setVisible(true);
+                    playIcon.setVisible(false);
                 }
             }
         });
     }
 
+    /**
+     * Índice en la biblioteca de una fila de la lista visible (-1 si no existe)
+     */
+    private int libraryIndexOf(int viewIndex) {
+        if (viewIndex < 0 || viewIndex >= sortedSongs.size()) {
+            return -1;
+        }
+        return filteredSongs.getSourceIndex(sortedSongs.getSourceIndex(viewIndex));
+    }
+
     private void clearAllDragOverStyles() {
         // Limpiar estilos de todas las celdas visibles
         for (javafx.scene.Node node : songListView.lookupAll(".song-cell-container")) {
@@ -433,6 +564,29 @@ public class MainController implements Initializable {
                 }
             });
         }
+        setupCrossfadeMenu();
+    }
+
+    /**
+     * Clic derecho en el volumen: duración del crossfade entre canciones
+     */
+    private void setupCrossfadeMenu() {
+        if (volumeContainer == null) {
+            return;
+        }
+        ToggleGroup group = new ToggleGroup();
+        ContextMenu menu = new ContextMenu();
+        for (int seconds : CROSSFADE_OPTIONS) {
+            RadioMenuItem item = new RadioMenuItem(seconds == 0 ? "Sin crossfade" : "Crossfade de " + seconds + " s");
+            item.setToggleGroup(group);
+            item.setSelected(seconds == (int) audioService.getCrossfadeSeconds());
+            item.setOnAction(e -> {
+                audioService.setCrossfadeSeconds(seconds);
+                System.out.println(seconds == 0 ? "✓ Crossfade desactivado" : "✓ Crossfade: " + seconds + " s");
+            });
+            menu.getItems().add(item);
+        }
+        volumeContainer.setOnContextMenuRequested(e -> menu.show(volumeContainer, e.getScreenX(), e.getScreenY()));
     }
 
     private void setupProgressSlider() {
@@ -459,8 +613,57 @@ public class MainController implements Initializable {
 
     private void setupSearch() {
         if (searchField != null) {
-            searchField.textProperty().addListener((obs, oldVal, newVal) -> filterSongs(newVal));
+            suggestionMenu = new ContextMenu();
+            suggestionMenu.getStyleClass().add("suggestion-menu");
+            searchField.textProperty().addListener((obs, oldVal, newVal) -> {
+                filterSongs(newVal);
+                showSuggestions(newVal);
+            });
+            searchField.focusedProperty().addListener((obs, wasFocused, focused) -> {
+                if (!focused) {
+                    suggestionMenu.hide();
+                }
+            });
+        }
+    }
+
+    /**
+     * Muestra el desplegable de autocompletado bajo el campo de búsqueda
+     */
+    private void showSuggestions(String text) {
+        if (applyingSuggestion || !searchField.isFocused() || text == null || text.isBlank()
+                || SongQuery.looksStructured(text)) {
+            suggestionMenu.hide();
+            return;
+        }
+
+        List<SuggestionIndex.Suggestion> suggestions = suggestionIndex.suggest(text, SuggestionIndex.DEFAULT_LIMIT);
+        if (suggestions.isEmpty()) {
+            suggestionMenu.hide();
+            return;
+        }
+
+        List<MenuItem> items = new ArrayList<>(suggestions.size());
+        for (SuggestionIndex.Suggestion suggestion : suggestions) {
+            MenuItem item = new MenuItem(suggestion.getText() + "  ·  " + suggestion.getKind().getDisplayName());
+            item.setOnAction(e -> applySuggestion(suggestion));
+            items.add(item);
+        }
+        suggestionMenu.getItems().setAll(items);
+        if (!suggestionMenu.isShowing()) {
+            suggestionMenu.show(searchField, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    private void applySuggestion(SuggestionIndex.Suggestion suggestion) {
+        applyingSuggestion = true;
+        try {
+            searchField.setText(suggestion.getText());
+            searchField.positionCaret(suggestion.getText().length());
+        } finally {
+            applyingSuggestion = false;
         }
+        suggestionMenu.hide();
     }
 
     private void updateFilteredList() {
@@ -471,17 +674,262 @@ public class MainController implements Initializable {
 
     private void filterSongs(String searchText) {
         if (filteredSongs != null) {
-            if (searchText == null || searchText.isEmpty()) {
+            if (searchText == null || searchText.isBlank()) {
+                // Sin consulta: aplicar de inmediato y descartar búsquedas en curso
+                searchWorker.cancelPending();
                 filteredSongs.setPredicate(song -> true);
-            } else {
-                String lowerCaseFilter = searchText.toLowerCase();
-                filteredSongs.setPredicate(song -> song.getTitle().toLowerCase().contains(lowerCaseFilter) ||
-                        song.getArtist().toLowerCase().contains(lowerCaseFilter) ||
-                        song.getAlbum().toLowerCase().contains(lowerCaseFilter));
+                activeSearch = null;
+                updateSortComparator();
+            } else if (!applyStructuredQuery(searchText)) {
+                // El índice resuelve la consulta en segundo plano; el filtro solo consulta bits
+                searchWorker.submit(searchText, this::applySearchResult);
             }
         }
     }
 
+    /**
+     * Resuelve una consulta estructurada (artist:"x" rating>=4 ...) en segundo
+     * plano y la aplica como filtro.
+     *
+     * @return false si el texto es una búsqueda libre o una consulta incompleta
+     */
+    private boolean applyStructuredQuery(String searchText) {
+        if (!SongQuery.looksStructured(searchText)) {
+            return false;
+        }
+        SongQuery query;
+        try {
+            query = SongQuery.parse(searchText);
+        } catch (IllegalArgumentException e) {
+            return false; // Todavía se está escribiendo: búsqueda normal
+        }
+        if (!query.isStructured()) {
+            return false;
+        }
+
+        searchWorker.submit(query, result -> applyStructuredResult(query, result));
+        return true;
+    }
+
+    /**
+     * El filtrado completo lee los bits calculados en segundo plano; después,
+     * los cambios de una canción (ediciones, canciones nuevas) evalúan la
+     * consulta solo para esa canción, sin depender de los ids del índice
+     */
+    private void applyStructuredResult(SongQuery query, SearchResult result) {
+        Predicate<Song> exact = query.toPredicate();
+        boolean[] fromBits = { true };
+        filteredSongs.setPredicate(song -> fromBits[0] ? searchIndex.matches(result, song) : exact.test(song));
+        fromBits[0] = false;
+        activeSearch = null;
+        updateSortComparator();
+    }
+
+    private void applySearchResult(SearchResult result) {
+        filteredSongs.setPredicate(song -> searchIndex.matches(result, song));
+        activeSearch = result;
+        updateSortComparator();
+    }
+
+    // ========== ORDEN ==========
+
+    private void setupSortMenu() {
+        if (sortMenuButton == null) {
+            return;
+        }
+
+        ToggleGroup fieldGroup = new ToggleGroup();
+        RadioMenuItem listOrder = new RadioMenuItem("Orden de la lista");
+        listOrder.setToggleGroup(fieldGroup);
+        listOrder.setSelected(true);
+        listOrder.setOnAction(e -> setSortField(null));
+        sortMenuButton.getItems().add(listOrder);
+
+        for (SongSort.Field field : SongSort.Field.values()) {
+            RadioMenuItem item = new RadioMenuItem(field.getDisplayName());
+            item.setToggleGroup(fieldGroup);
+            item.setOnAction(e -> setSortField(field));
+            sortMenuButton.getItems().add(item);
+        }
+
+        ToggleGroup directionGroup = new ToggleGroup();
+        RadioMenuItem ascending = new RadioMenuItem("Ascendente");
+        RadioMenuItem descending = new RadioMenuItem("Descendente");
+        ascending.setToggleGroup(directionGroup);
+        descending.setToggleGroup(directionGroup);
+        ascending.setSelected(true);
+        ascending.setOnAction(e -> setSortAscending(true));
+        descending.setOnAction(e -> setSortAscending(false));
+        sortMenuButton.getItems().addAll(new SeparatorMenuItem(), ascending, descending);
+    }
+
+    // ========== LISTAS INTELIGENTES ==========
+
+    /**
+     * Carga las reglas guardadas y las conecta a la biblioteca. La pertenencia
+     * se mantiene sola; las reglas con antigüedades se reevalúan cada tanto.
+     */
+    private void setupSmartPlaylists() {
+        for (Map.Entry<String, String> entry : playlistService.loadSmartPlaylistRules().entrySet()) {
+            try {
+                addSmartPlaylist(new SmartPlaylist(entry.getKey(), SongQuery.parse(entry.getValue())));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Regla inválida en " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+
+        Timeline ageRefresh = new Timeline(new KeyFrame(SMART_REFRESH_INTERVAL, e -> {
+            for (SmartPlaylist smart : smartPlaylists) {
+                if (smart.isTimeRelative()) {
+                    smart.refresh();
+                }
+            }
+        }));
+        ageRefresh.setCycleCount(Animation.INDEFINITE);
+        ageRefresh.play();
+
+        if (smartMenuButton != null) {
+            // El menú se arma al abrirlo, con la cantidad actual de cada lista
+            smartMenuButton.setOnShowing(e -> rebuildSmartMenu());
+            rebuildSmartMenu();
+        }
+    }
+
+    private void addSmartPlaylist(SmartPlaylist smart) {
+        smart.attach(playlist);
+        smartPlaylists.add(smart);
+    }
+
+    private void rebuildSmartMenu() {
+        MenuItem saveSearch = new MenuItem("Guardar búsqueda como lista inteligente…");
+        saveSearch.setOnAction(e -> saveSearchAsSmartPlaylist());
+        MenuItem recent = new MenuItem("Reproducir escuchadas recientemente");
+        recent.setOnAction(e -> playRecentlyPlayed());
+        smartMenuButton.getItems().setAll(saveSearch, recent);
+        if (!smartPlaylists.isEmpty()) {
+            smartMenuButton.getItems().add(new SeparatorMenuItem());
+        }
+
+        for (SmartPlaylist smart : smartPlaylists) {
+            Menu menu = new Menu(smart.getName() + " (" + smart.size() + ")");
+
+            MenuItem play = new MenuItem("Reproducir");
+            play.setOnAction(e -> {
+                if (smart.size() == 0) {
+                    showToast("\"" + smart.getName() + "\" no tiene canciones", true);
+                    return;
+                }
+                playQueue.replaceWith(smart.getPlaylist().getSongs());
+                playNext();
+            });
+            MenuItem show = new MenuItem("Mostrar en la biblioteca");
+            show.setOnAction(e -> searchField.setText(smart.getRule().getSource()));
+            MenuItem delete = new MenuItem("Eliminar");
+            delete.setOnAction(e -> deleteSmartPlaylist(smart));
+
+            menu.getItems().addAll(play, show, new SeparatorMenuItem(), delete);
+            smartMenuButton.getItems().add(menu);
+        }
+    }
+
+    /**
+     * Encola las últimas canciones escuchadas, de la más reciente a la más vieja
+     */
+    private void playRecentlyPlayed() {
+        PlayHistory history = PlayHistory.getShared();
+        List<Song> recent = new ArrayList<>();
+        if (history != null) {
+            for (long id : history.recentSongIds(RECENT_LIMIT)) {
+                Song song = LibraryRegistry.shared().get(id);
+                if (song != null) {
+                    recent.add(song);
+                }
+            }
+        }
+        if (recent.isEmpty()) {
+            showToast("Todavía no hay canciones escuchadas", true);
+            return;
+        }
+        playQueue.replaceWith(recent);
+        playNext();
+    }
+
+    /**
+     * Guarda la búsqueda estructurada actual (ej: rating>=4 plays=0) como lista inteligente
+     */
+    private void saveSearchAsSmartPlaylist() {
+        String text = searchField.getText() == null ? "" : searchField.getText().strip();
+        SongQuery rule;
+        try {
+            rule = SongQuery.parse(text);
+        } catch (IllegalArgumentException e) {
+            showToast("Búsqueda inválida: " + e.getMessage(), true);
+            return;
+        }
+        if (text.isEmpty() || !rule.isStructured()) {
+            showToast("Escribe una regla con campos, ej: rating>=4 o added<30d", true);
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Nueva lista inteligente");
+        dialog.setHeaderText("Regla: " + text);
+        dialog.setContentText("Nombre:");
+        dialog.showAndWait().map(String::strip).filter(name -> !name.isEmpty()).ifPresent(name -> {
+            smartPlaylists.stream().filter(s -> s.getName().equals(name)).findFirst()
+                    .ifPresent(this::detachSmartPlaylist);
+            try {
+                playlistService.saveSmartPlaylistRule(name, text);
+                SmartPlaylist smart = new SmartPlaylist(name, rule);
+                addSmartPlaylist(smart);
+                showToast("Lista inteligente \"" + name + "\": " + smart.size() + " canciones", false);
+            } catch (IOException e) {
+                showToast("No se pudo guardar la lista: " + e.getMessage(), true);
+            }
+        });
+    }
+
+    private void deleteSmartPlaylist(SmartPlaylist smart) {
+        try {
+            playlistService.deleteSmartPlaylistRule(smart.getName());
+            detachSmartPlaylist(smart);
+        } catch (IOException e) {
+            showToast("No se pudo eliminar la lista: " + e.getMessage(), true);
+        }
+    }
+
+    private void detachSmartPlaylist(SmartPlaylist smart) {
+        smart.detach();
+        smartPlaylists.remove(smart);
+    }
+
+    private void setSortField(SongSort.Field field) {
+        sortField = field;
+        updateSortComparator();
+    }
+
+    private void setSortAscending(boolean ascending) {
+        sortAscending = ascending;
+        updateSortComparator();
+    }
+
+    /**
+     * Elige el comparador de la lista visible: el orden del usuario si lo hay;
+     * si no, la relevancia de la búsqueda vigente o el orden de la lista
+     */
+    private void updateSortComparator() {
+        if (sortField != null) {
+            sortedSongs.setComparator(SongSort.comparator(sortField, sortAscending));
+        } else if (activeSearch != null) {
+            SearchResult result = activeSearch;
+            // Orden estable: a igual relevancia se conserva el orden de la lista
+            sortedSongs.setComparator(Comparator.comparingDouble(
+                    (Song song) -> searchIndex.scoreOf(result, song)).reversed());
+        } else {
+            sortedSongs.setComparator(null);
+        }
+    }
+
     private void setupAudioServiceCallbacks() {
         audioService.currentTimeProperty().addListener((obs, oldTime, newTime) -> {
             Platform.runLater(() -> {
@@ -493,11 +941,10 @@ public class MainController implements Initializable {
 
         audioService.setOnEndOfMedia(() -> {
             Platform.runLater(() -> {
-                if (playlist.hasNext()) {
-                    handleNext();
-                }
+                advance(true);
             });
         });
+        audioService.setUpcomingSong(() -> navigator.peekNext(audioService.getCurrentSong()));
 
         audioService.setOnReady(() -> {
             Platform.runLater(() -> {
@@ -529,25 +976,32 @@ public class MainController implements Initializable {
 
     @FXML
     private void handlePrevious() {
-        if (playlist.hasPrevious()) {
-            playlist.previous();
-            loadAndPlayCurrentSong();
-        }
+        playPrevious();
     }
 
     @FXML
     private void handleNext() {
-        if (playlist.hasNext()) {
-            playlist.next();
-            loadAndPlayCurrentSong();
-        }
+        playNext();
     }
 
     @FXML
     private void handleShuffle() {
-        playlist.shuffle();
-        songListView.refresh();
-        System.out.println("✓ Playlist mezclada");
+        // El orden aleatorio vive en la playlist: la lista visible no se reordena
+        playlist.setShuffle(!playlist.isShuffle());
+        updateShuffleButtons();
+        System.out.println(playlist.isShuffle() ? "✓ Aleatorio activado" : "✓ Aleatorio desactivado");
+    }
+
+    private void updateShuffleButtons() {
+        for (JFXButton button : new JFXButton[]{shuffleBtn, shuffleBtnBar}) {
+            if (button == null) {
+                continue;
+            }
+            button.getStyleClass().remove("active");
+            if (playlist.isShuffle()) {
+                button.getStyleClass().add("active");
+            }
+        }
     }
 
     @FXML
@@ -556,11 +1010,6 @@ public class MainController implements Initializable {
         updateVolumeIcon(audioService.isMuted() ? 0 : volumeSlider.getValue());
     }
 
-    @FXML
-    private void handleSearch() {
-        filterSongs(searchField.getText());
-    }
-
     @FXML
     private void handleHomeClick() {
         // Si estamos en otra vista, volver a la principal
@@ -680,73 +1129,84 @@ public class MainController implements Initializable {
 
         boolean success = false;
         if (event.getDragboard().hasFiles()) {
-            List<Song> newSongs = new ArrayList<>();
-            List<String> duplicateTitles = new ArrayList<>();
+            ingestFiles(new ArrayList<>(event.getDragboard().getFiles()));
+            success = true;
+        }
 
-            for (File file : event.getDragboard().getFiles()) {
-                if (file.isDirectory()) {
-                    processDirectoryWithDuplicateCheck(file, newSongs, duplicateTitles);
-                } else if (DragDropHandler.isAudioFile(file)) {
-                    // Verificar si ya existe
-                    if (playlist.containsSongByPath(file.getAbsolutePath())) {
-                        String fileName = file.getName();
-                        duplicateTitles.add(fileName.substring(0, fileName.lastIndexOf('.')));
-                    } else {
-                        newSongs.add(DragDropHandler.createSongFromFile(file));
-                    }
-                }
-            }
+        event.setDropCompleted(success);
+        event.consume();
+    }
 
-            // Agregar solo las canciones nuevas
-            if (!newSongs.isEmpty()) {
-                for (Song song : newSongs) {
-                    playlist.addSong(song);
-                }
-                updateFilteredList();
-                updatePlaylistStats();
+    /**
+     * Ingesta en segundo plano: los metadatos se leen fuera del hilo de UI y
+     * cada lote se agrega en él. Las canciones que ya están en la biblioteca
+     * salen del registro sin abrir el archivo y se descartan como duplicadas.
+     */
+    private void ingestFiles(List<File> files) {
+        MetadataCache metadataCache = MetadataCache.getShared();
+        List<String> duplicateTitles = new ArrayList<>();
+        int[] added = { 0 };
 
-                if (playlist.size() == newSongs.size()) {
-                    loadCurrentSong();
-                }
-                success = true;
-
-                // Mostrar notificación de éxito
-                String message = newSongs.size() == 1
-                        ? "✓ Música agregada correctamente"
-                        : "✓ " + newSongs.size() + " músicas agregadas correctamente";
-                showToast(message, false);
-                System.out.println(message);
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() {
+                int total = DragDropHandler.processFiles(files, file -> true, metadataCache::createSong,
+                        batch -> Platform.runLater(() -> added[0] += addDropped(batch, duplicateTitles)));
+                metadataCache.save();
+                return total;
             }
+        };
+        // runLater: se ejecuta después de los lotes ya encolados
+        task.setOnSucceeded(e -> Platform.runLater(() -> showIngestResult(added[0], duplicateTitles)));
+        task.setOnFailed(e -> System.err.println("Error agregando archivos: " + task.getException().getMessage()));
+        ingestExecutor.submit(task);
+    }
 
-            // Mostrar notificación de duplicados
-            if (!duplicateTitles.isEmpty()) {
-                String dupMessage = duplicateTitles.size() == 1
-                        ? "⚠ \"" + duplicateTitles.get(0) + "\" ya existe en la biblioteca"
-                        : "⚠ " + duplicateTitles.size() + " canciones ya existen en la biblioteca";
-                showToast(dupMessage, true);
-                System.out.println(dupMessage);
+    /**
+     * Agrega un lote descartando las canciones que ya están en la biblioteca
+     *
+     * @return cantidad de canciones agregadas
+     */
+    private int addDropped(List<Song> batch, List<String> duplicateTitles) {
+        List<Song> fresh = new ArrayList<>(batch.size());
+        Set<Song> seen = new HashSet<>();
+        for (Song song : batch) {
+            if (playlist.contains(song) || !seen.add(song)) {
+                duplicateTitles.add(song.getTitle());
+            } else {
+                fresh.add(song);
             }
         }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
 
-        event.setDropCompleted(success);
-        event.consume();
+        boolean wasEmpty = playlist.isEmpty();
+        playlist.addAll(fresh);
+        updateFilteredList();
+        if (wasEmpty) {
+            loadCurrentSong();
+        }
+        return fresh.size();
     }
 
-    private void processDirectoryWithDuplicateCheck(File directory, List<Song> newSongs, List<String> duplicateTitles) {
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    processDirectoryWithDuplicateCheck(file, newSongs, duplicateTitles);
-                } else if (DragDropHandler.isAudioFile(file)) {
-                    if (playlist.containsSongByPath(file.getAbsolutePath())) {
-                        String fileName = file.getName();
-                        duplicateTitles.add(fileName.substring(0, fileName.lastIndexOf('.')));
-                    } else {
-                        newSongs.add(DragDropHandler.createSongFromFile(file));
-                    }
-                }
-            }
+    private void showIngestResult(int added, List<String> duplicateTitles) {
+        if (added > 0) {
+            // Mostrar notificación de éxito
+            String message = added == 1
+                    ? "✓ Música agregada correctamente"
+                    : "✓ " + added + " músicas agregadas correctamente";
+            showToast(message, false);
+            System.out.println(message);
+        }
+
+        // Mostrar notificación de duplicados
+        if (!duplicateTitles.isEmpty()) {
+            String dupMessage = duplicateTitles.size() == 1
+                    ? "⚠ \"" + duplicateTitles.get(0) + "\" ya existe en la biblioteca"
+                    : "⚠ " + duplicateTitles.size() + " canciones ya existen en la biblioteca";
+            showToast(dupMessage, true);
+            System.out.println(dupMessage);
         }
     }
 
@@ -755,25 +1215,71 @@ public class MainController implements Initializable {
     private void loadCurrentSong() {
         Song current = playlist.getCurrentSong();
         if (current != null) {
+            DragDropHandler.loadAlbumArt(current);
             audioService.loadSong(current);
             updateNowPlayingUI(current);
         }
     }
 
+    // ========== NAVEGACIÓN (cola + biblioteca) ==========
+
+    /**
+     * Siguiente canción: primero la cola, después el orden de la biblioteca
+     * (aleatorio y repetición incluidos).
+     *
+     * @return la canción que empezó a sonar, o null si no hay siguiente
+     */
+    public Song playNext() {
+        return advance(false);
+    }
+
+    /**
+     * Canción anterior. Si suena una canción de la cola, vuelve a la posición
+     * de la biblioteca; si no, retrocede en su orden.
+     *
+     * @return la canción que empezó a sonar, o null si no hay anterior
+     */
+    public Song playPrevious() {
+        Song song = navigator.previous(audioService.getCurrentSong());
+        playSong(song, true);
+        return song;
+    }
+
+    /**
+     * @param finished true si se llega al terminar la canción (aplica repetir una)
+     */
+    private Song advance(boolean finished) {
+        Song song = navigator.next(audioService.getCurrentSong(), finished);
+        playSong(song, true);
+        return song;
+    }
+
     private void loadAndPlayCurrentSong() {
-        playlist.getSongs().forEach(s -> s.setPlaying(false));
-        Song current = playlist.getCurrentSong();
+        playSong(playlist.getCurrentSong());
+    }
+
+    /**
+     * Carga y reproduce una canción (de la biblioteca o de la cola)
+     */
+    private void playSong(Song current) {
+        playSong(current, false);
+    }
+
+    /**
+     * @param crossfade true al pasar de canción (siguiente, anterior, fin):
+     *                  aplica el crossfade configurado
+     */
+    private void playSong(Song current, boolean crossfade) {
         if (current != null) {
-            audioService.loadSong(current);
+            DragDropHandler.loadAlbumArt(current);
+            // Antes de cargar: si la canción estaba precargada, ya está lista
             audioService.setOnReady(() -> {
                 audioService.play();
                 Platform.runLater(() -> {
                     updateNowPlayingUI(current);
-                    current.setPlaying(true);
-                    songListView.refresh();
-                    updatePlaylistStats();
                 });
             });
+            audioService.loadSong(current, crossfade);
         }
     }
 
@@ -846,16 +1352,14 @@ public class MainController implements Initializable {
     }
 
     private void updatePlaylistStats() {
-        int count = playlist.size();
+        PlaylistStats stats = playlist.getStats();
+        int count = stats.getCount();
         if (songCountLabel != null) {
             songCountLabel.setText(count + (count == 1 ? " canción" : " canciones"));
         }
 
-        // Calcular duración total
-        double totalSeconds = playlist.getSongs().stream()
-                .filter(s -> s.getDuration() != null)
-                .mapToDouble(s -> s.getDuration().toSeconds())
-                .sum();
+        // Duración total mantenida por la playlist (O(1))
+        double totalSeconds = stats.getTotalMillis() / 1000.0;
 
         if (totalDurationLabel != null) {
             int mins = (int) (totalSeconds / 60);
@@ -910,6 +1414,51 @@ public class MainController implements Initializable {
     private KeyboardService keyboardService;
     private NowPlayingController nowPlayingController;
 
+    @FXML
+    private void handleArtistsClick() {
+        openBrowseView(BrowseController.Mode.ARTISTS);
+    }
+
+    @FXML
+    private void handleAlbumsClick() {
+        openBrowseView(BrowseController.Mode.ALBUMS);
+    }
+
+    /**
+     * Abre la vista Explorar (por artista o por álbum) sobre las facetas de la biblioteca
+     */
+    private void openBrowseView(BrowseController.Mode mode) {
+        try {
+            if (originalCenterContent == null) {
+                originalCenterContent = rootPane.getCenter();
+            }
+
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/audioflow/views/browse-view.fxml"));
+            Parent browseView = loader.load();
+
+            BrowseController controller = loader.getController();
+            controller.setFacets(facets, mode);
+            controller.setOnPlaySong(song -> {
+                playlist.goToIndex(playlist.indexOf(song));
+                loadAndPlayCurrentSong();
+                showMainView();
+            });
+            controller.setOnPlaySongs(songs -> {
+                playQueue.replaceWith(songs);
+                playNext();
+                showMainView();
+            });
+
+            rootPane.setCenter(browseView);
+            System.out.println("✓ Explorando " + (mode == BrowseController.Mode.ARTISTS
+                    ? facets.getArtistCount() + " artistas"
+                    : facets.getAlbumCount() + " álbumes"));
+        } catch (IOException e) {
+            System.err.println("Error abriendo vista Explorar: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     @FXML
     private void handlePlaylistsClick() {
         System.out.println("✓ Abriendo Gestor de Playlists...");
@@ -927,27 +1476,16 @@ public class MainController implements Initializable {
             // Obtener el controlador y configurar callbacks
             PlaylistManagerController controller = loader.getController();
             controller.setOnPlaySong(song -> {
-                // Agregar canción a la playlist actual y reproducir
-                if (!playlist.getSongs().contains(song)) {
-                    playlist.addSong(song);
-                }
-                int index = playlist.getSongs().indexOf(song);
-                playlist.goToIndex(index);
-                loadAndPlayCurrentSong();
+                // Reproducir directamente, sin copiarla a la biblioteca
+                playSong(song);
                 // Volver a la vista principal
                 showMainView();
             });
             controller.setOnPlayPlaylist(selectedPlaylist -> {
-                // Agregar todas las canciones y reproducir
-                for (Song song : selectedPlaylist.getSongs()) {
-                    if (!playlist.getSongs().contains(song)) {
-                        playlist.addSong(song);
-                    }
-                }
-                updatePlaylistStats();
+                // La playlist pasa a la cola (una sola copia); la biblioteca no cambia
                 if (!selectedPlaylist.isEmpty()) {
-                    playlist.goToIndex(playlist.getSongs().indexOf(selectedPlaylist.getSongs().get(0)));
-                    loadAndPlayCurrentSong();
+                    playQueue.replaceWith(selectedPlaylist.getSongs());
+                    playNext();
                 }
                 // Volver a la vista principal
                 showMainView();
@@ -984,6 +1522,7 @@ public class MainController implements Initializable {
             nowPlayingController = loader.getController();
             keyboardService = new KeyboardService();
             nowPlayingController.setup(audioService, keyboardService);
+            nowPlayingController.setPlaylist(playlist);
             nowPlayingController.updateSongInfo(playlist.getCurrentSong());
 
             // Callback para cerrar (volver a vista principal)
@@ -991,18 +1530,16 @@ public class MainController implements Initializable {
 
             // Callbacks para navegación prev/next
             nowPlayingController.setOnPrevious(() -> {
-                if (playlist.hasPrevious()) {
-                    playlist.previous();
-                    loadAndPlayCurrentSong();
-                    nowPlayingController.updateSongInfo(playlist.getCurrentSong());
+                Song song = playPrevious();
+                if (song != null) {
+                    nowPlayingController.updateSongInfo(song);
                 }
             });
 
             nowPlayingController.setOnNext(() -> {
-                if (playlist.hasNext()) {
-                    playlist.next();
-                    loadAndPlayCurrentSong();
-                    nowPlayingController.updateSongInfo(playlist.getCurrentSong());
+                Song song = playNext();
+                if (song != null) {
+                    nowPlayingController.updateSongInfo(song);
                 }
             });
 
@@ -1036,9 +1573,9 @@ public class MainController implements Initializable {
                 keyboardService.unregisterShortcuts();
             }
 
-            // Actualizar la lista de canciones
+            // Actualizar la lista de canciones (y el aleatorio, que pudo cambiar en Now Playing)
             songListView.refresh();
-            updatePlaylistStats();
+            updateShuffleButtons();
         }
     }
 
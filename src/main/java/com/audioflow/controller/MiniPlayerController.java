@@ -161,14 +161,10 @@ public class MiniPlayerController implements Initializable {
     @FXML
     private void handlePrevious() {
         if (mainController != null) {
-            mainController.getPlaylist().previous();
-            Song current = mainController.getPlaylist().getCurrentSong();
+            // La navegación (cola, aleatorio, repetición) está centralizada en MainController
+            Song current = mainController.playPrevious();
             if (current != null) {
-                audioService.loadSong(current);
-                audioService.setOnReady(() -> {
-                    audioService.play();
-                    Platform.runLater(() -> updateNowPlayingUI(current));
-                });
+                updateNowPlayingUI(current);
             }
         }
     }
@@ -176,14 +172,10 @@ public class MiniPlayerController implements Initializable {
     @FXML
     private void handleNext() {
         if (mainController != null) {
-            mainController.getPlaylist().next();
-            Song current = mainController.getPlaylist().getCurrentSong();
+            // La navegación (cola, aleatorio, repetición) está centralizada en MainController
+            Song current = mainController.playNext();
             if (current != null) {
-                audioService.loadSong(current);
-                audioService.setOnReady(() -> {
-                    audioService.play();
-                    Platform.runLater(() -> updateNowPlayingUI(current));
-                });
+                updateNowPlayingUI(current);
             }
         }
     }
@@ -2,6 +2,8 @@ package com.audioflow.controller;
 
 import com.audioflow.component.AudioVisualizer;
 import com.audioflow.component.StarRating;
+import com.audioflow.model.Playlist;
+import com.audioflow.model.RepeatMode;
 import com.audioflow.model.Song;
 import com.audioflow.service.AudioAnalyzerService;
 import com.audioflow.service.AudioService;
@@ -83,17 +85,12 @@ public class NowPlayingController implements Initializable {
 
     // ========== ESTADO ==========
     private boolean isUserDraggingSlider = false;
-    private boolean shuffleEnabled = false;
-    private RepeatMode repeatMode = RepeatMode.OFF;
+    private Playlist playlist; // Dueña del aleatorio y la repetición
     private Runnable onCloseCallback;
     private Runnable onPreviousCallback;
     private Runnable onNextCallback;
     private Song currentSong; // Canción actual para persistir rating
 
-    public enum RepeatMode {
-        OFF, ALL, ONE
-    }
-
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         System.out.println("✓ Inicializando NowPlayingController...");
@@ -106,6 +103,15 @@ public class NowPlayingController implements Initializable {
         updateSongInfo(null);
     }
 
+    /**
+     * Conecta los botones de aleatorio y repetición con la playlist que se reproduce
+     */
+    public void setPlaylist(Playlist playlist) {
+        this.playlist = playlist;
+        updateShuffleButton();
+        updateRepeatButton();
+    }
+
     /**
      * Configura el controlador con los servicios compartidos
      */
@@ -285,19 +291,24 @@ public class NowPlayingController implements Initializable {
 
     @FXML
     private void handleShuffle() {
-        shuffleEnabled = !shuffleEnabled;
+        if (playlist != null) {
+            playlist.setShuffle(!playlist.isShuffle());
+        }
         updateShuffleButton();
         showFeedback("fas-random");
     }
 
     @FXML
     private void handleRepeat() {
+        if (playlist == null) {
+            return;
+        }
         // Ciclar entre modos: OFF -> ALL -> ONE -> OFF
-        repeatMode = switch (repeatMode) {
+        playlist.setRepeatMode(switch (playlist.getRepeatMode()) {
             case OFF -> RepeatMode.ALL;
             case ALL -> RepeatMode.ONE;
             case ONE -> RepeatMode.OFF;
-        };
+        });
         updateRepeatButton();
     }
 
@@ -440,10 +451,9 @@ public class NowPlayingController implements Initializable {
 
     private void updateShuffleButton() {
         if (shuffleBtn != null) {
-            if (shuffleEnabled) {
+            shuffleBtn.getStyleClass().remove("active");
+            if (isShuffleEnabled()) {
                 shuffleBtn.getStyleClass().add("active");
-            } else {
-                shuffleBtn.getStyleClass().remove("active");
             }
         }
     }
@@ -452,7 +462,7 @@ public class NowPlayingController implements Initializable {
         if (repeatBtn != null && repeatIcon != null) {
             repeatBtn.getStyleClass().remove("active");
 
-            switch (repeatMode) {
+            switch (getRepeatMode()) {
                 case OFF -> repeatIcon.setIconLiteral("fas-redo");
                 case ALL -> {
                     repeatIcon.setIconLiteral("fas-redo");
@@ -491,10 +501,10 @@ public class NowPlayingController implements Initializable {
     }
 
     public boolean isShuffleEnabled() {
-        return shuffleEnabled;
+        return playlist != null && playlist.isShuffle();
     }
 
     public RepeatMode getRepeatMode() {
-        return repeatMode;
+        return playlist != null ? playlist.getRepeatMode() : RepeatMode.OFF;
     }
 }
@@ -1,7 +1,10 @@
 package com.audioflow.controller;
 
 import com.audioflow.model.Playlist;
+import com.audioflow.model.PlaylistSummary;
 import com.audioflow.model.Song;
+import com.audioflow.service.MetadataCache;
+import com.audioflow.service.PlaylistFileService;
 import com.audioflow.service.PlaylistService;
 import com.audioflow.util.DragDropHandler;
 import com.audioflow.util.ValidationUtils;
@@ -11,16 +14,27 @@ import com.jfoenix.controls.JFXTextField;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.input.*;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 
+import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 /**
@@ -33,7 +47,7 @@ public class PlaylistManagerController implements Initializable {
     @FXML
     private VBox rootPane;
     @FXML
-    private JFXListView<Playlist> playlistListView;
+    private JFXListView<PlaylistSummary> playlistListView;
     @FXML
     private JFXListView<Song> songsListView;
     @FXML
@@ -57,9 +71,22 @@ public class PlaylistManagerController implements Initializable {
 
     // ========== SERVICIOS Y DATOS ==========
     private final PlaylistService playlistService = new PlaylistService();
-    private final ObservableList<Playlist> playlists = FXCollections.observableArrayList();
+    private final PlaylistFileService playlistFileService = new PlaylistFileService();
+    private final ObservableList<PlaylistSummary> playlists = FXCollections.observableArrayList();
+    // Playlists cuyas canciones ya fueron materializadas (se cargan al seleccionarlas)
+    private final Map<PlaylistSummary, Playlist> loadedPlaylists = new IdentityHashMap<>();
+    // Nombres de las playlists que se están materializando (evita cargas duplicadas)
+    private final Set<String> loadingPlaylists = new HashSet<>();
+    private PlaylistSummary selectedSummary;
     private Playlist selectedPlaylist;
 
+    // Hilo de fondo para materializar canciones sin bloquear la UI
+    private final ExecutorService songLoader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "playlist-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // Callbacks
     private Consumer<Song> onPlaySong;
     private Consumer<Playlist> onPlayPlaylist;
@@ -88,13 +115,13 @@ public class PlaylistManagerController implements Initializable {
         // Personalizar celdas
         playlistListView.setCellFactory(lv -> new ListCell<>() {
             @Override
-            protected void updateItem(Playlist playlist, boolean empty) {
-                super.updateItem(playlist, empty);
-                if (empty || playlist == null) {
+            protected void updateItem(PlaylistSummary summary, boolean empty) {
+                super.updateItem(summary, empty);
+                if (empty || summary == null) {
                     setText(null);
                     setGraphic(null);
                 } else {
-                    setText(playlist.getName() + " (" + playlist.size() + ")");
+                    setText(summary.getName() + " (" + summary.getSongCount() + ")");
                 }
             }
         });
@@ -157,8 +184,7 @@ public class PlaylistManagerController implements Initializable {
                     int dropIndex = cell.getIndex();
                     if (dropIndex >= 0 && draggedIndex >= 0 && dropIndex != draggedIndex) {
                         // Reordenar
-                        Song draggedSong = selectedPlaylist.getSongs().remove(draggedIndex);
-                        selectedPlaylist.getSongs().add(dropIndex, draggedSong);
+                        selectedPlaylist.moveRange(draggedIndex, draggedIndex + 1, dropIndex);
                         saveCurrentPlaylist();
                         success = true;
                     }
@@ -210,12 +236,7 @@ public class PlaylistManagerController implements Initializable {
             boolean success = false;
 
             if (db.hasFiles() && selectedPlaylist != null) {
-                java.util.List<Song> songs = DragDropHandler.processFiles(db.getFiles());
-                for (Song song : songs) {
-                    selectedPlaylist.addSong(song);
-                }
-                updateSongsList();
-                saveCurrentPlaylist();
+                addFilesInBackground(selectedPlaylist, new ArrayList<>(db.getFiles()));
                 success = true;
             }
 
@@ -224,6 +245,38 @@ public class PlaylistManagerController implements Initializable {
         });
     }
 
+    /**
+     * Lee los metadatos en segundo plano y agrega cada lote en el hilo de UI;
+     * al terminar guarda la playlist
+     */
+    private void addFilesInBackground(Playlist target, List<File> files) {
+        MetadataCache metadataCache = MetadataCache.getShared();
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() {
+                int total = DragDropHandler.processFiles(files, file -> true, metadataCache::createSong,
+                        batch -> Platform.runLater(() -> target.addAll(batch)));
+                metadataCache.save();
+                return total;
+            }
+        };
+        // runLater: se ejecuta después de los lotes ya encolados
+        task.setOnSucceeded(e -> Platform.runLater(() -> {
+            if (selectedPlaylist == target) {
+                saveCurrentPlaylist();
+                updatePlaylistInfo();
+            } else {
+                try {
+                    playlistService.savePlaylist(target);
+                } catch (Exception ex) {
+                    System.err.println("Error guardando playlist: " + ex.getMessage());
+                }
+            }
+        }));
+        task.setOnFailed(e -> System.err.println("Error agregando archivos: " + task.getException().getMessage()));
+        songLoader.submit(task);
+    }
+
     private void setupDialog() {
         // Validación en tiempo real del nombre
         if (playlistNameField != null) {
@@ -249,7 +302,12 @@ public class PlaylistManagerController implements Initializable {
         renameItem.setOnAction(e -> handleRenamePlaylist());
         MenuItem deleteItem = new MenuItem("Eliminar");
         deleteItem.setOnAction(e -> handleDeletePlaylist());
-        playlistContextMenu.getItems().addAll(renameItem, deleteItem);
+        MenuItem importItem = new MenuItem("Importar M3U/PLS...");
+        importItem.setOnAction(e -> handleImportPlaylist());
+        MenuItem exportItem = new MenuItem("Exportar M3U/PLS...");
+        exportItem.setOnAction(e -> handleExportPlaylist());
+        playlistContextMenu.getItems().addAll(renameItem, deleteItem, new SeparatorMenuItem(), importItem,
+                exportItem);
         playlistListView.setContextMenu(playlistContextMenu);
 
         // Menú contextual para canciones
@@ -267,6 +325,8 @@ public class PlaylistManagerController implements Initializable {
         infoItem.setOnAction(e -> handleShowSongInfo());
         songContextMenu.getItems().addAll(playItem, new SeparatorMenuItem(), removeItem, infoItem);
         songsListView.setContextMenu(songContextMenu);
+        // Selección múltiple: quitar varias canciones es una sola operación
+        songsListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
     }
 
     // ========== ACCIONES ==========
@@ -292,12 +352,14 @@ public class PlaylistManagerController implements Initializable {
 
         // Crear y guardar
         Playlist newPlaylist = new Playlist(name);
-        playlists.add(newPlaylist);
+        PlaylistSummary summary = PlaylistSummary.of(newPlaylist);
+        loadedPlaylists.put(summary, newPlaylist);
+        playlists.add(summary);
 
         try {
             playlistService.savePlaylist(newPlaylist);
             hideDialog();
-            playlistListView.getSelectionModel().select(newPlaylist);
+            playlistListView.getSelectionModel().select(summary);
         } catch (Exception e) {
             showError("Error al guardar: " + e.getMessage());
         }
@@ -316,7 +378,7 @@ public class PlaylistManagerController implements Initializable {
     }
 
     private void handleRenamePlaylist() {
-        Playlist selected = playlistListView.getSelectionModel().getSelectedItem();
+        PlaylistSummary selected = playlistListView.getSelectionModel().getSelectedItem();
         if (selected == null)
             return;
 
@@ -328,15 +390,25 @@ public class PlaylistManagerController implements Initializable {
         Optional<String> result = dialog.showAndWait();
         result.ifPresent(name -> {
             if (ValidationUtils.isValidPlaylistName(name)) {
-                selected.setName(name);
-                playlistListView.refresh();
-                saveCurrentPlaylist();
+                try {
+                    // Renombrar en disco sin materializar las canciones
+                    playlistService.renamePlaylist(selected.getName(), name);
+                    selected.setName(name);
+                    Playlist loaded = loadedPlaylists.get(selected);
+                    if (loaded != null) {
+                        loaded.setName(name);
+                    }
+                    playlistListView.refresh();
+                    updatePlaylistInfo();
+                } catch (Exception e) {
+                    System.err.println("Error al renombrar: " + e.getMessage());
+                }
             }
         });
     }
 
     private void handleDeletePlaylist() {
-        Playlist selected = playlistListView.getSelectionModel().getSelectedItem();
+        PlaylistSummary selected = playlistListView.getSelectionModel().getSelectedItem();
         if (selected == null)
             return;
 
@@ -349,7 +421,9 @@ public class PlaylistManagerController implements Initializable {
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
                 playlistService.deletePlaylist(selected.getName());
+                loadedPlaylists.remove(selected);
                 playlists.remove(selected);
+                selectedSummary = null;
                 selectedPlaylist = null;
                 updatePlaylistInfo();
             } catch (Exception e) {
@@ -358,10 +432,82 @@ public class PlaylistManagerController implements Initializable {
         }
     }
 
+    private void handleImportPlaylist() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Importar playlist");
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Playlists (M3U, M3U8, PLS)", "*.m3u", "*.m3u8", "*.pls"));
+        File file = chooser.showOpenDialog(rootPane.getScene().getWindow());
+        if (file == null)
+            return;
+
+        // Nombre de la playlist: nombre del archivo, saneado y sin repetir
+        String baseName = file.getName().replaceFirst("\\.[^.]+$", "");
+        String name = ValidationUtils.sanitizeFileName(baseName);
+        for (int i = 2; playlistService.playlistExists(name); i++) {
+            name = ValidationUtils.sanitizeFileName(baseName) + " (" + i + ")";
+        }
+
+        Playlist imported = new Playlist(name);
+        PlaylistSummary summary = PlaylistSummary.of(imported);
+        loadedPlaylists.put(summary, imported);
+        playlists.add(summary);
+        playlistListView.getSelectionModel().select(summary);
+
+        // Lectura en streaming en segundo plano; cada lote se agrega en el hilo de UI
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                return playlistFileService.importPlaylist(file.toPath(),
+                        batch -> Platform.runLater(() -> imported.addAll(batch)));
+            }
+        };
+        task.setOnSucceeded(e -> Platform.runLater(() -> {
+            // runLater: se ejecuta después de los lotes ya encolados
+            summary.update(imported);
+            playlistListView.refresh();
+            if (selectedPlaylist == imported) {
+                updatePlaylistInfo();
+            }
+            try {
+                playlistService.savePlaylist(imported);
+            } catch (Exception ex) {
+                System.err.println("Error guardando playlist importada: " + ex.getMessage());
+            }
+        }));
+        task.setOnFailed(e -> System.err.println("Error importando playlist: " + task.getException().getMessage()));
+        songLoader.submit(task);
+    }
+
+    private void handleExportPlaylist() {
+        if (selectedPlaylist == null)
+            return; // Aún cargando
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Exportar playlist");
+        chooser.setInitialFileName(ValidationUtils.sanitizeFileName(selectedPlaylist.getName()) + ".m3u8");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("M3U8", "*.m3u8"),
+                new FileChooser.ExtensionFilter("PLS", "*.pls"));
+        File file = chooser.showSaveDialog(rootPane.getScene().getWindow());
+        if (file == null)
+            return;
+
+        java.util.List<Song> snapshot = new ArrayList<>(selectedPlaylist.getSongs());
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                return playlistFileService.exportPlaylist(snapshot, file.toPath());
+            }
+        };
+        task.setOnFailed(e -> System.err.println("Error exportando playlist: " + task.getException().getMessage()));
+        songLoader.submit(task);
+    }
+
     private void handleRemoveSong() {
-        Song selected = songsListView.getSelectionModel().getSelectedItem();
-        if (selected != null && selectedPlaylist != null) {
-            selectedPlaylist.removeSong(selected);
+        List<Song> selected = new ArrayList<>(songsListView.getSelectionModel().getSelectedItems());
+        if (!selected.isEmpty() && selectedPlaylist != null) {
+            selectedPlaylist.removeAll(selected);
             updateSongsList();
             saveCurrentPlaylist();
         }
@@ -385,25 +531,76 @@ public class PlaylistManagerController implements Initializable {
     // ========== MÉTODOS AUXILIARES ==========
 
     private void loadPlaylists() {
-        playlists.clear();
-        playlists.addAll(playlistService.loadPlaylists());
+        // Solo los resúmenes: las canciones se materializan al seleccionar cada playlist
+        loadedPlaylists.clear();
+        playlists.setAll(playlistService.loadPlaylistSummaries());
 
         if (!playlists.isEmpty()) {
             playlistListView.getSelectionModel().selectFirst();
         }
     }
 
-    private void selectPlaylist(Playlist playlist) {
-        selectedPlaylist = playlist;
+    private void selectPlaylist(PlaylistSummary summary) {
+        selectedSummary = summary;
+        selectedPlaylist = summary != null ? loadedPlaylists.get(summary) : null;
+
+        if (summary != null && selectedPlaylist == null) {
+            loadPlaylistSongs(summary);
+        }
+
         updatePlaylistInfo();
         updateSongsList();
     }
 
+    /**
+     * Materializa las canciones de una playlist en segundo plano.
+     * Si el usuario ya seleccionó otra playlist cuando termina, el resultado
+     * solo se guarda en caché.
+     */
+    private void loadPlaylistSongs(PlaylistSummary summary) {
+        String name = summary.getName();
+        if (!loadingPlaylists.add(name)) {
+            return; // Ya se está cargando: el resultado se mostrará al terminar
+        }
+        Task<Playlist> task = new Task<>() {
+            @Override
+            protected Playlist call() {
+                return playlistService.loadPlaylist(name, Platform::runLater);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            loadingPlaylists.remove(name);
+            Playlist loaded = task.getValue();
+            loadedPlaylists.put(summary, loaded);
+            summary.update(loaded);
+            playlistListView.refresh();
+
+            if (selectedSummary == summary) {
+                selectedPlaylist = loaded;
+                updatePlaylistInfo();
+                updateSongsList();
+            }
+        });
+
+        task.setOnFailed(e -> {
+            loadingPlaylists.remove(name);
+            System.err.println("Error cargando canciones de " + name + ": " + task.getException().getMessage());
+        });
+
+        songLoader.submit(task);
+    }
+
     private void updatePlaylistInfo() {
         if (selectedPlaylist != null) {
             selectedPlaylistName.setText(selectedPlaylist.getName());
             songCountLabel.setText(selectedPlaylist.size() + " canciones");
             playAllBtn.setDisable(selectedPlaylist.isEmpty());
+        } else if (selectedSummary != null) {
+            // Canciones aún cargando: mostrar datos del resumen
+            selectedPlaylistName.setText(selectedSummary.getName());
+            songCountLabel.setText(selectedSummary.getSongCount() + " canciones • Cargando...");
+            playAllBtn.setDisable(true);
         } else {
             selectedPlaylistName.setText("Selecciona una playlist");
             songCountLabel.setText("0 canciones");
@@ -421,6 +618,10 @@ public class PlaylistManagerController implements Initializable {
 
     private void saveCurrentPlaylist() {
         if (selectedPlaylist != null) {
+            if (selectedSummary != null) {
+                selectedSummary.update(selectedPlaylist);
+                playlistListView.refresh();
+            }
             try {
                 playlistService.savePlaylist(selectedPlaylist);
             } catch (Exception e) {
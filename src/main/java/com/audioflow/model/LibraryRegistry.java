@@ -0,0 +1,198 @@
+package com.audioflow.model;
+
+import com.audioflow.util.DirectoryTable;
+import com.audioflow.util.LongHashMap;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Registro central de la biblioteca: una sola {@link Song} por archivo.
+ *
+ * Cada archivo recibe un id de 64 bits derivado de su ruta (hash FNV-1a), así
+ * el id es el mismo en cada ejecución sin guardar una tabla aparte. Cargar el
+ * mismo archivo desde dos playlists devuelve el mismo objeto: la calificación
+ * y el estado de reproducción son compartidos, y las canciones pueden
+ * compararse por identidad.
+ *
+ * Si dos rutas distintas coincidieran en el hash (improbable con 64 bits), la
+ * segunda sigue su propia cadena de hashes con otra semilla (derivada de su
+ * ruta, no del orden de registro). Ese id alternativo se avisa para guardarlo
+ * ({@link #pinIds}): en la próxima ejecución la ruta lo recupera aunque se
+ * registre antes que la otra, y las estadísticas no cambian de canción.
+ */
+public final class LibraryRegistry {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long SALT_MIX = 0x9e3779b97f4a7c15L;
+
+    private static final LibraryRegistry SHARED = new LibraryRegistry();
+
+    private final LongHashMap<Song> songs = new LongHashMap<>(1024);
+    private final List<Consumer<Song>> registrationListeners = new CopyOnWriteArrayList<>();
+    // Ids alternativos (por colisión) guardados en ejecuciones anteriores
+    private final Map<String, Long> pinned = new HashMap<>();
+    private final Set<Long> pinnedIds = new HashSet<>();
+    private BiConsumer<String, Long> onFallbackId;
+
+    /**
+     * Registro común de la aplicación
+     */
+    public static LibraryRegistry shared() {
+        return SHARED;
+    }
+
+    // ========== BÚSQUEDA ==========
+
+    /**
+     * Canción con ese id (null si no está registrada)
+     */
+    public synchronized Song get(long id) {
+        return songs.get(id);
+    }
+
+    /**
+     * Canción registrada para una ruta (null si no hay)
+     */
+    public synchronized Song find(String filePath) {
+        Long pinnedId = pinned.get(filePath);
+        if (pinnedId != null) {
+            return songs.get(pinnedId);
+        }
+        for (int salt = 0; ; salt++) {
+            long id = hash(filePath, salt);
+            Song song = songs.get(id);
+            // Un id reservado para otra ruta se saltea aunque esté libre (como en register)
+            if (song == null ? !pinnedIds.contains(id) : samePath(song, filePath)) {
+                return song;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return songs.size();
+    }
+
+    // ========== REGISTRO ==========
+
+    /**
+     * Registra una canción. Si su archivo ya estaba registrado devuelve la
+     * canción existente (la recibida se descarta).
+     */
+    public synchronized Song register(Song song) {
+        if (song.getId() != 0 && songs.get(song.getId()) == song) {
+            return song;
+        }
+        String filePath = song.getFilePath();
+        Long pinnedId = pinned.get(filePath);
+        long id;
+        if (pinnedId != null) {
+            id = pinnedId;
+            Song existing = songs.get(id);
+            if (existing != null) {
+                return existing;
+            }
+        } else {
+            int salt = 0;
+            id = hash(filePath, 0);
+            for (Song existing = songs.get(id); existing != null || pinnedIds.contains(id); existing = songs.get(id)) {
+                if (existing != null && samePath(existing, filePath)) {
+                    return existing;
+                }
+                id = hash(filePath, ++salt);
+            }
+            if (salt > 0) {
+                pinned.put(filePath, id);
+                pinnedIds.add(id);
+                if (onFallbackId != null) {
+                    onFallbackId.accept(filePath, id);
+                }
+            }
+        }
+        song.assignId(id);
+        if (song.getAddedAt() == 0) {
+            song.setAddedAt(System.currentTimeMillis()); // Primera vez en la biblioteca
+        }
+        songs.put(id, song);
+        for (Consumer<Song> listener : registrationListeners) {
+            listener.accept(song);
+        }
+        return song;
+    }
+
+    /**
+     * Ids alternativos asignados por colisión en ejecuciones anteriores, y
+     * dónde avisar los nuevos para guardarlos. Llamar antes de registrar canciones.
+     */
+    public synchronized void pinIds(Map<String, Long> assignments, BiConsumer<String, Long> onFallback) {
+        pinned.putAll(assignments);
+        pinnedIds.addAll(assignments.values());
+        this.onFallbackId = onFallback;
+    }
+
+    /**
+     * Avisa cada vez que se registra una canción nueva (por ejemplo, para
+     * completarle datos guardados aparte, como el historial de reproducción)
+     */
+    public void addRegistrationListener(Consumer<Song> listener) {
+        registrationListeners.add(listener);
+    }
+
+    /**
+     * Canción de un archivo: la registrada, o la que crea la fábrica (solo
+     * se llama si el archivo no estaba registrado)
+     */
+    public Song resolve(File file, Function<File, Song> factory) {
+        return resolve(file.getAbsolutePath(), () -> factory.apply(file));
+    }
+
+    /**
+     * Canción de una ruta: la registrada, o la que crea la fábrica
+     */
+    public Song resolve(String filePath, Supplier<Song> factory) {
+        Song existing = find(filePath);
+        if (existing != null) {
+            return existing;
+        }
+        // La fábrica (lectura de metadatos) corre fuera del lock; si otro
+        // hilo registró el mismo archivo mientras tanto, gana el primero
+        return register(factory.get());
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Hash FNV-1a de 64 bits de la ruta (nunca 0, que significa "sin id").
+     * La semilla cambia el valor inicial: dos rutas que coinciden con una
+     * semilla no tienen por qué coincidir con la siguiente.
+     */
+    static long hash(String filePath, int salt) {
+        long h = FNV_OFFSET ^ (salt * SALT_MIX);
+        for (int i = 0; i < filePath.length(); i++) {
+            h ^= filePath.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Compara la ruta sin armarla: directorio y nombre por separado
+     */
+    private static boolean samePath(Song song, String filePath) {
+        String directory = DirectoryTable.shared().directory(song.getDirectoryId());
+        String fileName = song.getFileName();
+        return directory.length() + fileName.length() == filePath.length()
+                && filePath.startsWith(directory)
+                && filePath.startsWith(fileName, directory.length());
+    }
+}
@@ -0,0 +1,194 @@
+package com.audioflow.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cola de reproducción ("A continuación"), separada de la biblioteca.
+ *
+ * Es un arreglo circular: agregar al final, reproducir a continuación (al
+ * frente) y sacar la siguiente son O(1). Encolar una playlist entera es una
+ * sola copia O(n) y no toca la lista de canciones de la biblioteca.
+ */
+public class PlayQueue {
+
+    private Song[] items = new Song[16];
+    private int head;
+    private int size;
+
+    // ========== ENCOLAR ==========
+
+    /**
+     * Agrega una canción al final de la cola
+     */
+    public void add(Song song) {
+        ensureCapacity(size + 1);
+        items[slot(size)] = song;
+        size++;
+    }
+
+    /**
+     * Agrega varias canciones al final, en orden
+     */
+    public void addAll(Collection<? extends Song> songs) {
+        ensureCapacity(size + songs.size());
+        for (Song song : songs) {
+            items[slot(size)] = song;
+            size++;
+        }
+    }
+
+    /**
+     * Pone una canción al frente: suena después de la actual
+     */
+    public void playNext(Song song) {
+        ensureCapacity(size + 1);
+        head = (head - 1 + items.length) % items.length;
+        items[head] = song;
+        size++;
+    }
+
+    /**
+     * Vacía la cola y encola estas canciones (ej: reproducir una playlist)
+     */
+    public void replaceWith(Collection<? extends Song> songs) {
+        clear();
+        addAll(songs);
+    }
+
+    // ========== CONSUMIR ==========
+
+    /**
+     * Saca la siguiente canción de la cola
+     *
+     * @return la canción, o null si la cola está vacía
+     */
+    public Song poll() {
+        if (size == 0) {
+            return null;
+        }
+        Song song = items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        size--;
+        return song;
+    }
+
+    /**
+     * La siguiente canción sin sacarla (null si la cola está vacía)
+     */
+    public Song peek() {
+        return size == 0 ? null : items[head];
+    }
+
+    // ========== EDITAR ==========
+
+    public Song get(int index) {
+        checkIndex(index);
+        return items[slot(index)];
+    }
+
+    /**
+     * Quita la canción en una posición. Desplaza el lado más corto de la cola.
+     */
+    public Song remove(int index) {
+        checkIndex(index);
+        Song removed = items[slot(index)];
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                items[slot(i)] = items[slot(i - 1)];
+            }
+            items[head] = null;
+            head = (head + 1) % items.length;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                items[slot(i)] = items[slot(i + 1)];
+            }
+            items[slot(size - 1)] = null;
+        }
+        size--;
+        return removed;
+    }
+
+    /**
+     * Quita la primera aparición de una canción
+     *
+     * @return true si estaba en la cola
+     */
+    public boolean remove(Song song) {
+        for (int i = 0; i < size; i++) {
+            if (items[slot(i)] == song) {
+                remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mueve una canción de posición (reordenar la cola)
+     */
+    public void move(int from, int to) {
+        checkIndex(from);
+        checkIndex(to);
+        Song moving = items[slot(from)];
+        int step = from < to ? 1 : -1;
+        for (int i = from; i != to; i += step) {
+            items[slot(i)] = items[slot(i + step)];
+        }
+        items[slot(to)] = moving;
+    }
+
+    public void clear() {
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+    }
+
+    // ========== GETTERS ==========
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copia del contenido en orden de reproducción (para mostrarla)
+     */
+    public List<Song> toList() {
+        List<Song> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(items[slot(i)]);
+        }
+        return list;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private int slot(int index) {
+        return (head + index) % items.length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + ", tamaño " + size);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= items.length) {
+            return;
+        }
+        Song[] grown = new Song[Math.max(needed, items.length * 2)];
+        for (int i = 0; i < size; i++) {
+            grown[i] = items[slot(i)];
+        }
+        items = grown;
+        head = 0;
+    }
+}
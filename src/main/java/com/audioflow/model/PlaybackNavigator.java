@@ -0,0 +1,78 @@
+package com.audioflow.model;
+
+/**
+ * Decide qué canción suena al avanzar o retroceder: primero la cola
+ * ("A continuación"), después el orden de la biblioteca (aleatorio y
+ * repetición incluidos).
+ *
+ * No reproduce nada: recibe la canción que está sonando y devuelve la que
+ * debe sonar, moviendo la cola y la biblioteca. Así la misma lógica sirve
+ * para la interfaz, los tests y los benchmarks con un motor sin audio.
+ */
+public class PlaybackNavigator {
+
+    private final Playlist library;
+    private final PlayQueue queue;
+
+    public PlaybackNavigator(Playlist library, PlayQueue queue) {
+        this.library = library;
+        this.queue = queue;
+    }
+
+    // ========== NAVEGACIÓN ==========
+
+    /**
+     * Siguiente canción
+     *
+     * @param current  la que está sonando (null si ninguna)
+     * @param finished true si se llega al terminar la canción (aplica repetir una)
+     * @return la canción que debe sonar, o null si no hay siguiente
+     */
+    public Song next(Song current, boolean finished) {
+        if (finished && library.getRepeatMode() == RepeatMode.ONE && current != null) {
+            return current;
+        }
+        Song queued = queue.poll();
+        if (queued != null) {
+            return queued;
+        }
+        return library.next() ? library.getCurrentSong() : null;
+    }
+
+    /**
+     * Canción anterior. Si suena una canción de la cola, vuelve a la posición
+     * de la biblioteca; si no, retrocede en su orden.
+     *
+     * @param current la que está sonando (null si ninguna)
+     * @return la canción que debe sonar, o null si no hay anterior
+     */
+    public Song previous(Song current) {
+        Song libraryCurrent = library.getCurrentSong();
+        if (current != null && current != libraryCurrent && libraryCurrent != null) {
+            return libraryCurrent;
+        }
+        return library.previous() ? library.getCurrentSong() : null;
+    }
+
+    /**
+     * Canción que sonará al terminar la actual, sin avanzar (para precargarla).
+     * Sigue las mismas reglas que {@link #next(Song, boolean)}.
+     */
+    public Song peekNext(Song current) {
+        if (library.getRepeatMode() == RepeatMode.ONE && current != null) {
+            return current;
+        }
+        Song queued = queue.peek();
+        return queued != null ? queued : library.peekNext();
+    }
+
+    // ========== GETTERS ==========
+
+    public Playlist getLibrary() {
+        return library;
+    }
+
+    public PlayQueue getQueue() {
+        return queue;
+    }
+}
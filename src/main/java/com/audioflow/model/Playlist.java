@@ -1,24 +1,51 @@
 package com.audioflow.model;
 
-import javafx.collections.FXCollections;
+import com.audioflow.util.IntList;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Modelo que representa una playlist (lista de reproducción).
  * Contiene una colección observable de canciones.
+ *
+ * El modo aleatorio no reordena la lista: mantiene un orden de reproducción
+ * aparte (una permutación de índices) que se recorre con next/previous.
  */
 public class Playlist {
 
     private String name;
-    private final ObservableList<Song> songs;
+    private final SongList songs;
     private int currentIndex;
 
+    // ========== ORDEN DE REPRODUCCIÓN ==========
+    private boolean shuffle;
+    private RepeatMode repeatMode = RepeatMode.OFF;
+    private final Random random = new Random();
+    // Con aleatorio: order[pos] es un índice de songs y positions su inverso.
+    // orderPos es la posición de la canción actual (order[orderPos] == currentIndex)
+    private int[] order = new int[0];
+    private int[] positions = new int[0];
+    private int orderPos = -1;
+    // Primera canción de la próxima vuelta con repetición, sorteada por adelantado
+    // para que peekNext la anticipe (-1 si todavía no se sorteó)
+    private int nextRoundFirst = -1;
+
     public Playlist(String name) {
         this.name = name;
-        this.songs = FXCollections.observableArrayList();
+        // Los cambios de metadatos de una canción llegan como eventos de actualización
+        this.songs = new SongList();
         this.currentIndex = -1;
+        // La canción actual y el orden aleatorio siguen los cambios de la lista
+        this.songs.addListener(this::onSongsChanged);
     }
 
     // ========== GESTIÓN DE CANCIONES ==========
@@ -28,34 +55,54 @@ public class Playlist {
      */
     public void addSong(Song song) {
         songs.add(song);
-        if (currentIndex == -1) {
-            currentIndex = 0;
+    }
+
+    /**
+     * Agrega varias canciones con una única notificación de cambio
+     */
+    public void addAll(Collection<? extends Song> newSongs) {
+        if (newSongs.isEmpty()) {
+            return;
         }
+        songs.addAll(newSongs);
+    }
+
+    /**
+     * Totales (cantidad, duración, por artista y álbum) mantenidos al agregar,
+     * quitar o editar canciones
+     */
+    public PlaylistStats getStats() {
+        return songs.getStats();
     }
 
     /**
-     * Verifica si ya existe una canción con la misma ruta de archivo
+     * Verifica si ya existe una canción con la misma ruta de archivo.
+     * O(1): la canción de cada archivo es única en el {@link LibraryRegistry}.
      */
     public boolean containsSongByPath(String filePath) {
-        for (Song song : songs) {
-            if (song.getFilePath().equals(filePath)) {
-                return true;
-            }
-        }
-        return false;
+        Song song = LibraryRegistry.shared().find(filePath);
+        return song != null && songs.contains(song);
+    }
+
+    /**
+     * Verifica si la canción está en la playlist (O(1))
+     */
+    public boolean contains(Song song) {
+        return songs.contains(song);
+    }
+
+    /**
+     * Posición de la canción (-1 si no está; O(1) en ese caso)
+     */
+    public int indexOf(Song song) {
+        return songs.indexOf(song);
     }
 
     /**
      * Elimina una canción de la playlist
      */
     public void removeSong(Song song) {
-        int index = songs.indexOf(song);
         songs.remove(song);
-
-        // Ajustar índice si es necesario
-        if (index <= currentIndex && currentIndex > 0) {
-            currentIndex--;
-        }
     }
 
     /**
@@ -63,23 +110,84 @@ public class Playlist {
      */
     public void clear() {
         songs.clear();
-        currentIndex = -1;
     }
 
+    // ========== OPERACIONES MASIVAS ==========
+    // Una pasada y un único evento de cambio: la UI y los índices se actualizan una vez
+
     /**
-     * Mezcla aleatoriamente las canciones
+     * Quita todas las canciones indicadas
+     *
+     * @return cantidad de canciones quitadas
      */
-    public void shuffle() {
-        if (songs.size() > 1) {
-            Song current = getCurrentSong();
-            Collections.shuffle(songs);
-            // Mover la canción actual al inicio
-            if (current != null) {
-                songs.remove(current);
-                songs.add(0, current);
-                currentIndex = 0;
-            }
+    public int removeAll(Collection<? extends Song> toRemove) {
+        if (toRemove.isEmpty()) {
+            return 0;
         }
+        // Conjunto por identidad: contains O(1) aunque llegue una List
+        Set<Song> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(toRemove);
+        return removeIf(set::contains);
+    }
+
+    /**
+     * Quita las canciones que cumplen la condición
+     *
+     * @return cantidad de canciones quitadas
+     */
+    public int removeIf(Predicate<? super Song> filter) {
+        int before = songs.size();
+        songs.removeIf(filter);
+        return before - songs.size();
+    }
+
+    /**
+     * Mueve el tramo [from, to) para que empiece en target (posición en la
+     * lista resultante). La canción actual sigue siendo la misma.
+     */
+    public void moveRange(int from, int to, int target) {
+        songs.moveRange(from, to, target);
+    }
+
+    /**
+     * Reemplaza cada canción por el resultado de la función (ej: una versión
+     * con metadatos releídos). Solo las posiciones que cambian se notifican.
+     */
+    public void replaceAll(UnaryOperator<Song> operator) {
+        songs.replaceAll(operator);
+    }
+
+    // ========== ALEATORIO Y REPETICIÓN ==========
+
+    /**
+     * Activa o desactiva el orden aleatorio sin modificar la lista.
+     * Al activarlo la canción actual queda primera y el resto se mezcla (Fisher-Yates).
+     */
+    public void setShuffle(boolean enabled) {
+        if (enabled == shuffle) {
+            return;
+        }
+        shuffle = enabled;
+        nextRoundFirst = -1;
+        if (enabled) {
+            buildShuffleOrder();
+        } else {
+            order = new int[0];
+            positions = new int[0];
+            orderPos = -1;
+        }
+    }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    public void setRepeatMode(RepeatMode mode) {
+        this.repeatMode = mode == null ? RepeatMode.OFF : mode;
+    }
+
+    public RepeatMode getRepeatMode() {
+        return repeatMode;
     }
 
     // ========== NAVEGACIÓN ==========
@@ -95,38 +203,82 @@ public class Playlist {
     }
 
     /**
-     * Avanza a la siguiente canción
-     * 
+     * Avanza a la siguiente canción del orden de reproducción.
+     * Con repetición, al final vuelve al principio (con aleatorio, en un orden nuevo).
+     *
      * @return true si se pudo avanzar
      */
     public boolean next() {
-        if (currentIndex < songs.size() - 1) {
-            currentIndex++;
-            return true;
+        int size = songs.size();
+        int position = playPosition();
+        if (position < size - 1) {
+            position++;
+        } else if (repeatMode != RepeatMode.OFF && size > 0) {
+            if (shuffle) {
+                startNewRound();
+            }
+            position = 0;
+        } else {
+            return false;
+        }
+        moveTo(position);
+        return true;
+    }
+
+    /**
+     * Canción a la que pasaría {@link #next()}, sin moverse (null si no hay siguiente).
+     * Al final de una vuelta aleatoria con repetición sortea ya la primera
+     * canción de la vuelta nueva, y next() la respeta.
+     */
+    public Song peekNext() {
+        int size = songs.size();
+        int position = playPosition();
+        if (position < size - 1) {
+            return songs.get(shuffle ? order[position + 1] : position + 1);
         }
-        return false;
+        if (repeatMode != RepeatMode.OFF && size > 0) {
+            return songs.get(shuffle ? drawNextRoundFirst() : 0);
+        }
+        return null;
     }
 
     /**
-     * Retrocede a la canción anterior
-     * 
+     * Retrocede a la canción anterior del orden de reproducción
+     *
      * @return true si se pudo retroceder
      */
     public boolean previous() {
-        if (currentIndex > 0) {
-            currentIndex--;
-            return true;
+        int size = songs.size();
+        int position = playPosition();
+        if (position > 0) {
+            position--;
+        } else if (repeatMode != RepeatMode.OFF && size > 0) {
+            position = size - 1;
+        } else {
+            return false;
         }
-        return false;
+        moveTo(position);
+        return true;
     }
 
     /**
-     * Salta a un índice específico
+     * Salta a un índice específico.
+     * Con aleatorio, la canción elegida pasa a ser la siguiente del orden,
+     * así lo ya escuchado queda atrás y lo pendiente no se repite.
      */
     public void goToIndex(int index) {
-        if (index >= 0 && index < songs.size()) {
-            currentIndex = index;
+        if (index < 0 || index >= songs.size()) {
+            return;
         }
+        if (shuffle) {
+            int position = positions[index];
+            if (position > orderPos) {
+                swapOrder(position, ++orderPos);
+            } else if (position < orderPos) {
+                swapOrder(position, orderPos);
+            }
+        }
+        currentIndex = index;
     }
 
     // ========== GETTERS ==========
@@ -156,16 +308,288 @@ public class Playlist {
     }
 
     /**
-     * Verifica si hay una canción siguiente
+     * Verifica si hay una canción siguiente (considerando la repetición)
      */
     public boolean hasNext() {
-        return currentIndex < songs.size() - 1;
+        return !songs.isEmpty() && (playPosition() < songs.size() - 1 || repeatMode != RepeatMode.OFF);
     }
 
     /**
-     * Verifica si hay una canción anterior
+     * Verifica si hay una canción anterior (considerando la repetición)
      */
     public boolean hasPrevious() {
-        return currentIndex > 0;
+        return !songs.isEmpty() && (playPosition() > 0 || repeatMode != RepeatMode.OFF);
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Posición de la canción actual dentro del orden de reproducción
+     */
+    private int playPosition() {
+        return shuffle ? orderPos : currentIndex;
+    }
+
+    private void moveTo(int position) {
+        if (shuffle) {
+            orderPos = position;
+            currentIndex = order[position];
+        } else {
+            currentIndex = position;
+        }
+    }
+
+    /**
+     * Orden aleatorio nuevo con la canción actual al principio
+     */
+    private void buildShuffleOrder() {
+        int size = songs.size();
+        order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int first = 0;
+        if (currentIndex >= 0 && currentIndex < size) {
+            order[0] = currentIndex;
+            order[currentIndex] = 0;
+            first = 1;
+        }
+        shuffleRange(first);
+        orderPos = size == 0 ? -1 : 0;
+        nextRoundFirst = -1;
+        rebuildPositions();
+    }
+
+    /**
+     * Nueva vuelta con repetición: se mezcla todo, evitando repetir seguida la última canción
+     */
+    private void startNewRound() {
+        int last = currentIndex;
+        int first = nextRoundFirst;
+        nextRoundFirst = -1;
+        shuffleRange(0);
+        if (first >= 0 && (first != last || order.length == 1)) {
+            // Respeta la que ya anticipó peekNext (y quizá ya se precargó)
+            for (int i = 0; i < order.length; i++) {
+                if (order[i] == first) {
+                    order[i] = order[0];
+                    order[0] = first;
+                    break;
+                }
+            }
+        } else if (order.length > 1 && order[0] == last) {
+            int other = 1 + random.nextInt(order.length - 1);
+            order[0] = order[other];
+            order[other] = last;
+        }
+        rebuildPositions();
+    }
+
+    /**
+     * Sortea (una sola vez) la primera canción de la próxima vuelta, distinta de la actual
+     */
+    private int drawNextRoundFirst() {
+        int size = songs.size();
+        if (nextRoundFirst < 0 || nextRoundFirst >= size || (nextRoundFirst == currentIndex && size > 1)) {
+            if (size == 1 || currentIndex < 0) {
+                nextRoundFirst = random.nextInt(size);
+            } else {
+                int index = random.nextInt(size - 1);
+                nextRoundFirst = index >= currentIndex ? index + 1 : index;
+            }
+        }
+        return nextRoundFirst;
+    }
+
+    /**
+     * Fisher-Yates sobre order[from..]
+     */
+    private void shuffleRange(int from) {
+        for (int i = order.length - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    private void swapOrder(int a, int b) {
+        int tmp = order[a];
+        order[a] = order[b];
+        order[b] = tmp;
+        positions[order[a]] = a;
+        positions[order[b]] = b;
+    }
+
+    private void rebuildPositions() {
+        if (positions.length != order.length) {
+            positions = new int[order.length];
+        }
+        for (int i = 0; i < order.length; i++) {
+            positions[order[i]] = i;
+        }
+    }
+
+    /**
+     * Ajusta la canción actual y el orden aleatorio a los cambios de la lista.
+     * Un cambio masivo puede traer miles de sub-cambios: se traducen todos los
+     * índices viejos en una sola pasada (búsqueda binaria por sub-cambio).
+     */
+    private void onSongsChanged(ListChangeListener.Change<? extends Song> change) {
+        IntList oldStarts = new IntList();   // Inicio de cada sub-cambio en índices viejos
+        IntList removedSizes = new IntList();
+        IntList newStarts = new IntList();   // Inicio en índices nuevos (donde quedan las altas)
+        IntList addedSizes = new IntList();
+        IntList shiftsAfter = new IntList(); // Desplazamiento acumulado al terminar cada sub-cambio
+        int shift = 0;
+        boolean structural = false;
+
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                structural = true;
+                if (currentIndex >= change.getFrom() && currentIndex < change.getTo()) {
+                    currentIndex = change.getPermutation(currentIndex);
+                }
+                if (nextRoundFirst >= change.getFrom() && nextRoundFirst < change.getTo()) {
+                    nextRoundFirst = change.getPermutation(nextRoundFirst);
+                }
+                for (int i = 0; i < order.length; i++) {
+                    if (order[i] >= change.getFrom() && order[i] < change.getTo()) {
+                        order[i] = change.getPermutation(order[i]);
+                    }
+                }
+            } else if (!change.wasUpdated()) {
+                structural = true;
+                oldStarts.add(change.getFrom() - shift);
+                removedSizes.add(change.getRemovedSize());
+                newStarts.add(change.getFrom());
+                addedSizes.add(change.getAddedSize());
+                shift += change.getAddedSize() - change.getRemovedSize();
+                shiftsAfter.add(shift);
+            }
+        }
+        if (!structural) {
+            return;
+        }
+
+        if (!oldStarts.isEmpty()) {
+            ChangeMap map = new ChangeMap(oldStarts, removedSizes, newStarts, shiftsAfter);
+            if (nextRoundFirst >= 0) {
+                // Si se quitó, se sortea otra al volver a anticipar
+                nextRoundFirst = map.survivorIndexOf(nextRoundFirst);
+            }
+            if (shuffle) {
+                remapOrder(map, newStarts, addedSizes);
+            } else if (currentIndex >= 0) {
+                currentIndex = map.newIndexOf(currentIndex);
+            }
+        }
+
+        if (shuffle) {
+            rebuildPositions();
+        }
+        if (songs.isEmpty()) {
+            currentIndex = -1;
+            orderPos = -1;
+        } else if (shuffle && orderPos < 0) {
+            moveTo(0);
+        } else if (currentIndex < 0) {
+            currentIndex = 0;
+        }
+    }
+
+    /**
+     * Traduce el orden aleatorio: descarta las quitadas, reindexa las que quedan
+     * y reparte las nuevas al azar entre las pendientes (Fisher-Yates "inside-out")
+     */
+    private void remapOrder(ChangeMap map, IntList newStarts, IntList addedSizes) {
+        int kept = 0;
+        int keptUpToCurrent = 0;
+        for (int i = 0; i < order.length; i++) {
+            int index = map.survivorIndexOf(order[i]);
+            if (index < 0) {
+                continue;
+            }
+            order[kept++] = index;
+            if (i <= orderPos) {
+                keptUpToCurrent++;
+            }
+        }
+        orderPos = keptUpToCurrent - 1;
+
+        int added = 0;
+        for (int c = 0; c < addedSizes.size(); c++) {
+            added += addedSizes.get(c);
+        }
+        int length = kept;
+        order = Arrays.copyOf(order, kept + added);
+        for (int c = 0; c < newStarts.size(); c++) {
+            int from = newStarts.get(c);
+            for (int i = 0; i < addedSizes.get(c); i++, length++) {
+                int j = orderPos + 1 + random.nextInt(length - orderPos);
+                order[length] = order[j];
+                order[j] = from + i;
+            }
+        }
+        currentIndex = orderPos >= 0 ? order[orderPos] : -1;
+    }
+
+    /**
+     * Traducción de índices viejos a nuevos para un cambio con varios sub-cambios
+     */
+    private static final class ChangeMap {
+        private final IntList oldStarts;
+        private final IntList removedSizes;
+        private final IntList newStarts;
+        private final IntList shiftsAfter;
+
+        private ChangeMap(IntList oldStarts, IntList removedSizes, IntList newStarts, IntList shiftsAfter) {
+            this.oldStarts = oldStarts;
+            this.removedSizes = removedSizes;
+            this.newStarts = newStarts;
+            this.shiftsAfter = shiftsAfter;
+        }
+
+        /**
+         * Último sub-cambio que empieza en o antes del índice viejo (-1 si ninguno)
+         */
+        private int changeAt(int oldIndex) {
+            int low = 0;
+            int high = oldStarts.size() - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (oldStarts.get(mid) <= oldIndex) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Índice nuevo, o -1 si el elemento fue quitado
+         */
+        int survivorIndexOf(int oldIndex) {
+            int c = changeAt(oldIndex);
+            if (c < 0) {
+                return oldIndex;
+            }
+            if (oldIndex < oldStarts.get(c) + removedSizes.get(c)) {
+                return -1;
+            }
+            return oldIndex + shiftsAfter.get(c);
+        }
+
+        /**
+         * Índice nuevo; si el elemento fue quitado, el anterior a donde estaba:
+         * así next() sigue con la canción que venía después
+         */
+        int newIndexOf(int oldIndex) {
+            int index = survivorIndexOf(oldIndex);
+            return index >= 0 ? index : newStarts.get(changeAt(oldIndex)) - 1;
+        }
     }
 }
@@ -0,0 +1,151 @@
+package com.audioflow.model;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableMap;
+
+import java.util.Objects;
+
+/**
+ * Totales de una playlist mantenidos incrementalmente: cantidad de
+ * canciones, duración total, canciones sin duración conocida y cantidad de
+ * canciones por artista y por álbum.
+ *
+ * Cada alta, baja o cambio de metadatos los ajusta en O(1), sin recorrer la
+ * lista (también cuando la duración llega después, al cargar el archivo).
+ *
+ * Los totales escalares se publican al terminar cada cambio de la lista,
+ * así quien los observa los ve consistentes entre sí. Los mapas por artista
+ * y álbum se actualizan en el momento.
+ */
+public class PlaylistStats {
+
+    // Acumuladores (al día durante un cambio en curso)
+    private int count;
+    private long totalMillis;
+    private int unknownDurationCount;
+
+    private final ReadOnlyIntegerWrapper countProperty = new ReadOnlyIntegerWrapper(this, "count");
+    private final ReadOnlyLongWrapper totalMillisProperty = new ReadOnlyLongWrapper(this, "totalMillis");
+    private final ReadOnlyIntegerWrapper unknownDurationProperty = new ReadOnlyIntegerWrapper(this,
+            "unknownDurationCount");
+
+    private final ObservableMap<String, Integer> artistCounts = FXCollections.observableHashMap();
+    private final ObservableMap<String, Integer> albumCounts = FXCollections.observableHashMap();
+    private final ObservableMap<String, Integer> artistCountsView = FXCollections
+            .unmodifiableObservableMap(artistCounts);
+    private final ObservableMap<String, Integer> albumCountsView = FXCollections
+            .unmodifiableObservableMap(albumCounts);
+
+    PlaylistStats() {
+        // Lo crea la lista de canciones de la playlist
+    }
+
+    // ========== VALORES OBSERVABLES ==========
+
+    public ReadOnlyIntegerProperty countProperty() {
+        return countProperty.getReadOnlyProperty();
+    }
+
+    public ReadOnlyLongProperty totalMillisProperty() {
+        return totalMillisProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Canciones cuya duración todavía no se conoce (no suman al total)
+     */
+    public ReadOnlyIntegerProperty unknownDurationCountProperty() {
+        return unknownDurationProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Cantidad de canciones por artista (solo lectura)
+     */
+    public ObservableMap<String, Integer> getArtistCounts() {
+        return artistCountsView;
+    }
+
+    /**
+     * Cantidad de canciones por álbum (solo lectura)
+     */
+    public ObservableMap<String, Integer> getAlbumCounts() {
+        return albumCountsView;
+    }
+
+    public int getCount() {
+        return countProperty.get();
+    }
+
+    public long getTotalMillis() {
+        return totalMillisProperty.get();
+    }
+
+    public int getUnknownDurationCount() {
+        return unknownDurationProperty.get();
+    }
+
+    // ========== ACTUALIZACIÓN (desde SongList) ==========
+
+    /**
+     * Suma (times = 1) o resta (times = -1) una aparición con estos valores
+     */
+    void apply(long durationMillis, String artist, String album, int times) {
+        count += times;
+        if (durationMillis > 0) {
+            totalMillis += durationMillis * times;
+        } else {
+            unknownDurationCount += times;
+        }
+        adjust(artistCounts, artist, times);
+        adjust(albumCounts, album, times);
+    }
+
+    /**
+     * Reemplaza los valores de una canción que aparece {@code times} veces.
+     * Solo toca lo que cambió: editar la duración no altera los mapas.
+     */
+    void change(long oldMillis, String oldArtist, String oldAlbum,
+            long newMillis, String newArtist, String newAlbum, int times) {
+        if (oldMillis != newMillis) {
+            if (oldMillis > 0) {
+                totalMillis -= oldMillis * times;
+            } else {
+                unknownDurationCount -= times;
+            }
+            if (newMillis > 0) {
+                totalMillis += newMillis * times;
+            } else {
+                unknownDurationCount += times;
+            }
+        }
+        if (!Objects.equals(oldArtist, newArtist)) {
+            adjust(artistCounts, oldArtist, -times);
+            adjust(artistCounts, newArtist, times);
+        }
+        if (!Objects.equals(oldAlbum, newAlbum)) {
+            adjust(albumCounts, oldAlbum, -times);
+            adjust(albumCounts, newAlbum, times);
+        }
+    }
+
+    /**
+     * Publica los totales acumulados en las propiedades
+     */
+    void publish() {
+        countProperty.set(count);
+        totalMillisProperty.set(totalMillis);
+        unknownDurationProperty.set(unknownDurationCount);
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static void adjust(ObservableMap<String, Integer> counts, String key, int delta) {
+        if (key == null) {
+            return;
+        }
+        counts.merge(key, delta, (current, d) -> current + d == 0 ? null : current + d);
+    }
+}
@@ -0,0 +1,71 @@
+package com.audioflow.model;
+
+/**
+ * Resumen liviano de una playlist guardada.
+ * Contiene solo nombre, cantidad de canciones y duración total, para poder
+ * listar las playlists sin materializar (ni leer metadatos de) sus canciones.
+ */
+public class PlaylistSummary {
+
+    private String name;
+    private int songCount;
+    private long totalDurationMillis;
+
+    public PlaylistSummary(String name, int songCount, long totalDurationMillis) {
+        this.name = name;
+        this.songCount = songCount;
+        this.totalDurationMillis = totalDurationMillis;
+    }
+
+    /**
+     * Crea un resumen a partir de una playlist ya cargada
+     */
+    public static PlaylistSummary of(Playlist playlist) {
+        PlaylistSummary summary = new PlaylistSummary(playlist.getName(), 0, 0);
+        summary.update(playlist);
+        return summary;
+    }
+
+    /**
+     * Toma cantidad y duración de una playlist ya cargada (de sus totales, sin recorrerla)
+     */
+    public void update(Playlist playlist) {
+        this.name = playlist.getName();
+        this.songCount = playlist.size();
+        this.totalDurationMillis = playlist.getStats().getTotalMillis();
+    }
+
+    // ========== GETTERS & SETTERS ==========
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getSongCount() {
+        return songCount;
+    }
+
+    public long getTotalDurationMillis() {
+        return totalDurationMillis;
+    }
+
+    /**
+     * Formatea la duración total como "X min" o "X hr Y min"
+     */
+    public String getFormattedDuration() {
+        long mins = totalDurationMillis / 60_000;
+        if (mins < 60) {
+            return mins + " min";
+        }
+        return (mins / 60) + " hr " + (mins % 60) + " min";
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + songCount + ")";
+    }
+}
@@ -0,0 +1,13 @@
+package com.audioflow.model;
+
+/**
+ * Modo de repetición de una playlist.
+ */
+public enum RepeatMode {
+    /** Se detiene al terminar la última canción */
+    OFF,
+    /** Vuelve a empezar la lista (con aleatorio, en un orden nuevo) */
+    ALL,
+    /** Repite la canción actual al terminar */
+    ONE
+}
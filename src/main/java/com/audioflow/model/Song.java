@@ -1,36 +1,87 @@
 package com.audioflow.model;
 
+import com.audioflow.util.DirectoryTable;
+import com.audioflow.util.StringPool;
+import com.audioflow.util.TextNormalizer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.*;
 import javafx.scene.image.Image;
 import javafx.util.Duration;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 /**
  * Modelo que representa una canción en la aplicación.
- * Usa propiedades JavaFX para binding reactivo con la UI.
+ *
+ * Los datos se guardan en campos simples (la duración como milisegundos) y
+ * las propiedades JavaFX se crean recién cuando una celda o un binding las
+ * pide. Una biblioteca de 100k canciones no paga ocho propiedades y un
+ * {@link Duration} por canción.
+ *
+ * La canción es observable: avisa a sus listeners cuando cambia un metadato
+ * (título, artista, álbum, duración, calificación o estadísticas de
+ * reproducción), así las listas se enteran sin crear las propiedades.
+ *
+ * Artista, álbum y sus claves salen de un {@link StringPool}, y la ruta se
+ * guarda como (directorio, nombre de archivo) con el directorio en una
+ * {@link DirectoryTable}: los textos repetidos se guardan una sola vez.
  */
-public class Song {
+public class Song implements Observable {
+
+    // Valores por defecto cuando el archivo no trae etiquetas
+    public static final String UNKNOWN_TITLE = "Canción Desconocida";
+    public static final String UNKNOWN_ARTIST = "Artista Desconocido";
+    public static final String UNKNOWN_ALBUM = "Álbum Desconocido";
+
+    private static final InvalidationListener[] NO_LISTENERS = new InvalidationListener[0];
+
+    // Id estable asignado por el LibraryRegistry (0 = no registrada)
+    private long id;
+
+    // Datos (siempre al día, aunque exista la propiedad)
+    private String title;
+    private String artist;
+    private String album;
+    private long durationMillis; // 0 = desconocida
+    private int directoryId;
+    private String fileName;
+    private Image albumArt;
+    private byte rating; // 0-5 estrellas
+
+    // Estadísticas (milisegundos desde epoch; 0 = desconocido / nunca)
+    private long addedAt;
+    private long lastPlayed;
+    private int playCount;
+
+    // Claves de búsqueda plegadas (sin tildes, minúsculas), recalculadas al cambiar el texto
+    private String titleKey, artistKey, albumKey;
 
-    private final StringProperty title;
-    private final StringProperty artist;
-    private final StringProperty album;
-    private final ObjectProperty<Duration> duration;
-    private final StringProperty filePath;
-    private final ObjectProperty<Image> albumArt;
-    private final BooleanProperty playing;
-    private final IntegerProperty rating; // 0-5 estrellas
+    // Propiedades JavaFX, creadas a pedido
+    private Properties properties;
+    private InvalidationListener[] listeners = NO_LISTENERS;
 
     /**
      * Constructor completo
      */
     public Song(String title, String artist, String album, Duration duration, String filePath) {
-        this.title = new SimpleStringProperty(title);
-        this.artist = new SimpleStringProperty(artist);
-        this.album = new SimpleStringProperty(album);
-        this.duration = new SimpleObjectProperty<>(duration);
-        this.filePath = new SimpleStringProperty(filePath);
-        this.albumArt = new SimpleObjectProperty<>();
-        this.playing = new SimpleBooleanProperty(false);
-        this.rating = new SimpleIntegerProperty(0);
+        this(title, artist, album, millisOf(duration), filePath);
+    }
+
+    /**
+     * Constructor con la duración en milisegundos (sin crear un {@link Duration})
+     */
+    public Song(String title, String artist, String album, long durationMillis, String filePath) {
+        StringPool pool = StringPool.shared();
+        this.title = title;
+        this.artist = pool.intern(artist);
+        this.album = pool.intern(album);
+        this.durationMillis = Math.max(0, durationMillis);
+        this.titleKey = TextNormalizer.fold(title);
+        this.artistKey = pool.intern(TextNormalizer.fold(artist));
+        this.albumKey = pool.intern(TextNormalizer.fold(album));
+        applyFilePath(filePath);
     }
 
     /**
@@ -38,129 +89,348 @@ public class Song {
      */
     public Song(String title, String artist, String album, Duration duration, String filePath, Image albumArt) {
         this(title, artist, album, duration, filePath);
-        this.albumArt.set(albumArt);
+        this.albumArt = albumArt;
     }
 
     /**
      * Constructor simplificado (útil para drag & drop)
      */
     public Song(String filePath) {
-        this("Canción Desconocida", "Artista Desconocido", "Álbum Desconocido", Duration.ZERO, filePath);
+        this(UNKNOWN_TITLE, UNKNOWN_ARTIST, UNKNOWN_ALBUM, 0L, filePath);
         // Extraer nombre del archivo como título temporal
-        String fileName = filePath.substring(filePath.lastIndexOf("\\") + 1);
-        fileName = fileName.substring(0, fileName.lastIndexOf("."));
-        this.title.set(fileName);
+        int dot = fileName.lastIndexOf('.');
+        setTitle(dot > 0 ? fileName.substring(0, dot) : fileName);
     }
 
     // ========== GETTERS ==========
 
+    /**
+     * Id estable del archivo en el {@link LibraryRegistry} (0 si no está registrada)
+     */
+    public long getId() {
+        return id;
+    }
+
     public String getTitle() {
-        return title.get();
+        return title;
     }
 
     public String getArtist() {
-        return artist.get();
+        return artist;
     }
 
     public String getAlbum() {
-        return album.get();
+        return album;
     }
 
     public Duration getDuration() {
-        return duration.get();
+        return durationMillis == 0 ? Duration.ZERO : Duration.millis(durationMillis);
     }
 
+    /**
+     * Duración en milisegundos (0 si es desconocida)
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Ruta completa (se arma con el directorio y el nombre de archivo)
+     */
     public String getFilePath() {
-        return filePath.get();
+        return DirectoryTable.shared().directory(directoryId).concat(fileName);
     }
 
-    public Image getAlbumArt() {
-        return albumArt.get();
+    /**
+     * Nombre del archivo, sin el directorio
+     */
+    public String getFileName() {
+        return fileName;
     }
 
-    public boolean isPlaying() {
-        return playing.get();
+    /**
+     * Id del directorio en {@link DirectoryTable#shared()}
+     */
+    public int getDirectoryId() {
+        return directoryId;
+    }
+
+    public Image getAlbumArt() {
+        return albumArt;
     }
 
     public int getRating() {
-        return rating.get();
+        return rating;
+    }
+
+    /**
+     * Momento en que entró a la biblioteca (0 si se desconoce)
+     */
+    public long getAddedAt() {
+        return addedAt;
+    }
+
+    /**
+     * Última vez que se reprodujo (0 si nunca)
+     */
+    public long getLastPlayed() {
+        return lastPlayed;
+    }
+
+    public int getPlayCount() {
+        return playCount;
     }
 
     // ========== SETTERS ==========
+    // Si la propiedad ya existe se escribe a través de ella, para avisar a sus observadores
 
     public void setTitle(String value) {
-        title.set(value);
+        if (properties != null && properties.title != null) {
+            properties.title.set(value);
+        } else if (!Objects.equals(title, value)) {
+            applyTitle(value);
+        }
     }
 
     public void setArtist(String value) {
-        artist.set(value);
+        if (properties != null && properties.artist != null) {
+            properties.artist.set(value);
+        } else if (!Objects.equals(artist, value)) {
+            applyArtist(value);
+        }
     }
 
     public void setAlbum(String value) {
-        album.set(value);
+        if (properties != null && properties.album != null) {
+            properties.album.set(value);
+        } else if (!Objects.equals(album, value)) {
+            applyAlbum(value);
+        }
     }
 
     public void setDuration(Duration value) {
-        duration.set(value);
+        if (properties != null && properties.duration != null) {
+            properties.duration.set(value);
+        } else {
+            applyDuration(millisOf(value));
+        }
     }
 
     public void setFilePath(String value) {
-        filePath.set(value);
+        if (properties != null && properties.filePath != null) {
+            properties.filePath.set(value);
+        } else {
+            applyFilePath(value);
+        }
     }
 
     public void setAlbumArt(Image value) {
-        albumArt.set(value);
+        if (properties != null && properties.albumArt != null) {
+            properties.albumArt.set(value);
+        } else {
+            albumArt = value;
+        }
     }
 
-    public void setPlaying(boolean value) {
-        playing.set(value);
+    public void setRating(int value) {
+        int clamped = Math.max(0, Math.min(5, value)); // Limitar a 0-5
+        if (properties != null && properties.rating != null) {
+            properties.rating.set(clamped);
+        } else if (rating != clamped) {
+            rating = (byte) clamped;
+            fireMetadataChanged();
+        }
     }
 
-    public void setRating(int value) {
-        rating.set(Math.max(0, Math.min(5, value))); // Limitar a 0-5
+    void assignId(long id) {
+        this.id = id;
+    }
+
+    public void setAddedAt(long value) {
+        if (addedAt != value) {
+            addedAt = value;
+            fireMetadataChanged();
+        }
+    }
+
+    public void setLastPlayed(long value) {
+        if (lastPlayed != value) {
+            lastPlayed = value;
+            fireMetadataChanged();
+        }
+    }
+
+    public void setPlayCount(int value) {
+        int count = Math.max(0, value);
+        if (playCount != count) {
+            playCount = count;
+            fireMetadataChanged();
+        }
+    }
+
+    /**
+     * Registra una reproducción: suma una al contador y actualiza la última
+     * vez (una sola notificación)
+     */
+    public void recordPlay(long when) {
+        playCount++;
+        lastPlayed = when;
+        fireMetadataChanged();
     }
 
-    // ========== PROPIEDADES (para binding) ==========
+    // ========== PROPIEDADES (para binding, creadas a pedido) ==========
 
     public StringProperty titleProperty() {
-        return title;
+        Properties p = properties();
+        if (p.title == null) {
+            p.title = new SimpleStringProperty(this, "title", title) {
+                @Override
+                protected void invalidated() {
+                    applyTitle(get());
+                }
+            };
+        }
+        return p.title;
     }
 
     public StringProperty artistProperty() {
-        return artist;
+        Properties p = properties();
+        if (p.artist == null) {
+            p.artist = new SimpleStringProperty(this, "artist", artist) {
+                @Override
+                protected void invalidated() {
+                    applyArtist(get());
+                }
+            };
+        }
+        return p.artist;
     }
 
     public StringProperty albumProperty() {
-        return album;
+        Properties p = properties();
+        if (p.album == null) {
+            p.album = new SimpleStringProperty(this, "album", album) {
+                @Override
+                protected void invalidated() {
+                    applyAlbum(get());
+                }
+            };
+        }
+        return p.album;
     }
 
     public ObjectProperty<Duration> durationProperty() {
-        return duration;
+        Properties p = properties();
+        if (p.duration == null) {
+            p.duration = new SimpleObjectProperty<>(this, "duration", getDuration()) {
+                @Override
+                protected void invalidated() {
+                    applyDuration(millisOf(get()));
+                }
+            };
+        }
+        return p.duration;
     }
 
     public StringProperty filePathProperty() {
-        return filePath;
+        Properties p = properties();
+        if (p.filePath == null) {
+            p.filePath = new SimpleStringProperty(this, "filePath", getFilePath()) {
+                @Override
+                protected void invalidated() {
+                    applyFilePath(get());
+                }
+            };
+        }
+        return p.filePath;
     }
 
     public ObjectProperty<Image> albumArtProperty() {
-        return albumArt;
+        Properties p = properties();
+        if (p.albumArt == null) {
+            p.albumArt = new SimpleObjectProperty<>(this, "albumArt", albumArt) {
+                @Override
+                protected void invalidated() {
+                    albumArt = get();
+                }
+            };
+        }
+        return p.albumArt;
     }
 
-    public BooleanProperty playingProperty() {
-        return playing;
+    public IntegerProperty ratingProperty() {
+        Properties p = properties();
+        if (p.rating == null) {
+            p.rating = new SimpleIntegerProperty(this, "rating", rating) {
+                @Override
+                protected void invalidated() {
+                    int clamped = Math.max(0, Math.min(5, get()));
+                    if (clamped != get()) {
+                        set(clamped);
+                        return;
+                    }
+                    rating = (byte) clamped;
+                    fireMetadataChanged();
+                }
+            };
+        }
+        return p.rating;
     }
 
-    public IntegerProperty ratingProperty() {
-        return rating;
+    // ========== CLAVES DE BÚSQUEDA ==========
+
+    /**
+     * Título plegado para búsqueda ("Canción" → "cancion")
+     */
+    public String getTitleKey() {
+        return titleKey;
+    }
+
+    /**
+     * Artista plegado para búsqueda
+     */
+    public String getArtistKey() {
+        return artistKey;
+    }
+
+    /**
+     * Álbum plegado para búsqueda
+     */
+    public String getAlbumKey() {
+        return albumKey;
+    }
+
+    // ========== OBSERVACIÓN DE METADATOS ==========
+
+    /**
+     * Se invoca cuando cambia título, artista, álbum, duración, calificación o
+     * alguna estadística (agregada, reproducciones). No incluye la ruta ni la
+     * carátula.
+     */
+    @Override
+    public void addListener(InvalidationListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    @Override
+    public void removeListener(InvalidationListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                InvalidationListener[] remaining = new InvalidationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                listeners = remaining.length == 0 ? NO_LISTENERS : remaining;
+                return;
+            }
+        }
     }
 
     /**
      * Formatea la duración como mm:ss
      */
     public String getFormattedDuration() {
-        if (duration.get() == null)
-            return "0:00";
-        int totalSeconds = (int) duration.get().toSeconds();
+        int totalSeconds = (int) (durationMillis / 1000);
         int minutes = totalSeconds / 60;
         int seconds = totalSeconds % 60;
         return String.format("%d:%02d", minutes, seconds);
@@ -170,4 +440,75 @@ public class Song {
     public String toString() {
         return String.format("%s - %s", getArtist(), getTitle());
     }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private void applyTitle(String value) {
+        title = value;
+        titleKey = TextNormalizer.fold(value);
+        fireMetadataChanged();
+    }
+
+    private void applyArtist(String value) {
+        artist = StringPool.shared().intern(value);
+        artistKey = StringPool.shared().intern(TextNormalizer.fold(value));
+        fireMetadataChanged();
+    }
+
+    private void applyAlbum(String value) {
+        album = StringPool.shared().intern(value);
+        albumKey = StringPool.shared().intern(TextNormalizer.fold(value));
+        fireMetadataChanged();
+    }
+
+    private void applyDuration(long millis) {
+        if (millis != durationMillis) {
+            durationMillis = millis;
+            fireMetadataChanged();
+        }
+    }
+
+    private void applyFilePath(String path) {
+        String value = path == null ? "" : path;
+        int start = DirectoryTable.fileNameStart(value);
+        directoryId = DirectoryTable.shared().idOf(value.substring(0, start));
+        fileName = value.substring(start);
+    }
+
+    private void fireMetadataChanged() {
+        // Copia local: un listener puede quitarse mientras se notifica
+        InvalidationListener[] current = listeners;
+        for (InvalidationListener listener : current) {
+            listener.invalidated(this);
+        }
+    }
+
+    private Properties properties() {
+        if (properties == null) {
+            properties = new Properties();
+        }
+        return properties;
+    }
+
+    /**
+     * Milisegundos de una duración (0 si es nula, desconocida o indefinida)
+     */
+    private static long millisOf(Duration duration) {
+        return duration == null || duration.isUnknown() || duration.isIndefinite()
+                ? 0
+                : Math.max(0, (long) duration.toMillis());
+    }
+
+    /**
+     * Propiedades creadas a pedido (un solo objeto por canción que las use)
+     */
+    private static final class Properties {
+        private StringProperty title;
+        private StringProperty artist;
+        private StringProperty album;
+        private ObjectProperty<Duration> duration;
+        private StringProperty filePath;
+        private ObjectProperty<Image> albumArt;
+        private IntegerProperty rating;
+    }
 }
@@ -0,0 +1,412 @@
+package com.audioflow.model;
+
+import com.audioflow.util.IntList;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lista observable de canciones de una {@link Playlist}.
+ *
+ * La lista de {@code FXCollections} resuelve las bajas masivas quitando de a
+ * un elemento (quitar 50k de 100k canciones tarda segundos). Aquí las
+ * operaciones masivas recorren el arreglo una sola vez y notifican un único
+ * cambio: bajas agrupadas en tramos contiguos, movimientos y ordenamientos
+ * como permutación.
+ *
+ * Los cambios de metadatos de una canción se notifican como actualización
+ * (igual que un extractor). El mapa de observadores por canción sirve además
+ * para responder {@code contains} en O(1) y para mantener los
+ * {@link PlaylistStats}: cada observador recuerda los valores que aportó.
+ *
+ * Cada observador recuerda también las posiciones de su canción, para
+ * notificar la actualización sin recorrer la lista. Agregar al final las
+ * mantiene al día; el resto de los cambios las marca vencidas y se
+ * recalculan (una pasada) recién con el próximo cambio de metadatos.
+ */
+final class SongList extends ModifiableObservableListBase<Song> {
+
+    private final ArrayList<Song> songs = new ArrayList<>();
+    private final Map<Song, SongObserver> observers = new IdentityHashMap<>();
+    private final PlaylistStats stats = new PlaylistStats();
+    private boolean positionsStale; // Las posiciones de los observadores no están al día
+
+    SongList() {
+        // Primer listener: los totales se publican antes de que el resto vea el cambio
+        addListener((InvalidationListener) observable -> stats.publish());
+    }
+
+    PlaylistStats getStats() {
+        return stats;
+    }
+
+    // ========== ACCESO ==========
+
+    @Override
+    public Song get(int index) {
+        return songs.get(index);
+    }
+
+    @Override
+    public int size() {
+        return songs.size();
+    }
+
+    /**
+     * O(1): las canciones de la lista son las que tienen observador
+     */
+    @Override
+    public boolean contains(Object song) {
+        return observers.containsKey(song);
+    }
+
+    @Override
+    public int indexOf(Object song) {
+        return contains(song) ? songs.indexOf(song) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object song) {
+        return contains(song) ? songs.lastIndexOf(song) : -1;
+    }
+
+    // ========== OPERACIONES ELEMENTALES ==========
+
+    @Override
+    protected void doAdd(int index, Song song) {
+        songs.add(index, song);
+        observe(song);
+        if (index == songs.size() - 1) {
+            appended(index);
+        } else {
+            positionsStale = true;
+        }
+    }
+
+    @Override
+    protected Song doSet(int index, Song song) {
+        Song old = songs.set(index, song);
+        unobserve(old);
+        observe(song);
+        positionsStale = true;
+        return old;
+    }
+
+    @Override
+    protected Song doRemove(int index) {
+        Song old = songs.remove(index);
+        unobserve(old);
+        positionsStale = true;
+        return old;
+    }
+
+    // ========== OPERACIONES MASIVAS ==========
+
+    @Override
+    public boolean addAll(Collection<? extends Song> added) {
+        return addAll(songs.size(), added);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Song> added) {
+        if (index < 0 || index > songs.size()) {
+            throw new IndexOutOfBoundsException("Índice " + index + ", tamaño " + songs.size());
+        }
+        if (added.isEmpty()) {
+            return false;
+        }
+        boolean append = index == songs.size();
+        songs.addAll(index, added);
+        int end = index + added.size();
+        for (int i = index; i < end; i++) {
+            observe(songs.get(i));
+            if (append) {
+                appended(i);
+            }
+        }
+        if (!append) {
+            positionsStale = true;
+        }
+        beginChange();
+        nextAdd(index, end);
+        endChange();
+        return true;
+    }
+
+    @Override
+    protected void removeRange(int from, int to) {
+        if (from < 0 || to > songs.size() || from > to) {
+            throw new IndexOutOfBoundsException("Rango " + from + ".." + to + ", tamaño " + songs.size());
+        }
+        if (from == to) {
+            return;
+        }
+        List<Song> range = songs.subList(from, to);
+        List<Song> removed = new ArrayList<>(range);
+        range.clear();
+        for (Song song : removed) {
+            unobserve(song);
+        }
+        positionsStale = true;
+        beginChange();
+        nextRemove(from, removed);
+        endChange();
+    }
+
+    @Override
+    public void clear() {
+        removeRange(0, songs.size());
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> toRemove) {
+        if (toRemove.isEmpty()) {
+            return false;
+        }
+        return removeIf(toRemove::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> toKeep) {
+        return removeIf(song -> !toKeep.contains(song));
+    }
+
+    /**
+     * Quita en una pasada las canciones que cumplen la condición.
+     * Cada tramo contiguo de bajas es un sub-cambio del mismo evento.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Song> filter) {
+        int size = songs.size();
+        int kept = 0;
+        List<Integer> runStarts = new ArrayList<>();
+        List<List<Song>> runs = new ArrayList<>();
+        List<Song> run = null;
+        for (int i = 0; i < size; i++) {
+            Song song = songs.get(i);
+            if (filter.test(song)) {
+                if (run == null) {
+                    run = new ArrayList<>();
+                    runStarts.add(kept); // Posición del tramo en la lista ya compactada
+                    runs.add(run);
+                }
+                run.add(song);
+            } else {
+                songs.set(kept++, song);
+                run = null;
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+
+        songs.subList(kept, size).clear();
+        positionsStale = true;
+        beginChange();
+        for (int r = 0; r < runs.size(); r++) {
+            for (Song song : runs.get(r)) {
+                unobserve(song);
+            }
+            nextRemove(runStarts.get(r), runs.get(r));
+        }
+        endChange();
+        return true;
+    }
+
+    /**
+     * Reemplaza cada canción por el resultado de la función. Solo las
+     * posiciones cuyo elemento cambia se notifican, todas en un mismo evento.
+     */
+    @Override
+    public void replaceAll(UnaryOperator<Song> operator) {
+        beginChange();
+        for (int i = 0; i < songs.size(); i++) {
+            Song old = songs.get(i);
+            Song replacement = operator.apply(old);
+            if (replacement != old) {
+                songs.set(i, replacement);
+                unobserve(old);
+                observe(replacement);
+                positionsStale = true;
+                nextSet(i, old);
+            }
+        }
+        endChange();
+    }
+
+    /**
+     * Mueve el tramo [from, to) para que empiece en target (posición en la
+     * lista resultante). Se notifica como permutación: no hay bajas ni altas.
+     */
+    void moveRange(int from, int to, int target) {
+        int count = to - from;
+        if (from < 0 || to > songs.size() || count < 0 || target < 0 || target > songs.size() - count) {
+            throw new IndexOutOfBoundsException("Tramo " + from + ".." + to + " a " + target
+                    + ", tamaño " + songs.size());
+        }
+        if (count == 0 || target == from) {
+            return;
+        }
+
+        int low = Math.min(from, target);
+        int high = Math.max(to, target + count);
+        int length = high - low;
+        int distance = target - from;
+        // La permutación se notifica desde 0: FilteredList (JavaFX 21) traduce
+        // mal las permutaciones que empiezan en otra posición
+        int[] permutation = new int[high];
+        for (int i = 0; i < low; i++) {
+            permutation[i] = i;
+        }
+        for (int i = 0; i < length; i++) {
+            permutation[low + i] = low + Math.floorMod(i + distance, length);
+        }
+        Collections.rotate(songs.subList(low, high), distance);
+        positionsStale = true;
+
+        beginChange();
+        nextPermutation(0, high, permutation);
+        endChange();
+    }
+
+    /**
+     * Ordena notificando una permutación (no un reemplazo por elemento)
+     */
+    @Override
+    public void sort(Comparator<? super Song> comparator) {
+        int size = songs.size();
+        if (size < 2) {
+            return;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // Ordenamiento estable de índices: tolera canciones repetidas
+        Arrays.sort(order, (a, b) -> comparator.compare(songs.get(a), songs.get(b)));
+
+        Song[] sorted = new Song[size];
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = songs.get(order[i]);
+            permutation[order[i]] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            songs.set(i, sorted[i]);
+        }
+        positionsStale = true;
+
+        beginChange();
+        nextPermutation(0, size, permutation);
+        endChange();
+    }
+
+    // ========== CAMBIOS DE METADATOS ==========
+
+    private void observe(Song song) {
+        SongObserver observer = observers.get(song);
+        if (observer == null) {
+            observer = new SongObserver(song);
+            observers.put(song, observer);
+            song.addListener(observer);
+        }
+        observer.references++;
+        observer.contribute(1);
+    }
+
+    private void unobserve(Song song) {
+        SongObserver observer = observers.get(song);
+        if (observer == null) {
+            return;
+        }
+        observer.contribute(-1);
+        if (--observer.references == 0) {
+            observers.remove(song);
+            song.removeListener(observer);
+        }
+    }
+
+    private void songChanged(SongObserver observer) {
+        Song song = observer.song;
+        // Pasar los totales de los valores anteriores a los nuevos
+        stats.change(observer.durationMillis, observer.artist, observer.album,
+                song.getDurationMillis(), song.getArtist(), song.getAlbum(), observer.references);
+        observer.snapshot();
+
+        if (positionsStale) {
+            rebuildPositions();
+        }
+        beginChange();
+        IntList positions = observer.positions;
+        for (int i = 0; i < positions.size(); i++) {
+            nextUpdate(positions.get(i));
+        }
+        endChange();
+    }
+
+    /**
+     * La canción recién agregada al final: con las posiciones al día, se suma la suya
+     */
+    private void appended(int index) {
+        if (!positionsStale) {
+            observers.get(songs.get(index)).positions.add(index);
+        }
+    }
+
+    /**
+     * Recalcula las posiciones de todas las canciones en una pasada
+     */
+    private void rebuildPositions() {
+        for (SongObserver observer : observers.values()) {
+            observer.positions.clear();
+        }
+        for (int i = 0; i < songs.size(); i++) {
+            observers.get(songs.get(i)).positions.add(i);
+        }
+        positionsStale = false;
+    }
+
+    /**
+     * Escucha los metadatos de una canción (una vez aunque esté repetida en la
+     * lista) y recuerda los valores que suma a los totales
+     */
+    private final class SongObserver implements InvalidationListener {
+        private final Song song;
+        private final IntList positions = new IntList(1); // Ascendentes; válidas si !positionsStale
+        private int references;
+        private long durationMillis;
+        private String artist;
+        private String album;
+
+        private SongObserver(Song song) {
+            this.song = song;
+            snapshot();
+        }
+
+        private void snapshot() {
+            durationMillis = song.getDurationMillis();
+            artist = song.getArtist();
+            album = song.getAlbum();
+        }
+
+        private void contribute(int times) {
+            stats.apply(durationMillis, artist, album, times);
+        }
+
+        @Override
+        public void invalidated(Observable observable) {
+            songChanged(this);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índices de facetas para navegar la biblioteca: artista → álbumes → canciones.
+ *
+ * Se mantienen incrementalmente escuchando la lista de canciones (altas, bajas y
+ * cambios de metadatos), con cantidad de canciones y duración total por
+ * faceta. Abrir una vista con miles de artistas no recorre la biblioteca: las
+ * listas ya están armadas y ordenadas.
+ *
+ * Se usa solo desde el hilo de JavaFX.
+ */
+public class LibraryFacets {
+
+    // Orden de las facetas: por clave plegada, así "Álvaro" queda junto a "Alvaro"
+    private static final Comparator<Facet> BY_KEY = Comparator.comparing((Facet f) -> f.key);
+    private static final Comparator<AlbumFacet> ALBUM_ORDER = Comparator.<AlbumFacet, String>comparing(a -> a.key)
+            .thenComparing(a -> a.artist.key);
+
+    /**
+     * Datos comunes de una faceta: nombre visible, clave y totales
+     */
+    public abstract static class Facet {
+        private final String name;
+        final String key;
+        private final ReadOnlyIntegerWrapper songCount = new ReadOnlyIntegerWrapper(0);
+        private final ReadOnlyLongWrapper totalDurationMillis = new ReadOnlyLongWrapper(0);
+
+        private Facet(String name, String key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        void adjust(int songs, long millis) {
+            songCount.set(songCount.get() + songs);
+            totalDurationMillis.set(totalDurationMillis.get() + millis);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSongCount() {
+            return songCount.get();
+        }
+
+        public ReadOnlyIntegerProperty songCountProperty() {
+            return songCount.getReadOnlyProperty();
+        }
+
+        public long getTotalDurationMillis() {
+            return totalDurationMillis.get();
+        }
+
+        public ReadOnlyLongProperty totalDurationMillisProperty() {
+            return totalDurationMillis.getReadOnlyProperty();
+        }
+
+        /**
+         * Duración total legible (ej: "45 min", "2 hr 5 min")
+         */
+        public String getFormattedDuration() {
+            long mins = totalDurationMillis.get() / 60_000;
+            if (mins < 60) {
+                return mins + " min";
+            }
+            return (mins / 60) + " hr " + (mins % 60) + " min";
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + songCount.get() + ")";
+        }
+    }
+
+    /**
+     * Un artista con sus álbumes
+     */
+    public static final class ArtistFacet extends Facet {
+        private final Map<String, AlbumFacet> albumsByKey = new HashMap<>();
+        private final ObservableList<AlbumFacet> albums = FXCollections.observableArrayList();
+
+        private ArtistFacet(String name, String key) {
+            super(name, key);
+        }
+
+        /**
+         * Álbumes del artista, ordenados por nombre
+         */
+        public ObservableList<AlbumFacet> getAlbums() {
+            return FXCollections.unmodifiableObservableList(albums);
+        }
+    }
+
+    /**
+     * Un álbum (de un artista) con sus canciones en orden de llegada
+     */
+    public static final class AlbumFacet extends Facet {
+        private final ArtistFacet artist;
+        private final ObservableList<Song> songs = FXCollections.observableArrayList();
+
+        private AlbumFacet(String name, String key, ArtistFacet artist) {
+            super(name, key);
+            this.artist = artist;
+        }
+
+        public ArtistFacet getArtist() {
+            return artist;
+        }
+
+        public ObservableList<Song> getSongs() {
+            return FXCollections.unmodifiableObservableList(songs);
+        }
+    }
+
+    /**
+     * Dónde quedó contada cada canción (para descontarla aunque cambien sus datos)
+     */
+    private static final class Placement {
+        private final AlbumFacet album;
+        private final long durationMillis;
+
+        private Placement(AlbumFacet album, long durationMillis) {
+            this.album = album;
+            this.durationMillis = durationMillis;
+        }
+    }
+
+    private final Map<String, ArtistFacet> artistsByKey = new HashMap<>();
+    // Sin extractor: los totales son propiedades de cada faceta y las celdas los observan
+    private final ObservableList<ArtistFacet> artists = FXCollections.observableArrayList();
+    private final ObservableList<AlbumFacet> albums = FXCollections.observableArrayList();
+    private final Map<Song, Placement> placements = new IdentityHashMap<>();
+
+    /**
+     * Indexa el contenido actual de una lista y la sigue escuchando
+     */
+    public void attach(ObservableList<Song> list) {
+        for (Song song : list) {
+            add(song);
+        }
+        list.addListener((ListChangeListener<Song>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    continue;
+                }
+                if (change.wasUpdated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        update(list.get(i));
+                    }
+                    continue;
+                }
+                if (change.wasRemoved()) {
+                    for (Song song : change.getRemoved()) {
+                        remove(song);
+                    }
+                }
+                if (change.wasAdded()) {
+                    for (Song song : change.getAddedSubList()) {
+                        add(song);
+                    }
+                }
+            }
+        });
+    }
+
+    // ========== MANTENIMIENTO ==========
+
+    public void add(Song song) {
+        if (placements.containsKey(song)) {
+            return;
+        }
+
+        ArtistFacet artist = artistsByKey.get(song.getArtistKey());
+        if (artist == null) {
+            artist = new ArtistFacet(song.getArtist(), song.getArtistKey());
+            artistsByKey.put(artist.key, artist);
+            insertSorted(artists, artist, BY_KEY);
+        }
+
+        AlbumFacet album = artist.albumsByKey.get(song.getAlbumKey());
+        if (album == null) {
+            album = new AlbumFacet(song.getAlbum(), song.getAlbumKey(), artist);
+            artist.albumsByKey.put(album.key, album);
+            insertSorted(artist.albums, album, BY_KEY);
+            insertSorted(albums, album, ALBUM_ORDER);
+        }
+
+        long millis = song.getDurationMillis();
+        album.songs.add(song);
+        album.adjust(1, millis);
+        artist.adjust(1, millis);
+        placements.put(song, new Placement(album, millis));
+    }
+
+    public void remove(Song song) {
+        Placement placement = placements.remove(song);
+        if (placement == null) {
+            return;
+        }
+
+        AlbumFacet album = placement.album;
+        ArtistFacet artist = album.artist;
+        album.songs.remove(song);
+        album.adjust(-1, -placement.durationMillis);
+        artist.adjust(-1, -placement.durationMillis);
+
+        if (album.getSongCount() == 0) {
+            artist.albumsByKey.remove(album.key);
+            removeSorted(artist.albums, album, BY_KEY);
+            removeSorted(albums, album, ALBUM_ORDER);
+        }
+        if (artist.getSongCount() == 0) {
+            artistsByKey.remove(artist.key);
+            removeSorted(artists, artist, BY_KEY);
+        }
+    }
+
+    /**
+     * Reubica una canción cuyo artista, álbum o duración cambiaron
+     */
+    public void update(Song song) {
+        Placement placement = placements.get(song);
+        if (placement == null) {
+            add(song);
+            return;
+        }
+
+        AlbumFacet album = placement.album;
+        boolean samePlace = album.key.equals(song.getAlbumKey()) && album.artist.key.equals(song.getArtistKey());
+        long millis = song.getDurationMillis();
+        if (samePlace && millis == placement.durationMillis) {
+            return; // Cambió otro dato (título, calificación)
+        }
+        if (samePlace) {
+            long delta = millis - placement.durationMillis;
+            album.adjust(0, delta);
+            album.artist.adjust(0, delta);
+            placements.put(song, new Placement(album, millis));
+            return;
+        }
+
+        remove(song);
+        add(song);
+    }
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Artistas ordenados por nombre
+     */
+    public ObservableList<ArtistFacet> getArtists() {
+        return FXCollections.unmodifiableObservableList(artists);
+    }
+
+    /**
+     * Todos los álbumes ordenados por nombre (y artista)
+     */
+    public ObservableList<AlbumFacet> getAlbums() {
+        return FXCollections.unmodifiableObservableList(albums);
+    }
+
+    public int getArtistCount() {
+        return artists.size();
+    }
+
+    public int getAlbumCount() {
+        return albums.size();
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static <T> void insertSorted(List<T> list, T item, Comparator<? super T> order) {
+        int index = Collections.binarySearch(list, item, order);
+        list.add(index < 0 ? -index - 1 : index, item);
+    }
+
+    private static <T> void removeSorted(List<T> list, T item, Comparator<? super T> order) {
+        int index = Collections.binarySearch(list, item, order);
+        if (index >= 0 && list.get(index) == item) {
+            list.remove(index);
+        } else {
+            list.remove(item);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+import com.audioflow.util.TextNormalizer;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Campos que se pueden usar en las consultas estructuradas
+ * ({@code artist:"soda stereo"}, {@code rating>=4}, {@code duration<5m},
+ * {@code plays=0}, {@code added<30d}).
+ *
+ * Los campos de texto comparan contra las claves plegadas de la canción; los
+ * numéricos contra valores primitivos. {@code added} y {@code played} son
+ * antigüedades (tiempo transcurrido hasta ahora): su resultado cambia con el
+ * paso del tiempo aunque la canción no cambie.
+ */
+public enum QueryField {
+
+    TITLE(Song::getTitleKey, "title", "titulo", "cancion"),
+    ARTIST(Song::getArtistKey, "artist", "artista"),
+    ALBUM(Song::getAlbumKey, "album", "disco"),
+    RATING(Song::getRating, ValueType.NUMBER, "rating", "estrellas", "calificacion"),
+    DURATION(Song::getDurationMillis, ValueType.DURATION, "duration", "duracion"),
+    PLAYS(Song::getPlayCount, ValueType.NUMBER, "plays", "reproducciones"),
+    ADDED(song -> ageOf(song.getAddedAt()), ValueType.AGE, "added", "agregada"),
+    PLAYED(song -> ageOf(song.getLastPlayed()), ValueType.AGE, "played", "escuchada");
+
+    /**
+     * Cómo se interpreta el valor escrito por el usuario
+     */
+    enum ValueType {
+        TEXT,
+        NUMBER,
+        DURATION,
+        /** Tiempo transcurrido desde un instante (se escribe como una duración) */
+        AGE
+    }
+
+    private final ValueType valueType;
+    private final Function<Song, String> textColumn;
+    private final ToLongFunction<Song> numberColumn;
+    private final String[] names;
+
+    QueryField(Function<Song, String> textColumn, String... names) {
+        this.valueType = ValueType.TEXT;
+        this.textColumn = textColumn;
+        this.numberColumn = null;
+        this.names = names;
+    }
+
+    QueryField(ToLongFunction<Song> numberColumn, ValueType valueType, String... names) {
+        this.valueType = valueType;
+        this.textColumn = null;
+        this.numberColumn = numberColumn;
+        this.names = names;
+    }
+
+    /**
+     * Busca un campo por nombre (en inglés o español, sin importar tildes ni
+     * mayúsculas)
+     *
+     * @return el campo, o null si no existe
+     */
+    public static QueryField fromName(String name) {
+        String folded = TextNormalizer.fold(name);
+        for (QueryField field : values()) {
+            for (String alias : field.names) {
+                if (alias.equals(folded)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean isText() {
+        return valueType == ValueType.TEXT;
+    }
+
+    /**
+     * Indica si el valor depende del momento en que se evalúa
+     */
+    public boolean isTimeRelative() {
+        return valueType == ValueType.AGE;
+    }
+
+    ValueType getValueType() {
+        return valueType;
+    }
+
+    String textOf(Song song) {
+        return textColumn.apply(song);
+    }
+
+    long numberOf(Song song) {
+        return numberColumn.applyAsLong(song);
+    }
+
+    public String getName() {
+        return names[0];
+    }
+
+    /**
+     * Antigüedad de un instante; si es desconocido (0) se toma como infinitamente viejo
+     */
+    private static long ageOf(long timestamp) {
+        return timestamp == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - timestamp;
+    }
+}
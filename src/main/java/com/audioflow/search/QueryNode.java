@@ -0,0 +1,264 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Árbol sintáctico de una consulta estructurada.
+ * Cada nodo se compila una sola vez a un {@link Predicate} sobre canciones;
+ * los valores de la consulta ya vienen plegados o convertidos a números.
+ */
+abstract class QueryNode {
+
+    /**
+     * Operadores de comparación
+     */
+    enum Op {
+        EQUALS, NOT_EQUALS, CONTAINS, LESS, LESS_OR_EQUAL, GREATER, GREATER_OR_EQUAL
+    }
+
+    abstract Predicate<Song> compile();
+
+    /**
+     * Indica si el nodo es solo texto libre (sin campos ni operadores)
+     */
+    boolean isPlainText() {
+        return false;
+    }
+
+    /**
+     * Indica si el resultado depende del momento de evaluación (antigüedades)
+     */
+    boolean isTimeRelative() {
+        return false;
+    }
+
+    // ========== OPERADORES LÓGICOS ==========
+
+    static final class And extends QueryNode {
+        private final List<QueryNode> children;
+
+        And(List<QueryNode> children) {
+            this.children = List.copyOf(children);
+        }
+
+        @Override
+        Predicate<Song> compile() {
+            @SuppressWarnings("unchecked")
+            Predicate<Song>[] parts = children.stream().map(QueryNode::compile).toArray(Predicate[]::new);
+            return song -> {
+                for (Predicate<Song> part : parts) {
+                    if (!part.test(song)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+
+        @Override
+        boolean isPlainText() {
+            return children.stream().allMatch(QueryNode::isPlainText);
+        }
+
+        @Override
+        boolean isTimeRelative() {
+            return children.stream().anyMatch(QueryNode::isTimeRelative);
+        }
+
+        @Override
+        public String toString() {
+            return "AND" + children;
+        }
+    }
+
+    static final class Or extends QueryNode {
+        private final List<QueryNode> children;
+
+        Or(List<QueryNode> children) {
+            this.children = List.copyOf(children);
+        }
+
+        @Override
+        Predicate<Song> compile() {
+            @SuppressWarnings("unchecked")
+            Predicate<Song>[] parts = children.stream().map(QueryNode::compile).toArray(Predicate[]::new);
+            return song -> {
+                for (Predicate<Song> part : parts) {
+                    if (part.test(song)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        @Override
+        boolean isTimeRelative() {
+            return children.stream().anyMatch(QueryNode::isTimeRelative);
+        }
+
+        @Override
+        public String toString() {
+            return "OR" + children;
+        }
+    }
+
+    static final class Not extends QueryNode {
+        private final QueryNode child;
+
+        Not(QueryNode child) {
+            this.child = child;
+        }
+
+        @Override
+        Predicate<Song> compile() {
+            return child.compile().negate();
+        }
+
+        @Override
+        boolean isTimeRelative() {
+            return child.isTimeRelative();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT(" + child + ")";
+        }
+    }
+
+    // ========== HOJAS ==========
+
+    /**
+     * Texto libre: alguna palabra de título, artista o álbum empieza con él
+     */
+    static final class Text extends QueryNode {
+        private final String folded;
+
+        Text(String folded) {
+            this.folded = folded;
+        }
+
+        @Override
+        Predicate<Song> compile() {
+            String term = folded;
+            return song -> containsWordPrefix(song.getTitleKey(), term)
+                    || containsWordPrefix(song.getArtistKey(), term)
+                    || containsWordPrefix(song.getAlbumKey(), term);
+        }
+
+        @Override
+        boolean isPlainText() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "'" + folded + "'";
+        }
+    }
+
+    /**
+     * Comparación sobre un campo de texto (clave plegada)
+     */
+    static final class TextMatch extends QueryNode {
+        private final QueryField field;
+        private final Op op;
+        private final String folded;
+
+        TextMatch(QueryField field, Op op, String folded) {
+            this.field = field;
+            this.op = op;
+            this.folded = folded;
+        }
+
+        @Override
+        Predicate<Song> compile() {
+            QueryField column = field;
+            String value = folded;
+            switch (op) {
+                case EQUALS:
+                    return song -> value.equals(column.textOf(song));
+                case NOT_EQUALS:
+                    return song -> !value.equals(column.textOf(song));
+                case CONTAINS:
+                    return song -> column.textOf(song).contains(value);
+                default:
+                    throw new IllegalArgumentException("Operador no válido para " + field.getName());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + " " + op + " '" + folded + "'";
+        }
+    }
+
+    /**
+     * Comparación sobre un campo numérico (calificación, duración o antigüedad en ms)
+     */
+    static final class NumberMatch extends QueryNode {
+        private final QueryField field;
+        private final Op op;
+        private final long value;
+
+        NumberMatch(QueryField field, Op op, long value) {
+            this.field = field;
+            this.op = op;
+            this.value = value;
+        }
+
+        @Override
+        Predicate<Song> compile() {
+            QueryField column = field;
+            long v = value;
+            switch (op) {
+                case EQUALS:
+                    return song -> column.numberOf(song) == v;
+                case NOT_EQUALS:
+                    return song -> column.numberOf(song) != v;
+                case LESS:
+                    return song -> column.numberOf(song) < v;
+                case LESS_OR_EQUAL:
+                    return song -> column.numberOf(song) <= v;
+                case GREATER:
+                    return song -> column.numberOf(song) > v;
+                case GREATER_OR_EQUAL:
+                    return song -> column.numberOf(song) >= v;
+                default:
+                    throw new IllegalArgumentException("Operador no válido para " + field.getName());
+            }
+        }
+
+        @Override
+        boolean isTimeRelative() {
+            return field.isTimeRelative();
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + " " + op + " " + value;
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Indica si {@code term} aparece en {@code key} al comienzo de una palabra
+     */
+    static boolean containsWordPrefix(String key, String term) {
+        int from = 0;
+        while (true) {
+            int index = key.indexOf(term, from);
+            if (index < 0) {
+                return false;
+            }
+            if (index == 0 || !Character.isLetterOrDigit(key.charAt(index - 1))) {
+                return true;
+            }
+            from = index + 1;
+        }
+    }
+}
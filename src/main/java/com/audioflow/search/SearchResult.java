@@ -0,0 +1,52 @@
+package com.audioflow.search;
+
+import java.util.BitSet;
+
+/**
+ * Resultado de una búsqueda: ids coincidentes y su puntaje de relevancia.
+ * Inmutable una vez entregado por {@link SongSearchIndex}.
+ *
+ * Los ids valen solo en la época del índice en que se calculó; para leerlo
+ * a partir de canciones usar {@link SongSearchIndex#matches(SearchResult, com.audioflow.model.Song)}.
+ */
+public final class SearchResult {
+
+    private final BitSet matches;
+    private final float[] scores;
+    private final long epoch;
+
+    SearchResult(BitSet matches, float[] scores, long epoch) {
+        this.matches = matches;
+        this.scores = scores;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Indica si la canción con este id coincide con la consulta
+     */
+    public boolean matches(int id) {
+        return id >= 0 && matches.get(id);
+    }
+
+    /**
+     * Puntaje de relevancia (mayor es mejor), o 0 si el id no coincide
+     */
+    public float scoreOf(int id) {
+        return matches(id) && id < scores.length ? scores[id] : 0f;
+    }
+
+    public BitSet getMatches() {
+        return (BitSet) matches.clone();
+    }
+
+    /**
+     * Época de los ids del índice con la que se calculó
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public int size() {
+        return matches.cardinality();
+    }
+}
@@ -0,0 +1,110 @@
+package com.audioflow.search;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Ejecuta las búsquedas de la biblioteca (texto libre y consultas
+ * estructuradas) en un hilo en segundo plano.
+ *
+ * Cada consulta espera un breve debounce antes de ejecutarse; una nueva
+ * consulta cancela la anterior (pendiente o en curso) y solo el resultado de
+ * la última se entrega en el hilo de JavaFX. Los resultados obsoletos se
+ * descartan comparando un número de generación; si el índice renumeró sus
+ * ids mientras se buscaba (otra época), la consulta se repite sin debounce.
+ */
+public class SearchWorker {
+
+    public static final long DEFAULT_DEBOUNCE_MS = 150;
+
+    private final SongSearchIndex index;
+    private final long debounceMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "search-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ScheduledFuture<?> pending;
+
+    public SearchWorker(SongSearchIndex index) {
+        this(index, DEFAULT_DEBOUNCE_MS);
+    }
+
+    public SearchWorker(SongSearchIndex index, long debounceMillis) {
+        this.index = index;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Programa una búsqueda. Llamar desde el hilo de JavaFX.
+     *
+     * @param onResult recibe el resultado en el hilo de JavaFX, solo si
+     *                 esta sigue siendo la consulta más reciente
+     */
+    public void submit(String query, Consumer<SearchResult> onResult) {
+        schedule(cancelled -> index.search(query, cancelled), onResult, debounceMillis);
+    }
+
+    /**
+     * Programa la evaluación de una consulta estructurada sobre todas las
+     * canciones; el resultado son los ids que la cumplen (sin relevancia)
+     */
+    public void submit(SongQuery query, Consumer<SearchResult> onResult) {
+        schedule(cancelled -> index.filter(query.toPredicate(), cancelled), onResult, debounceMillis);
+    }
+
+    private void schedule(Function<BooleanSupplier, SearchResult> search, Consumer<SearchResult> onResult,
+            long delayMillis) {
+        long gen = cancelPending();
+
+        pending = executor.schedule(() -> {
+            SearchResult result = search.apply(() -> generation.get() != gen);
+            if (result == null || generation.get() != gen) {
+                return; // Llegó una consulta más nueva
+            }
+            Platform.runLater(() -> {
+                if (generation.get() != gen) {
+                    return;
+                }
+                if (index.isCurrent(result)) {
+                    onResult.accept(result);
+                } else {
+                    // El índice se compactó mientras se buscaba: los ids ya no valen
+                    schedule(search, onResult, 0);
+                }
+            });
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancela la consulta pendiente o en curso; sus resultados no se entregarán
+     *
+     * @return la nueva generación vigente
+     */
+    public long cancelPending() {
+        long gen = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        return gen;
+    }
+
+    /**
+     * Detiene el hilo de búsqueda
+     */
+    public void shutdown() {
+        cancelPending();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,174 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Playlist;
+import com.audioflow.model.Song;
+import javafx.collections.ListChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lista inteligente: una {@link Playlist} cuyos miembros son las canciones de
+ * la biblioteca que cumplen una regla ({@link SongQuery}), por ejemplo
+ * {@code rating>=4}, {@code plays=0}, {@code added<30d} o
+ * {@code artist:queen duration<4m}.
+ *
+ * La pertenencia se mantiene incrementalmente escuchando la biblioteca: las
+ * altas se evalúan al llegar, las bajas salen sin evaluar nada, y cuando una
+ * canción cambia (se califica, se reproduce, llega su duración) solo se
+ * vuelve a evaluar esa canción. Nunca se recorre la biblioteca, salvo en
+ * {@link #refresh()}.
+ *
+ * Las reglas con antigüedades ({@code added}, {@code played}) cambian de
+ * resultado con el tiempo sin que cambie ninguna canción: para esas hay que
+ * llamar a {@link #refresh()} de vez en cuando ({@link #isTimeRelative()}).
+ */
+public class SmartPlaylist {
+
+    private final Playlist members;
+    private SongQuery rule;
+    private Playlist library;
+    private final ListChangeListener<Song> libraryListener = this::onLibraryChanged;
+
+    public SmartPlaylist(String name, SongQuery rule) {
+        this.members = new Playlist(name);
+        this.rule = rule;
+    }
+
+    // ========== BIBLIOTECA ==========
+
+    /**
+     * Empieza a seguir una biblioteca (evalúa todas sus canciones una vez)
+     */
+    public void attach(Playlist library) {
+        detach();
+        this.library = library;
+        library.getSongs().addListener(libraryListener);
+        refresh();
+    }
+
+    /**
+     * Deja de seguir la biblioteca (los miembros actuales se conservan)
+     */
+    public void detach() {
+        if (library != null) {
+            library.getSongs().removeListener(libraryListener);
+            library = null;
+        }
+    }
+
+    /**
+     * Reevalúa toda la biblioteca. Necesario solo al cambiar la regla o, para
+     * reglas con antigüedades, para reflejar el paso del tiempo.
+     */
+    public void refresh() {
+        if (library == null) {
+            members.clear();
+            return;
+        }
+        Set<Song> seen = identitySet();
+        List<Song> matching = new ArrayList<>();
+        for (Song song : library.getSongs()) {
+            if (seen.add(song) && rule.matches(song)) {
+                matching.add(song);
+            }
+        }
+        members.getSongs().setAll(matching);
+    }
+
+    // ========== GETTERS & SETTERS ==========
+
+    /**
+     * Canciones que cumplen la regla (se puede reproducir como cualquier playlist)
+     */
+    public Playlist getPlaylist() {
+        return members;
+    }
+
+    public String getName() {
+        return members.getName();
+    }
+
+    public void setName(String name) {
+        members.setName(name);
+    }
+
+    public SongQuery getRule() {
+        return rule;
+    }
+
+    public void setRule(SongQuery rule) {
+        this.rule = rule;
+        refresh();
+    }
+
+    public boolean isTimeRelative() {
+        return rule.isTimeRelative();
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " [" + rule.getSource() + "]";
+    }
+
+    // ========== MANTENIMIENTO INCREMENTAL ==========
+
+    private void onLibraryChanged(ListChangeListener.Change<? extends Song> change) {
+        Set<Song> toAdd = identitySet();
+        List<Song> added = new ArrayList<>(); // En orden de llegada
+        Set<Song> toRemove = identitySet();
+
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                continue; // Reordenar la biblioteca no cambia la pertenencia
+            }
+            if (change.wasUpdated()) {
+                // Solo la canción que cambió vuelve a evaluarse
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    Song song = change.getList().get(i);
+                    boolean member = members.contains(song) || toAdd.contains(song);
+                    if (rule.matches(song)) {
+                        toRemove.remove(song);
+                        if (!member && toAdd.add(song)) {
+                            added.add(song);
+                        }
+                    } else if (member) {
+                        toRemove.add(song);
+                    }
+                }
+                continue;
+            }
+            for (Song song : change.getRemoved()) {
+                // Una canción repetida sigue siendo miembro mientras quede una copia
+                if (!library.contains(song)) {
+                    toRemove.add(song);
+                }
+            }
+            for (Song song : change.getAddedSubList()) {
+                if (!members.contains(song) && !toAdd.contains(song) && rule.matches(song)) {
+                    toAdd.add(song);
+                    added.add(song);
+                }
+            }
+        }
+
+        if (!toRemove.isEmpty()) {
+            added.removeIf(toRemove::contains);
+            members.removeAll(toRemove);
+        }
+        if (!added.isEmpty()) {
+            members.addAll(added);
+        }
+    }
+
+    private static Set<Song> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
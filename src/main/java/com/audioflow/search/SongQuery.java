@@ -0,0 +1,327 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+import com.audioflow.util.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Consulta estructurada sobre la biblioteca, compilada a un predicado.
+ *
+ * Sintaxis:
+ * <ul>
+ *   <li>{@code artist:"soda stereo"} - igualdad (sin tildes ni mayúsculas)</li>
+ *   <li>{@code album:~live} - el campo contiene el texto</li>
+ *   <li>{@code rating>=4}, {@code duration<5m} - comparaciones numéricas
+ *       ({@code = != < <= > >=}); duraciones como 90s, 5m, 3m30s, 4:30, 1h o 30d</li>
+ *   <li>{@code plays=0}, {@code added<30d}, {@code played>90d} - reproducciones
+ *       y antigüedad (agregada / escuchada hace menos o más de ese tiempo)</li>
+ *   <li>{@code -artist:queen} - negación</li>
+ *   <li>{@code a OR b} - disyunción; los términos separados por espacio se
+ *       combinan con AND. Se admiten paréntesis.</li>
+ *   <li>Cualquier otra palabra es texto libre sobre título, artista y álbum</li>
+ * </ul>
+ * Los nombres de campo también se aceptan en español (artista, disco,
+ * estrellas, duracion...).
+ *
+ * El mismo predicado sirve para el filtro de la biblioteca y para las listas
+ * inteligentes.
+ */
+public final class SongQuery {
+
+    private final String source;
+    private final QueryNode root;
+    private final Predicate<Song> predicate;
+
+    private SongQuery(String source, QueryNode root) {
+        this.source = source;
+        this.root = root;
+        this.predicate = root.compile();
+    }
+
+    /**
+     * Analiza y compila una consulta
+     *
+     * @throws IllegalArgumentException si la consulta no es válida
+     */
+    public static SongQuery parse(String text) {
+        Parser parser = new Parser(text == null ? "" : text);
+        return new SongQuery(text, parser.parseQuery());
+    }
+
+    /**
+     * Comprobación rápida (sin analizar) de si un texto parece una consulta
+     * estructurada y no una búsqueda de texto libre
+     */
+    public static boolean looksStructured(String text) {
+        if (text == null) {
+            return false;
+        }
+        String trimmed = text.strip();
+        return trimmed.startsWith("-") || trimmed.contains(" OR ") || trimmed.contains(" -")
+                || trimmed.chars().anyMatch(c -> c == ':' || c == '<' || c == '>' || c == '=' || c == '(');
+    }
+
+    /**
+     * Indica si la consulta usa campos u operadores; si no, es texto libre y
+     * conviene resolverla con el índice de búsqueda (tolerante a errores)
+     */
+    public boolean isStructured() {
+        return !root.isPlainText();
+    }
+
+    /**
+     * Indica si la consulta usa antigüedades ({@code added}, {@code played}):
+     * su resultado cambia con el tiempo aunque las canciones no cambien
+     */
+    public boolean isTimeRelative() {
+        return root.isTimeRelative();
+    }
+
+    public Predicate<Song> toPredicate() {
+        return predicate;
+    }
+
+    public boolean matches(Song song) {
+        return predicate.test(song);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    // ========== ANALIZADOR ==========
+
+    /**
+     * Analizador descendente recursivo:
+     * <pre>
+     * consulta := and ("OR" and)*
+     * and      := unario+
+     * unario   := "-" unario | "(" consulta ")" | término
+     * término  := campo operador valor | palabra | "frase"
+     * </pre>
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos = 0;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        QueryNode parseQuery() {
+            QueryNode node = parseOr();
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error("Carácter inesperado '" + text.charAt(pos) + "'");
+            }
+            return node;
+        }
+
+        private QueryNode parseOr() {
+            List<QueryNode> alternatives = new ArrayList<>();
+            alternatives.add(parseAnd());
+            while (acceptKeyword("OR")) {
+                alternatives.add(parseAnd());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new QueryNode.Or(alternatives);
+        }
+
+        private QueryNode parseAnd() {
+            List<QueryNode> terms = new ArrayList<>();
+            while (true) {
+                skipSpaces();
+                if (pos >= text.length() || peek() == ')' || peekKeyword("OR")) {
+                    break;
+                }
+                terms.add(parseUnary());
+            }
+            if (terms.isEmpty()) {
+                throw error("Se esperaba un término");
+            }
+            return terms.size() == 1 ? terms.get(0) : new QueryNode.And(terms);
+        }
+
+        private QueryNode parseUnary() {
+            skipSpaces();
+            char c = peek();
+            if (c == '-' && pos + 1 < text.length() && !Character.isWhitespace(text.charAt(pos + 1))) {
+                pos++;
+                return new QueryNode.Not(parseUnary());
+            }
+            if (c == '(') {
+                pos++;
+                QueryNode inner = parseOr();
+                skipSpaces();
+                if (peek() != ')') {
+                    throw error("Falta ')'");
+                }
+                pos++;
+                return inner;
+            }
+            return parseTerm();
+        }
+
+        private QueryNode parseTerm() {
+            if (peek() == '"') {
+                return plainText(readQuoted());
+            }
+
+            // ¿campo seguido de operador?
+            int start = pos;
+            while (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+                pos++;
+            }
+            QueryField field = pos > start ? QueryField.fromName(text.substring(start, pos)) : null;
+            QueryNode.Op op = field != null ? readOperator() : null;
+            if (op == null) {
+                pos = start;
+                return plainText(readBare());
+            }
+
+            String value = peek() == '"' ? readQuoted() : readBare();
+            if (value.isEmpty()) {
+                throw error("Falta el valor de " + field.getName());
+            }
+
+            if (field.isText()) {
+                if (op != QueryNode.Op.EQUALS && op != QueryNode.Op.NOT_EQUALS && op != QueryNode.Op.CONTAINS) {
+                    throw error("Operador no válido para " + field.getName());
+                }
+                return new QueryNode.TextMatch(field, op, TextNormalizer.fold(value).strip());
+            }
+
+            if (op == QueryNode.Op.CONTAINS) {
+                throw error("Operador no válido para " + field.getName());
+            }
+            long number = field.getValueType() == QueryField.ValueType.NUMBER
+                    ? parseNumber(value)
+                    : parseDurationMillis(value);
+            return new QueryNode.NumberMatch(field, op, number);
+        }
+
+        private QueryNode plainText(String value) {
+            String folded = TextNormalizer.fold(value).strip();
+            if (folded.isEmpty()) {
+                throw error("Término vacío");
+            }
+            return new QueryNode.Text(folded);
+        }
+
+        private QueryNode.Op readOperator() {
+            if (text.startsWith(":~", pos)) {
+                pos += 2;
+                return QueryNode.Op.CONTAINS;
+            }
+            String[] symbols = {"!=", "<=", ">=", ":", "=", "<", ">"};
+            QueryNode.Op[] ops = {
+                    QueryNode.Op.NOT_EQUALS, QueryNode.Op.LESS_OR_EQUAL, QueryNode.Op.GREATER_OR_EQUAL,
+                    QueryNode.Op.EQUALS, QueryNode.Op.EQUALS, QueryNode.Op.LESS, QueryNode.Op.GREATER
+            };
+            for (int i = 0; i < symbols.length; i++) {
+                if (text.startsWith(symbols[i], pos)) {
+                    pos += symbols[i].length();
+                    return ops[i];
+                }
+            }
+            return null;
+        }
+
+        private String readQuoted() {
+            pos++; // Comilla de apertura
+            int end = text.indexOf('"', pos);
+            if (end < 0) {
+                throw error("Falta cerrar las comillas");
+            }
+            String value = text.substring(pos, end);
+            pos = end + 1;
+            return value;
+        }
+
+        private String readBare() {
+            int start = pos;
+            while (pos < text.length() && !Character.isWhitespace(text.charAt(pos))
+                    && text.charAt(pos) != '(' && text.charAt(pos) != ')') {
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipSpaces();
+            if (peekKeyword(keyword)) {
+                pos += keyword.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peekKeyword(String keyword) {
+            int end = pos + keyword.length();
+            return text.startsWith(keyword, pos)
+                    && (end == text.length() || Character.isWhitespace(text.charAt(end)) || text.charAt(end) == '(');
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " (posición " + pos + ")");
+        }
+
+        private long parseNumber(String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw error("Número no válido: " + value);
+            }
+        }
+
+        /**
+         * Convierte "90s", "5m", "3m30s", "1h", "30d", "4:30" o "300" (segundos) a milisegundos
+         */
+        private long parseDurationMillis(String value) {
+            String v = value.toLowerCase();
+            try {
+                if (v.contains(":")) {
+                    long seconds = 0;
+                    for (String part : v.split(":")) {
+                        seconds = seconds * 60 + Long.parseLong(part);
+                    }
+                    return seconds * 1000;
+                }
+
+                long millis = 0;
+                long number = -1;
+                for (int i = 0; i < v.length(); i++) {
+                    char c = v.charAt(i);
+                    if (Character.isDigit(c)) {
+                        number = (number < 0 ? 0 : number * 10) + (c - '0');
+                    } else if (number >= 0 && (c == 'd' || c == 'h' || c == 'm' || c == 's')) {
+                        millis += number * (c == 'd' ? 86_400_000L : c == 'h' ? 3_600_000 : c == 'm' ? 60_000 : 1000);
+                        number = -1;
+                    } else {
+                        throw error("Duración no válida: " + value);
+                    }
+                }
+                return number >= 0 ? millis + number * 1000 : millis;
+            } catch (NumberFormatException e) {
+                throw error("Duración no válida: " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,649 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+import com.audioflow.util.IntList;
+import com.audioflow.util.TextNormalizer;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Índice invertido de tokens para la búsqueda en la biblioteca, tolerante a
+ * errores de tipeo y con resultados ordenados por relevancia.
+ *
+ * Cada canción recibe un id denso (int); las claves plegadas de título, artista
+ * y álbum ({@link Song#getTitleKey()}, sin tildes ni mayúsculas) se dividen en
+ * tokens una sola vez. Cada token distinto del vocabulario tiene su lista de
+ * postings (id de canción y campo) y se registra en un índice de trigramas.
+ *
+ * Una consulta se pliega igual y cada palabra se resuelve en dos pasos:
+ * <ul>
+ *   <li>Tokens que empiezan con la palabra (coincidencia exacta o prefijo)</li>
+ *   <li>Tokens parecidos: candidatos que comparten trigramas, confirmados con
+ *       una distancia de edición acotada ("beatels" → "beatles")</li>
+ * </ul>
+ * Todas las palabras deben coincidir; el puntaje suma la mejor coincidencia de
+ * cada palabra, ponderada por el campo (título &gt; artista &gt; álbum).
+ *
+ * El índice se mantiene incrementalmente escuchando la lista de canciones.
+ * Las eliminaciones son perezosas: se apaga el bit de la canción y el índice se
+ * compacta cuando la mitad de los ids están muertos.
+ *
+ * Compactar o vaciar el índice renumera las canciones: cada vez se incrementa
+ * la época, y un {@link SearchResult} de una época anterior ya no se puede
+ * leer con los ids nuevos ({@link #matches(SearchResult, Song)} lo descarta).
+ * {@link #setOnRenumbered(Runnable)} avisa para volver a ejecutar la consulta.
+ *
+ * Las mutaciones y {@link #idOf(Song)} se usan desde el hilo de JavaFX;
+ * {@link #search(String)} y {@link #filter} pueden llamarse desde cualquier hilo.
+ * Las consultas no retienen el lock durante toda la búsqueda: lo toman por
+ * tramos cortos (un token, un lote de candidatos o de canciones) con memoria
+ * de trabajo propia, así una edición de la biblioteca espera a lo sumo un
+ * tramo. Si entre tramos el índice se renumera, la consulta se repite.
+ */
+public class SongSearchIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Campos indexados (codificados en los 2 bits bajos de cada posting)
+    private static final int FIELD_TITLE = 0;
+    private static final int FIELD_ARTIST = 1;
+    private static final int FIELD_ALBUM = 2;
+    private static final float[] FIELD_WEIGHTS = {1.0f, 0.8f, 0.6f};
+
+    // Puntajes por tipo de coincidencia
+    private static final float SCORE_EXACT = 1.0f;
+    private static final float SCORE_PREFIX = 0.8f;
+    private static final float SCORE_FUZZY = 0.6f;
+
+    // Palabras más cortas no se buscan de forma difusa (demasiado ruido)
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int LONG_WORD_LENGTH = 6;
+
+    // Tamaño de los tramos que una consulta procesa con el lock tomado
+    private static final int FUZZY_CHUNK = 64;
+    private static final int FILTER_CHUNK = 1024;
+
+    // Canciones
+    private final Map<Song, Integer> ids = new IdentityHashMap<>();
+    private final BitSet live = new BitSet();
+    private Song[] songs = new Song[INITIAL_CAPACITY];
+    private String[] indexedKeys = new String[INITIAL_CAPACITY * 3]; // título, artista, álbum por id
+    private int nextId = 0;
+    private int liveCount = 0;
+    private volatile long epoch = 0; // Cambia cada vez que se renumeran los ids
+    private Runnable onRenumbered;
+
+    // Vocabulario: token -> id de token, postings por token (songId << 2 | campo)
+    private final NavigableMap<String, Integer> tokenIds = new TreeMap<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+    private String[] vocabulary = new String[INITIAL_CAPACITY];
+    private IntList[] postings = new IntList[INITIAL_CAPACITY];
+    private int vocabularySize = 0;
+
+    /**
+     * Indexa el contenido actual de una lista y la sigue escuchando
+     */
+    public void attach(ObservableList<Song> list) {
+        for (Song song : list) {
+            add(song);
+        }
+        list.addListener((ListChangeListener<Song>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    continue; // El orden no afecta al índice
+                }
+                if (change.wasUpdated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        update(list.get(i));
+                    }
+                    continue;
+                }
+                if (change.wasRemoved()) {
+                    if (change.getRemovedSize() >= liveCount && list.isEmpty()) {
+                        clear();
+                    } else {
+                        for (Song song : change.getRemoved()) {
+                            remove(song);
+                        }
+                    }
+                }
+                if (change.wasAdded()) {
+                    for (Song song : change.getAddedSubList()) {
+                        add(song);
+                    }
+                }
+            }
+        });
+    }
+
+    // ========== MANTENIMIENTO ==========
+
+    /**
+     * Agrega una canción al índice (si no estaba)
+     */
+    public synchronized void add(Song song) {
+        if (ids.containsKey(song)) {
+            return;
+        }
+        int id = nextId++;
+        if (id == songs.length) {
+            songs = Arrays.copyOf(songs, songs.length * 2);
+            indexedKeys = Arrays.copyOf(indexedKeys, songs.length * 3);
+        }
+        songs[id] = song;
+        indexedKeys[id * 3] = song.getTitleKey();
+        indexedKeys[id * 3 + 1] = song.getArtistKey();
+        indexedKeys[id * 3 + 2] = song.getAlbumKey();
+        ids.put(song, id);
+        live.set(id);
+        liveCount++;
+
+        indexField(id, FIELD_TITLE, song.getTitleKey());
+        indexField(id, FIELD_ARTIST, song.getArtistKey());
+        indexField(id, FIELD_ALBUM, song.getAlbumKey());
+    }
+
+    private void indexField(int songId, int field, String key) {
+        for (String token : tokenize(key)) {
+            int tokenId = tokenIdFor(token);
+            postings[tokenId].add(songId << 2 | field);
+        }
+    }
+
+    /**
+     * Id del token en el vocabulario; lo registra (con sus trigramas) si es nuevo
+     */
+    private int tokenIdFor(String token) {
+        Integer existing = tokenIds.get(token);
+        if (existing != null) {
+            return existing;
+        }
+
+        int tokenId = vocabularySize++;
+        if (tokenId == vocabulary.length) {
+            int capacity = vocabulary.length * 2;
+            vocabulary = Arrays.copyOf(vocabulary, capacity);
+            postings = Arrays.copyOf(postings, capacity);
+        }
+        vocabulary[tokenId] = token;
+        postings[tokenId] = new IntList(2);
+        tokenIds.put(token, tokenId);
+
+        for (String gram : trigramsOf(token)) {
+            trigrams.computeIfAbsent(gram, g -> new IntList(4)).add(tokenId);
+        }
+        return tokenId;
+    }
+
+    /**
+     * Reindexa una canción si cambió su título, artista o álbum.
+     * Otros cambios (calificación, duración) no afectan al índice.
+     */
+    public synchronized void update(Song song) {
+        Integer id = ids.get(song);
+        if (id == null) {
+            add(song);
+            return;
+        }
+        int base = id * 3;
+        if (!indexedKeys[base].equals(song.getTitleKey())
+                || !indexedKeys[base + 1].equals(song.getArtistKey())
+                || !indexedKeys[base + 2].equals(song.getAlbumKey())) {
+            remove(song);
+            add(song);
+        }
+    }
+
+    /**
+     * Quita una canción del índice
+     */
+    public synchronized void remove(Song song) {
+        Integer id = ids.remove(song);
+        if (id == null) {
+            return;
+        }
+        live.clear(id);
+        songs[id] = null;
+        indexedKeys[id * 3] = indexedKeys[id * 3 + 1] = indexedKeys[id * 3 + 2] = null;
+        liveCount--;
+
+        if (nextId > INITIAL_CAPACITY && liveCount < nextId / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Vacía el índice
+     */
+    public void clear() {
+        synchronized (this) {
+            reset();
+            epoch++;
+        }
+        notifyRenumbered();
+    }
+
+    private void reset() {
+        ids.clear();
+        live.clear();
+        songs = new Song[INITIAL_CAPACITY];
+        indexedKeys = new String[INITIAL_CAPACITY * 3];
+        nextId = 0;
+        liveCount = 0;
+
+        tokenIds.clear();
+        trigrams.clear();
+        vocabulary = new String[INITIAL_CAPACITY];
+        postings = new IntList[INITIAL_CAPACITY];
+        vocabularySize = 0;
+    }
+
+    /**
+     * Reconstruye el índice con ids densos, descartando los eliminados
+     * (también los tokens que ya no usa ninguna canción)
+     */
+    private void compact() {
+        Song[] survivors = new Song[liveCount];
+        int n = 0;
+        for (int id = live.nextSetBit(0); id >= 0; id = live.nextSetBit(id + 1)) {
+            survivors[n++] = songs[id];
+        }
+        reset();
+        for (Song song : survivors) {
+            add(song);
+        }
+        epoch++;
+        // Se llama dentro de remove(): quien escuche debe diferir el trabajo pesado
+        notifyRenumbered();
+    }
+
+    /**
+     * Avisa (en el hilo que modifica el índice) cada vez que los ids se
+     * renumeran, para volver a ejecutar la consulta vigente. Puede llegar en
+     * medio de un cambio de la lista observada.
+     */
+    public void setOnRenumbered(Runnable callback) {
+        this.onRenumbered = callback;
+    }
+
+    private void notifyRenumbered() {
+        if (onRenumbered != null) {
+            onRenumbered.run();
+        }
+    }
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Id denso de una canción en el índice, o -1 si no está indexada
+     */
+    public int idOf(Song song) {
+        Integer id = ids.get(song);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Época actual de los ids (ver {@link SearchResult#getEpoch()})
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Indica si el resultado se calculó con los ids actuales
+     */
+    public boolean isCurrent(SearchResult result) {
+        return result.getEpoch() == epoch;
+    }
+
+    /**
+     * Indica si la canción está en el resultado. Un resultado de una época
+     * anterior no coincide con nada: sus ids ya no son los de las canciones.
+     */
+    public boolean matches(SearchResult result, Song song) {
+        return isCurrent(result) && result.matches(idOf(song));
+    }
+
+    /**
+     * Relevancia de la canción en el resultado (0 si es de una época anterior)
+     */
+    public float scoreOf(SearchResult result, Song song) {
+        return isCurrent(result) ? result.scoreOf(idOf(song)) : 0f;
+    }
+
+    /**
+     * Resuelve una consulta a las canciones coincidentes con su relevancia.
+     * Todas las palabras de la consulta deben coincidir (exacta, como prefijo
+     * o con pocos errores de tipeo).
+     */
+    public SearchResult search(String query) {
+        return search(query, () -> false);
+    }
+
+    /**
+     * Igual que {@link #search(String)}, pero abandona el trabajo si
+     * {@code cancelled} pasa a ser verdadero (se consulta entre tramos).
+     *
+     * @return el resultado, o null si la búsqueda fue cancelada
+     */
+    public SearchResult search(String query, BooleanSupplier cancelled) {
+        while (true) {
+            SearchResult result = searchOnce(query, cancelled);
+            if (result == null || isCurrent(result)) {
+                return result;
+            }
+            // Se renumeró en medio de la búsqueda: repetir con los ids nuevos
+        }
+    }
+
+    private SearchResult searchOnce(String query, BooleanSupplier cancelled) {
+        long startEpoch;
+        int idLimit; // Las canciones agregadas durante la búsqueda no entran
+        BitSet result;
+        synchronized (this) {
+            startEpoch = epoch;
+            idLimit = nextId;
+            result = (BitSet) live.clone();
+        }
+        float[] totals = new float[idLimit];
+        float[] termScores = new float[idLimit];
+
+        for (String term : tokenize(TextNormalizer.fold(query))) {
+            BitSet termMatches = new BitSet(idLimit);
+
+            // 1. Tokens del vocabulario que empiezan con el término
+            IntList prefixTokens = new IntList();
+            synchronized (this) {
+                if (epoch != startEpoch) {
+                    return stale(startEpoch);
+                }
+                for (int tokenId : tokenIds.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                    prefixTokens.add(tokenId);
+                }
+            }
+            for (int i = 0; i < prefixTokens.size(); i++) {
+                if (cancelled.getAsBoolean()) {
+                    return null;
+                }
+                synchronized (this) {
+                    if (epoch != startEpoch) {
+                        return stale(startEpoch);
+                    }
+                    int tokenId = prefixTokens.get(i);
+                    float score = vocabulary[tokenId].length() == term.length() ? SCORE_EXACT : SCORE_PREFIX;
+                    collect(tokenId, score, termMatches, termScores);
+                }
+            }
+
+            // 2. Tokens parecidos (errores de tipeo); los números se buscan tal cual
+            if (isFuzzyCandidate(term) && !collectFuzzy(term, termMatches, termScores, startEpoch, cancelled)) {
+                return epoch != startEpoch ? stale(startEpoch) : null;
+            }
+
+            result.and(termMatches);
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                totals[id] += termScores[id];
+            }
+            for (int id = termMatches.nextSetBit(0); id >= 0; id = termMatches.nextSetBit(id + 1)) {
+                termScores[id] = 0f;
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        return new SearchResult(result, totals, startEpoch);
+    }
+
+    /**
+     * Evalúa un filtro sobre todas las canciones indexadas (por ejemplo, una
+     * consulta estructurada) y devuelve los ids que lo cumplen, sin puntajes.
+     * Puede llamarse desde cualquier hilo; el filtro se evalúa sin el lock.
+     *
+     * @return el resultado, o null si la evaluación fue cancelada
+     */
+    public SearchResult filter(Predicate<Song> predicate, BooleanSupplier cancelled) {
+        while (true) {
+            SearchResult result = filterOnce(predicate, cancelled);
+            if (result == null || isCurrent(result)) {
+                return result;
+            }
+        }
+    }
+
+    private SearchResult filterOnce(Predicate<Song> predicate, BooleanSupplier cancelled) {
+        long startEpoch;
+        int idLimit;
+        synchronized (this) {
+            startEpoch = epoch;
+            idLimit = nextId;
+        }
+        BitSet result = new BitSet(idLimit);
+        Song[] batch = new Song[FILTER_CHUNK];
+        int[] batchIds = new int[FILTER_CHUNK];
+        int from = 0;
+        while (from < idLimit) {
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            // Con el lock solo se copia el lote; el filtro corre afuera
+            int n = 0;
+            synchronized (this) {
+                if (epoch != startEpoch) {
+                    return stale(startEpoch);
+                }
+                int id = live.nextSetBit(from);
+                for (; id >= 0 && id < idLimit && n < FILTER_CHUNK; id = live.nextSetBit(id + 1)) {
+                    batch[n] = songs[id];
+                    batchIds[n++] = id;
+                }
+                from = id >= 0 && id < idLimit ? id : idLimit;
+            }
+            for (int i = 0; i < n; i++) {
+                if (predicate.test(batch[i])) {
+                    result.set(batchIds[i]);
+                }
+            }
+        }
+        return new SearchResult(result, new float[0], startEpoch);
+    }
+
+    /**
+     * Resultado vacío de una época ya vencida (la consulta se repite)
+     */
+    private static SearchResult stale(long staleEpoch) {
+        return new SearchResult(new BitSet(), new float[0], staleEpoch);
+    }
+
+    private static boolean isFuzzyCandidate(String term) {
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Suma las canciones de un token al término actual, conservando el mejor
+     * puntaje por canción. Se llama con el lock tomado.
+     */
+    private void collect(int tokenId, float score, BitSet termMatches, float[] termScores) {
+        IntList posting = postings[tokenId];
+        int[] data = posting.rawArray();
+        for (int i = 0, size = posting.size(); i < size; i++) {
+            int songId = data[i] >>> 2;
+            if (songId >= termScores.length || !live.get(songId)) {
+                continue; // Agregada después de empezar la búsqueda, o eliminada
+            }
+            float weighted = score * FIELD_WEIGHTS[data[i] & 3];
+            if (weighted > termScores[songId]) {
+                termScores[songId] = weighted;
+                termMatches.set(songId);
+            }
+        }
+    }
+
+    /**
+     * Genera candidatos por trigramas compartidos y los confirma con la
+     * distancia de edición (por lotes, soltando el lock entre uno y otro)
+     *
+     * @return false si la búsqueda fue cancelada o el índice se renumeró
+     */
+    private boolean collectFuzzy(String term, BitSet termMatches, float[] termScores, long startEpoch,
+            BooleanSupplier cancelled) {
+        int maxEdits = term.length() >= LONG_WORD_LENGTH ? 2 : 1;
+        Set<String> grams = trigramsOf(term);
+        // Cada edición rompe como mucho 3 trigramas
+        int required = Math.max(1, grams.size() - 3 * maxEdits);
+
+        IntList candidates = new IntList();
+        synchronized (this) {
+            if (epoch != startEpoch) {
+                return false;
+            }
+            int[] hits = new int[vocabularySize];
+            IntList touched = new IntList();
+            for (String gram : grams) {
+                IntList tokens = trigrams.get(gram);
+                if (tokens == null) {
+                    continue;
+                }
+                int[] data = tokens.rawArray();
+                for (int i = 0, size = tokens.size(); i < size; i++) {
+                    if (hits[data[i]]++ == 0) {
+                        touched.add(data[i]);
+                    }
+                }
+            }
+            for (int i = 0; i < touched.size(); i++) {
+                if (hits[touched.get(i)] >= required) {
+                    candidates.add(touched.get(i));
+                }
+            }
+        }
+
+        for (int start = 0; start < candidates.size(); start += FUZZY_CHUNK) {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            synchronized (this) {
+                if (epoch != startEpoch) {
+                    return false;
+                }
+                for (int i = start, end = Math.min(candidates.size(), start + FUZZY_CHUNK); i < end; i++) {
+                    int tokenId = candidates.get(i);
+                    String token = vocabulary[tokenId];
+                    if (token.startsWith(term)) {
+                        continue; // Ya contado como prefijo
+                    }
+                    int distance = boundedDistance(term, token, maxEdits);
+                    if (distance > 0) {
+                        collect(tokenId, SCORE_FUZZY / distance, termMatches, termScores);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    // ========== TOKENIZACIÓN ==========
+
+    /**
+     * Divide un texto ya plegado en tokens (secuencias de letras y dígitos)
+     */
+    static Set<String> tokenize(String folded) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (folded == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Trigramas de un token con bordes marcados: "abba" → $ab, abb, bba, ba$
+     */
+    static Set<String> trigramsOf(String token) {
+        String padded = "$" + token + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Distancia de edición (con transposición de letras vecinas) acotada.
+     *
+     * @return la distancia, o -1 si supera {@code max}
+     */
+    static int boundedDistance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return -1;
+        }
+
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + (ca == cb ? 0 : 1));
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return -1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        return previous[m] <= max ? previous[m] : -1;
+    }
+}
@@ -0,0 +1,84 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+
+import java.util.Comparator;
+
+/**
+ * Criterios de orden de la biblioteca.
+ *
+ * Los campos de texto se comparan por sus claves plegadas precalculadas en
+ * {@link Song} (sin tildes ni mayúsculas), así ordenar 100k canciones no
+ * normaliza ni usa un {@code Collator} en cada comparación. Cada criterio
+ * tiene claves secundarias fijas para que el orden sea estable y predecible.
+ */
+public final class SongSort {
+
+    /**
+     * Columna por la que se ordena
+     */
+    public enum Field {
+        TITLE("Título"),
+        ARTIST("Artista"),
+        ALBUM("Álbum"),
+        DURATION("Duración"),
+        RATING("Calificación");
+
+        private final String displayName;
+
+        Field(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private static final Comparator<Song> BY_TITLE = Comparator.comparing(Song::getTitleKey);
+    private static final Comparator<Song> BY_ARTIST = Comparator.comparing(Song::getArtistKey);
+    private static final Comparator<Song> BY_ALBUM = Comparator.comparing(Song::getAlbumKey);
+    private static final Comparator<Song> BY_DURATION = Comparator.comparingLong(Song::getDurationMillis);
+    private static final Comparator<Song> BY_RATING = Comparator.comparingInt(Song::getRating);
+    // Desempate final: dos canciones nunca comparan iguales salvo que sean el mismo archivo.
+    // Compara nombre y directorio por separado para no armar la ruta completa.
+    private static final Comparator<Song> BY_PATH = Comparator.comparing(Song::getFileName)
+            .thenComparingInt(Song::getDirectoryId);
+
+    private SongSort() {
+        // Clase de utilidad - no instanciar
+    }
+
+    /**
+     * Comparador para una columna. El sentido solo afecta a la columna
+     * principal; las secundarias siempre van en orden ascendente.
+     */
+    public static Comparator<Song> comparator(Field field, boolean ascending) {
+        Comparator<Song> primary;
+        Comparator<Song> secondary;
+        switch (field) {
+            case ARTIST:
+                primary = BY_ARTIST;
+                secondary = BY_ALBUM.thenComparing(BY_TITLE);
+                break;
+            case ALBUM:
+                primary = BY_ALBUM;
+                secondary = BY_ARTIST.thenComparing(BY_TITLE);
+                break;
+            case DURATION:
+                primary = BY_DURATION;
+                secondary = BY_TITLE.thenComparing(BY_ARTIST);
+                break;
+            case RATING:
+                primary = BY_RATING;
+                secondary = BY_ARTIST.thenComparing(BY_ALBUM).thenComparing(BY_TITLE);
+                break;
+            case TITLE:
+            default:
+                primary = BY_TITLE;
+                secondary = BY_ARTIST.thenComparing(BY_ALBUM);
+                break;
+        }
+        return (ascending ? primary : primary.reversed()).thenComparing(secondary).thenComparing(BY_PATH);
+    }
+}
@@ -0,0 +1,473 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+import com.audioflow.util.TextNormalizer;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sugerencias de autocompletado (artistas, álbumes y títulos) para la búsqueda.
+ *
+ * Cada artista, álbum y título distinto es una entrada con su cantidad de
+ * canciones y su peso (las estrellas y las reproducciones de sus canciones). Las entradas se publican en un arreglo ordenado de
+ * claves plegadas, una por cada inicio de palabra ("the beatles" y "beatles"),
+ * y un prefijo se resuelve con búsqueda binaria más un recorrido del rango que
+ * conserva los K de mayor peso.
+ *
+ * Los cambios no reordenan el arreglo: una calificación o una reproducción
+ * ajusta el peso de la entrada en el lugar; una entrada que se queda sin canciones sigue publicada
+ * (se saltea al consultar) y revive si vuelve a aparecer; las claves nuevas van
+ * a un arreglo delta chico que se ordena en la próxima consulta y se busca
+ * junto al principal. El delta se fusiona con el principal (en tiempo lineal,
+ * descartando las entradas muertas) cuando crece o cuando la mitad de las
+ * filas están muertas. Se usa solo desde el hilo de JavaFX.
+ */
+public class SuggestionIndex {
+
+    public static final int DEFAULT_LIMIT = 8;
+
+    // Los prefijos de 1-2 letras se memorizan
+    private static final int CACHED_PREFIX_LENGTH = 2;
+
+    // Filas del delta (o muertas) a partir de las cuales se fusiona con el arreglo principal
+    private static final int MAX_DELTA_ROWS = 512;
+
+    private static final Comparator<Row> ROW_ORDER = (a, b) -> a.key.compareTo(b.key);
+
+    /**
+     * Tipo de sugerencia
+     */
+    public enum Kind {
+        ARTIST("Artista"),
+        ALBUM("Álbum"),
+        TITLE("Canción");
+
+        private final String displayName;
+
+        Kind(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Una sugerencia: texto a completar y cuántas canciones la respaldan
+     */
+    public static final class Suggestion {
+        private final Kind kind;
+        private final String text;
+        private final String key;
+        private int songCount;
+        private int scoreSum; // Puntaje de sus canciones (ver songScore)
+        private int rows; // Filas publicadas (una por inicio de palabra)
+
+        private Suggestion(Kind kind, String text, String key) {
+            this.kind = kind;
+            this.text = text;
+            this.key = key;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getSongCount() {
+            return songCount;
+        }
+
+        /**
+         * Peso para ordenar: cantidad de canciones más sus estrellas y reproducciones
+         */
+        public int getWeight() {
+            return songCount + scoreSum;
+        }
+
+        @Override
+        public String toString() {
+            return text + " (" + kind.getDisplayName() + ")";
+        }
+    }
+
+    // Entradas por tipo + clave plegada (las muertas siguen hasta la próxima fusión)
+    private final Map<String, Suggestion> entries = new HashMap<>();
+
+    // Lo que se contó por cada canción, para descontarlo aunque sus datos cambien
+    private final Map<Song, Counted> counted = new IdentityHashMap<>();
+
+    private static final class Counted {
+        private final Suggestion[] suggestions;
+        private final String[] keys; // artista, álbum, título al momento de contar
+        private final int score;
+
+        private Counted(Suggestion[] suggestions, Song song) {
+            this.suggestions = suggestions;
+            this.keys = new String[]{song.getArtistKey(), song.getAlbumKey(), song.getTitleKey()};
+            this.score = songScore(song);
+        }
+
+        private boolean isCurrent(Song song) {
+            return score == songScore(song) && hasSameKeys(song);
+        }
+
+        private boolean hasSameKeys(Song song) {
+            return keys[0].equals(song.getArtistKey()) && keys[1].equals(song.getAlbumKey())
+                    && keys[2].equals(song.getTitleKey());
+        }
+    }
+
+    /**
+     * Una fila del arreglo: clave desde un inicio de palabra y su entrada
+     */
+    private static final class Row {
+        private final String key;
+        private final Suggestion entry;
+
+        private Row(String key, Suggestion entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    // Arreglo ordenado de claves (una por inicio de palabra) y su entrada
+    private String[] sortedKeys = new String[0];
+    private Suggestion[] sortedEntries = new Suggestion[0];
+
+    // Filas nuevas desde la última fusión; se ordenan en la próxima consulta
+    private final List<Row> delta = new ArrayList<>();
+    private boolean deltaSorted = true;
+    private int deadRows; // Filas de entradas sin canciones (en el principal o el delta)
+    private int liveEntries;
+
+    // Resultados de prefijos cortos (recorren rangos grandes) hasta el próximo cambio
+    private final Map<String, List<Suggestion>> shortPrefixCache = new HashMap<>();
+
+    /**
+     * Indexa el contenido actual de una lista y la sigue escuchando
+     */
+    public void attach(ObservableList<Song> list) {
+        for (Song song : list) {
+            add(song);
+        }
+        list.addListener((ListChangeListener<Song>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    continue;
+                }
+                if (change.wasUpdated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        update(list.get(i));
+                    }
+                    continue;
+                }
+                if (change.wasRemoved()) {
+                    for (Song song : change.getRemoved()) {
+                        remove(song);
+                    }
+                }
+                if (change.wasAdded()) {
+                    for (Song song : change.getAddedSubList()) {
+                        add(song);
+                    }
+                }
+            }
+        });
+    }
+
+    // ========== MANTENIMIENTO ==========
+
+    public void add(Song song) {
+        if (counted.containsKey(song)) {
+            return;
+        }
+        int score = songScore(song);
+        Suggestion[] suggestions = new Suggestion[3];
+        if (!Song.UNKNOWN_ARTIST.equals(song.getArtist())) {
+            suggestions[0] = count(Kind.ARTIST, song.getArtist(), song.getArtistKey(), score);
+        }
+        if (!Song.UNKNOWN_ALBUM.equals(song.getAlbum())) {
+            suggestions[1] = count(Kind.ALBUM, song.getAlbum(), song.getAlbumKey(), score);
+        }
+        suggestions[2] = count(Kind.TITLE, song.getTitle(), song.getTitleKey(), score);
+        counted.put(song, new Counted(suggestions, song));
+    }
+
+    public void remove(Song song) {
+        Counted previous = counted.remove(song);
+        if (previous == null) {
+            return;
+        }
+        for (Suggestion entry : previous.suggestions) {
+            if (entry != null) {
+                discount(entry, previous.score);
+            }
+        }
+    }
+
+    /**
+     * Vuelve a contar una canción cuyos metadatos, calificación o reproducciones cambiaron
+     */
+    public void update(Song song) {
+        Counted previous = counted.get(song);
+        if (previous == null) {
+            add(song);
+            return;
+        }
+        if (previous.isCurrent(song)) {
+            return; // Nada relevante cambió (por ejemplo, la duración)
+        }
+        if (previous.hasSameKeys(song)) {
+            // Solo cambió el puntaje (estrellas o reproducciones): se ajusta el peso en el lugar
+            int difference = songScore(song) - previous.score;
+            for (Suggestion entry : previous.suggestions) {
+                if (entry != null) {
+                    entry.scoreSum += difference;
+                }
+            }
+            counted.put(song, new Counted(previous.suggestions, song));
+            shortPrefixCache.clear();
+            return;
+        }
+        remove(song);
+        add(song);
+    }
+
+    private Suggestion count(Kind kind, String text, String key, int score) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        String id = kind.ordinal() + key;
+        Suggestion entry = entries.get(id);
+        if (entry == null) {
+            entry = new Suggestion(kind, text.trim(), key);
+            entries.put(id, entry);
+            publish(entry);
+        } else if (entry.songCount == 0) {
+            deadRows -= entry.rows; // Revive: sus filas siguen publicadas
+        }
+        if (entry.songCount++ == 0) {
+            liveEntries++;
+        }
+        entry.scoreSum += score;
+        shortPrefixCache.clear();
+        return entry;
+    }
+
+    private void discount(Suggestion entry, int score) {
+        entry.scoreSum -= score;
+        if (--entry.songCount == 0) {
+            // Queda publicada pero se saltea; se descarta en la próxima fusión
+            deadRows += entry.rows;
+            liveEntries--;
+        }
+        shortPrefixCache.clear();
+    }
+
+    /**
+     * Agrega las filas de una entrada nueva al delta
+     */
+    private void publish(Suggestion entry) {
+        String key = entry.key;
+        for (int i = 0; i < key.length(); i++) {
+            boolean wordStart = Character.isLetterOrDigit(key.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)));
+            if (wordStart) {
+                delta.add(new Row(key.substring(i), entry));
+                entry.rows++;
+            }
+        }
+        deltaSorted = false;
+    }
+
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Sugerencias cuyo texto (o alguna de sus palabras) empieza con el prefijo,
+     * de mayor a menor peso
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String folded = TextNormalizer.fold(prefix).strip();
+        if (folded.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        prepare();
+
+        if (folded.length() <= CACHED_PREFIX_LENGTH) {
+            String cacheKey = limit + ":" + folded;
+            List<Suggestion> cached = shortPrefixCache.get(cacheKey);
+            if (cached == null) {
+                cached = collectTop(folded, limit);
+                shortPrefixCache.put(cacheKey, cached);
+            }
+            return cached;
+        }
+        return collectTop(folded, limit);
+    }
+
+    private List<Suggestion> collectTop(String folded, int limit) {
+        // Top-K por inserción ordenada: K es chico, no hace falta un heap
+        Suggestion[] top = new Suggestion[limit];
+        int found = 0;
+        for (int i = lowerBound(folded); i < sortedKeys.length && sortedKeys[i].startsWith(folded); i++) {
+            found = offer(top, found, sortedEntries[i]);
+        }
+        for (int i = deltaLowerBound(folded); i < delta.size() && delta.get(i).key.startsWith(folded); i++) {
+            found = offer(top, found, delta.get(i).entry);
+        }
+
+        List<Suggestion> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(top[i]);
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Inserta un candidato en el top si corresponde
+     *
+     * @return la nueva cantidad de candidatos en el top
+     */
+    private static int offer(Suggestion[] top, int found, Suggestion candidate) {
+        int limit = top.length;
+        if (candidate.songCount == 0 || contains(top, found, candidate)) {
+            return found; // Entrada muerta, o ya encontrada por otra palabra
+        }
+        if (found == limit && !ranksBefore(candidate, top[limit - 1])) {
+            return found;
+        }
+        int pos = found < limit ? found++ : limit - 1;
+        while (pos > 0 && ranksBefore(candidate, top[pos - 1])) {
+            top[pos] = top[pos - 1];
+            pos--;
+        }
+        top[pos] = candidate;
+        return found;
+    }
+
+    public int size() {
+        return liveEntries;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Lo que suma una canción al peso: sus estrellas más las reproducciones
+     * en escala logarítmica (1 por la primera, otro al duplicarse), así una
+     * canción muy escuchada pesa sin tapar al resto
+     */
+    static int songScore(Song song) {
+        int playCount = Math.max(0, song.getPlayCount());
+        return song.getRating() + (32 - Integer.numberOfLeadingZeros(playCount));
+    }
+
+    /**
+     * Deja el delta listo para consultar: lo ordena (es chico) o, si creció
+     * demasiado o hay muchas filas muertas, lo fusiona con el principal
+     */
+    private void prepare() {
+        int totalRows = sortedKeys.length + delta.size();
+        if (delta.size() > MAX_DELTA_ROWS || (deadRows > MAX_DELTA_ROWS && deadRows * 2 > totalRows)) {
+            merge();
+        } else if (!deltaSorted) {
+            delta.sort(ROW_ORDER);
+            deltaSorted = true;
+        }
+    }
+
+    /**
+     * Fusiona el delta ordenado con el arreglo principal en una pasada,
+     * descartando las filas (y entradas) sin canciones
+     */
+    private void merge() {
+        if (!deltaSorted) {
+            delta.sort(ROW_ORDER);
+        }
+        int capacity = sortedKeys.length + delta.size() - deadRows;
+        String[] keys = new String[capacity];
+        Suggestion[] owners = new Suggestion[capacity];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sortedKeys.length || j < delta.size()) {
+            boolean fromMain = j == delta.size()
+                    || (i < sortedKeys.length && sortedKeys[i].compareTo(delta.get(j).key) <= 0);
+            String key = fromMain ? sortedKeys[i] : delta.get(j).key;
+            Suggestion entry = fromMain ? sortedEntries[i++] : delta.get(j++).entry;
+            if (entry.songCount > 0) {
+                keys[n] = key;
+                owners[n++] = entry;
+            } else if (entry.rows > 0) {
+                entries.remove(entry.kind.ordinal() + entry.key);
+                entry.rows = 0;
+            }
+        }
+
+        sortedKeys = keys;
+        sortedEntries = owners;
+        delta.clear();
+        deltaSorted = true;
+        deadRows = 0;
+        shortPrefixCache.clear();
+    }
+
+    private int deltaLowerBound(String prefix) {
+        int low = 0;
+        int high = delta.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (delta.get(mid).key.compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedKeys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Mayor peso primero; a igual peso, el texto más corto
+     */
+    private static boolean ranksBefore(Suggestion a, Suggestion b) {
+        if (a.getWeight() != b.getWeight()) {
+            return a.getWeight() > b.getWeight();
+        }
+        return a.text.length() < b.text.length();
+    }
+
+    private static boolean contains(Suggestion[] top, int found, Suggestion candidate) {
+        for (int i = 0; i < found; i++) {
+            if (top[i] == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,22 +1,27 @@
 package com.audioflow.service;
 
 import com.audioflow.model.Song;
+import javafx.animation.AnimationTimer;
 import javafx.beans.property.*;
+import javafx.beans.value.ChangeListener;
 import javafx.scene.media.AudioSpectrumListener;
-import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
 
 import java.io.File;
+import java.util.function.Supplier;
 
 /**
  * Servicio que encapsula la lógica de reproducción de audio.
- * Usa MediaPlayer de JavaFX para reproducir archivos MP3/WAV.
+ * Reproduce con un {@link PlaybackEngine} por canción: MediaPlayer de JavaFX
+ * por defecto, o el motor PCM con {@code -Daudioflow.engine=pcm}.
  */
 public class AudioService {
 
-    private MediaPlayer mediaPlayer;
-    private Song currentSong;
+    private final PlaybackEngine.Factory engineFactory;
+    private PlaybackEngine engine;
+    // Canción cargada: es el único indicador de "sonando ahora" (las celdas lo observan)
+    private final ReadOnlyObjectWrapper<Song> currentSong = new ReadOnlyObjectWrapper<>();
 
     // Propiedades observables para binding con la UI
     private final ObjectProperty<Duration> currentTime = new SimpleObjectProperty<>(Duration.ZERO);
@@ -35,88 +40,188 @@ public class AudioService {
     private static final int SPECTRUM_BANDS = 64;
     private static final double SPECTRUM_INTERVAL = 0.05; // 50ms = 20fps
 
+    // Historial: cuánto sonó la canción cargada desde que se cargó
+    private final PlayHistory history;
+    private long sessionStartedAt; // 0 = todavía no empezó a sonar
+    private long sessionPlayedMillis;
+    // Saltos de tiempo mayores a esto son seeks, no tiempo escuchado
+    private static final double MAX_TICK_MILLIS = 1000;
+
+    // Precarga: reproductor de la próxima canción, abierto pero sin sonar
+    private PlaybackEngine preloadedEngine;
+    private Song preloadedSong;
+    private Supplier<Song> upcomingSong;
+    private boolean preloadRequested;
+    // Se precarga en los últimos segundos, así la predicción ve los últimos
+    // cambios de la cola y hay un solo reproductor de más por poco tiempo
+    private static final double PRELOAD_AHEAD_MILLIS = 15_000;
+
+    // Crossfade: el reproductor saliente sigue sonando mientras baja su
+    // ganancia y sube la del entrante. Cada plato tiene su ganancia, que
+    // multiplica el volumen general.
+    public static final double MAX_CROSSFADE_SECONDS = 12;
+    private final DoubleProperty crossfadeSeconds = new SimpleDoubleProperty(0);
+    private DoubleProperty currentGain = new SimpleDoubleProperty(1);
+    private PlaybackEngine fadingEngine;
+    private DoubleProperty fadingGain;
+    private double fadeMillis;
+    private long fadeStartNanos; // 0 = el entrante todavía no empezó a sonar
+    private AnimationTimer fadeTimer; // Uno solo, corre únicamente durante un crossfade
+    private boolean endSignaled; // Ya se avisó el fin (anticipado por el crossfade)
+    private ChangeListener<Duration> timeListener;
+    private ChangeListener<PlaybackEngine.Status> statusListener;
+
     public AudioService() {
-        // Inicialización
+        this(PlayHistory.getShared(), PlaybackEngine.factoryFromSystemProperty());
     }
 
     /**
-     * Carga y prepara una canción para reproducir
+     * @param history       dónde registrar lo escuchado (null para no registrar)
+     * @param engineFactory crea el motor de cada canción
      */
-    public void loadSong(Song song) {
-        // Detener reproductor actual si existe
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.dispose();
-        }
+    public AudioService(PlayHistory history, PlaybackEngine.Factory engineFactory) {
+        this.history = history;
+        this.engineFactory = engineFactory;
+    }
 
-        currentSong = song;
+    /**
+     * Carga y prepara una canción para reproducir.
+     * Si es la canción precargada, usa ese reproductor (ya abierto y con
+     * buffer) y el cambio de canción es casi inmediato.
+     */
+    public void loadSong(Song song) {
+        loadSong(song, false);
+    }
 
-        try {
-            // Crear Media desde el archivo
-            File file = new File(song.getFilePath());
-            if (!file.exists()) {
-                System.err.println("Archivo no encontrado: " + song.getFilePath());
-                return;
+    /**
+     * Carga una canción. Con {@code crossfade}, si hay crossfade configurado
+     * y algo sonando, la canción actual se sigue oyendo mientras se apaga
+     * y la nueva entra subiendo de volumen.
+     */
+    public void loadSong(Song song, boolean crossfade) {
+        finishFade();
+        if (engine != null) {
+            double remaining = totalDuration.get().toMillis() - engine.getCurrentTime().toMillis();
+            if (crossfade && getCrossfadeSeconds() > 0 && remaining > 0
+                    && engine.getStatus() == PlaybackEngine.Status.PLAYING) {
+                startFadeOut(Math.min(getCrossfadeSeconds() * 1000, remaining));
+            } else {
+                // Detener reproductor actual si existe
+                engine.stop();
+                engine.dispose();
             }
+            engine = null;
+        }
 
-            Media media = new Media(file.toURI().toString());
-            mediaPlayer = new MediaPlayer(media);
-
-            // Configurar bindings
-            mediaPlayer.volumeProperty().bind(volume);
-            mediaPlayer.muteProperty().bind(muted);
+        finishSession();
+        currentSong.set(song);
+        preloadRequested = false;
+        endSignaled = false;
 
-            // Listeners de tiempo
-            mediaPlayer.currentTimeProperty().addListener((obs, oldTime, newTime) -> {
-                currentTime.set(newTime);
-                if (totalDuration.get().toMillis() > 0) {
-                    progress.set(newTime.toMillis() / totalDuration.get().toMillis());
+        try {
+            PlaybackEngine player;
+            if (song == preloadedSong && preloadedEngine.getStatus() != PlaybackEngine.Status.HALTED) {
+                player = preloadedEngine;
+                preloadedEngine = null;
+                preloadedSong = null;
+            } else {
+                discardPreload();
+                player = createEngine(song);
+                if (player == null) {
+                    return;
                 }
-            });
-
-            // Cuando el media está listo
-            mediaPlayer.setOnReady(() -> {
-                totalDuration.set(media.getDuration());
-                song.setDuration(media.getDuration());
-                if (onReady != null)
-                    onReady.run();
-                System.out.println("✓ Canción cargada: " + song.getTitle() + " (" + song.getFormattedDuration() + ")");
-            });
-
-            // Cuando termina la canción
-            mediaPlayer.setOnEndOfMedia(() -> {
-                playing.set(false);
-                if (onEndOfMedia != null)
-                    onEndOfMedia.run();
-            });
-
-            // Listener de estado
-            mediaPlayer.statusProperty().addListener((obs, oldStatus, newStatus) -> {
-                playing.set(newStatus == MediaPlayer.Status.PLAYING);
-            });
-
-            // Configurar analizador de espectro para visualizador
-            mediaPlayer.setAudioSpectrumNumBands(SPECTRUM_BANDS);
-            mediaPlayer.setAudioSpectrumInterval(SPECTRUM_INTERVAL);
-            if (spectrumListener != null) {
-                mediaPlayer.setAudioSpectrumListener(spectrumListener);
             }
-
+            attach(player, song);
         } catch (Exception e) {
             System.err.println("Error al cargar la canción: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Crea el motor de una canción (empieza a abrir el archivo y a llenar el
+     * buffer, sin sonar)
+     *
+     * @return el motor, o null si el archivo no existe
+     */
+    private PlaybackEngine createEngine(Song song) {
+        File file = new File(song.getFilePath());
+        if (!file.exists()) {
+            System.err.println("Archivo no encontrado: " + song.getFilePath());
+            return null;
+        }
+        PlaybackEngine player = engineFactory.create();
+        // Configurar analizador de espectro para visualizador
+        player.setAudioSpectrum(SPECTRUM_BANDS, SPECTRUM_INTERVAL);
+        player.load(file);
+        return player;
+    }
+
+    /**
+     * Convierte un motor en el actual: bindings, listeners y callbacks
+     */
+    private void attach(PlaybackEngine player, Song song) {
+        engine = player;
+
+        // Configurar bindings (el volumen general por la ganancia de su plato)
+        player.volumeProperty().bind(volume.multiply(currentGain));
+        player.mutedProperty().bind(muted);
+
+        // Listeners de tiempo
+        timeListener = (obs, oldTime, newTime) -> {
+            currentTime.set(newTime);
+            countPlayed(oldTime, newTime);
+            if (totalDuration.get().toMillis() > 0) {
+                progress.set(newTime.toMillis() / totalDuration.get().toMillis());
+                preloadNearEnd(newTime);
+                signalEndForCrossfade(newTime);
+            }
+        };
+        player.currentTimeProperty().addListener(timeListener);
+
+        // Cuando termina la canción
+        player.setOnEndOfMedia(() -> {
+            playing.set(false);
+            finishSession();
+            if (onEndOfMedia != null && !endSignaled)
+                onEndOfMedia.run();
+        });
+
+        // Listener de estado
+        statusListener = (obs, oldStatus, newStatus) -> {
+            playing.set(newStatus == PlaybackEngine.Status.PLAYING);
+            if (newStatus == PlaybackEngine.Status.PLAYING && sessionStartedAt == 0) {
+                sessionStartedAt = System.currentTimeMillis();
+            }
+        };
+        player.statusProperty().addListener(statusListener);
+
+        if (spectrumListener != null) {
+            player.setAudioSpectrumListener(spectrumListener);
+        }
+
+        // Cuando el media está listo (al final: onReady suele dar play y los
+        // listeners de arriba ya tienen que estar escuchando)
+        Runnable ready = () -> {
+            totalDuration.set(player.getDuration());
+            song.setDuration(player.getDuration());
+            if (onReady != null)
+                onReady.run();
+            System.out.println("✓ Canción cargada: " + song.getTitle() + " (" + song.getFormattedDuration() + ")");
+        };
+        if (player.getStatus() == PlaybackEngine.Status.READY) {
+            ready.run(); // Precargado: ya estaba listo y no vuelve a avisar
+        } else {
+            player.setOnReady(ready);
+        }
+    }
+
     /**
      * Inicia o reanuda la reproducción
      */
     public void play() {
-        if (mediaPlayer != null) {
-            mediaPlayer.play();
-            if (currentSong != null) {
-                currentSong.setPlaying(true);
-            }
+        if (engine != null) {
+            engine.play();
         }
     }
 
@@ -124,11 +229,9 @@ public class AudioService {
      * Pausa la reproducción
      */
     public void pause() {
-        if (mediaPlayer != null) {
-            mediaPlayer.pause();
-            if (currentSong != null) {
-                currentSong.setPlaying(false);
-            }
+        finishFade();
+        if (engine != null) {
+            engine.pause();
         }
     }
 
@@ -147,20 +250,19 @@ public class AudioService {
      * Detiene la reproducción completamente
      */
     public void stop() {
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            if (currentSong != null) {
-                currentSong.setPlaying(false);
-            }
+        finishFade();
+        if (engine != null) {
+            engine.stop();
         }
+        finishSession();
     }
 
     /**
      * Salta a una posición específica
      */
     public void seekTo(Duration position) {
-        if (mediaPlayer != null) {
-            mediaPlayer.seek(position);
+        if (engine != null) {
+            engine.seek(position);
         }
     }
 
@@ -168,9 +270,9 @@ public class AudioService {
      * Salta a un porcentaje de la canción (0.0 a 1.0)
      */
     public void seekToPercent(double percent) {
-        if (mediaPlayer != null && totalDuration.get() != null) {
+        if (engine != null && totalDuration.get() != null) {
             Duration seekTime = totalDuration.get().multiply(percent);
-            mediaPlayer.seek(seekTime);
+            engine.seek(seekTime);
         }
     }
 
@@ -233,7 +335,14 @@ public class AudioService {
     }
 
     public Song getCurrentSong() {
-        return currentSong;
+        return currentSong.get();
+    }
+
+    /**
+     * Canción cargada en el reproductor (null si ninguna)
+     */
+    public ReadOnlyObjectProperty<Song> currentSongProperty() {
+        return currentSong.getReadOnlyProperty();
     }
 
     // ========== SETTERS DE CALLBACKS ==========
@@ -273,11 +382,202 @@ public class AudioService {
      * Libera recursos
      */
     public void dispose() {
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.dispose();
-            mediaPlayer = null;
+        finishSession();
+        discardPreload();
+        finishFade();
+        if (engine != null) {
+            engine.stop();
+            engine.dispose();
+            engine = null;
+        }
+    }
+
+    // ========== PRECARGA ==========
+
+    /**
+     * Indica cómo saber qué canción sonará después de la actual (cola,
+     * aleatorio, repetición). Se consulta cerca del final de cada canción
+     * para precargarla.
+     */
+    public void setUpcomingSong(Supplier<Song> upcomingSong) {
+        this.upcomingSong = upcomingSong;
+    }
+
+    /**
+     * Prepara el reproductor de una canción sin reproducirla; si después se
+     * carga esa canción, empieza sin esperar a abrir el archivo. Descarta la
+     * precarga anterior si era otra canción (null solo descarta).
+     */
+    public void preload(Song song) {
+        if (song == preloadedSong) {
+            return;
+        }
+        discardPreload();
+        if (song == null) {
+            return;
+        }
+        try {
+            preloadedEngine = createEngine(song);
+            preloadedSong = preloadedEngine != null ? song : null;
+        } catch (Exception e) {
+            System.err.println("Error al precargar la canción: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Canción precargada (null si ninguna)
+     */
+    public Song getPreloadedSong() {
+        return preloadedSong;
+    }
+
+    private void preloadNearEnd(Duration position) {
+        if (preloadRequested || upcomingSong == null) {
+            return;
+        }
+        if (totalDuration.get().toMillis() - position.toMillis() <= PRELOAD_AHEAD_MILLIS) {
+            preloadRequested = true;
+            preload(upcomingSong.get());
+        }
+    }
+
+    /**
+     * Libera el reproductor precargado (sus recursos nativos no esperan al GC)
+     */
+    private void discardPreload() {
+        if (preloadedEngine != null) {
+            preloadedEngine.dispose();
+            preloadedEngine = null;
+        }
+        preloadedSong = null;
+    }
+
+    // ========== CROSSFADE ==========
+
+    /**
+     * Duración del crossfade entre canciones (0 = corte directo, hasta
+     * {@link #MAX_CROSSFADE_SECONDS})
+     */
+    public void setCrossfadeSeconds(double seconds) {
+        crossfadeSeconds.set(Math.max(0, Math.min(MAX_CROSSFADE_SECONDS, seconds)));
+    }
+
+    public double getCrossfadeSeconds() {
+        return crossfadeSeconds.get();
+    }
+
+    public DoubleProperty crossfadeSecondsProperty() {
+        return crossfadeSeconds;
+    }
+
+    /**
+     * Con crossfade, el fin de la canción se avisa cuando quedan los segundos
+     * del crossfade: así la siguiente entra mientras esta se apaga
+     */
+    private void signalEndForCrossfade(Duration position) {
+        double fade = getCrossfadeSeconds() * 1000;
+        if (fade <= 0 || totalDuration.get().toMillis() - position.toMillis() > fade) {
+            endSignaled = false; // Un seek hacia atrás vuelve a habilitar el aviso
+            return;
+        }
+        if (!endSignaled && engine != null && engine.getStatus() == PlaybackEngine.Status.PLAYING) {
+            endSignaled = true;
+            if (onEndOfMedia != null)
+                onEndOfMedia.run();
+        }
+    }
+
+    /**
+     * Pasa el reproductor actual al plato saliente: deja de actualizar las
+     * propiedades del servicio y sigue sonando hasta que su ganancia llega a 0
+     */
+    private void startFadeOut(double millis) {
+        PlaybackEngine outgoing = engine;
+        outgoing.currentTimeProperty().removeListener(timeListener);
+        outgoing.statusProperty().removeListener(statusListener);
+        outgoing.setOnReady(null);
+        outgoing.setOnEndOfMedia(this::finishFade);
+        outgoing.setAudioSpectrumListener(null);
+
+        fadingEngine = outgoing;
+        fadingGain = currentGain;
+        currentGain = new SimpleDoubleProperty(0); // El entrante empieza en silencio
+        fadeMillis = millis;
+        fadeStartNanos = 0;
+        if (fadeTimer == null) {
+            fadeTimer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    updateFade(now);
+                }
+            };
+        }
+        fadeTimer.start();
+    }
+
+    /**
+     * Avanza el crossfade en cada pulso. Curva de igual potencia (seno y
+     * coseno): el volumen percibido no baja a mitad del cruce.
+     */
+    private void updateFade(long now) {
+        if (fadeStartNanos == 0) {
+            // El tiempo corre recién cuando el entrante suena
+            if (engine == null || engine.getStatus() != PlaybackEngine.Status.PLAYING) {
+                return;
+            }
+            fadeStartNanos = now;
+        }
+        double t = Math.min(1, (now - fadeStartNanos) / 1_000_000.0 / fadeMillis);
+        currentGain.set(Math.sin(t * Math.PI / 2));
+        fadingGain.set(Math.cos(t * Math.PI / 2));
+        if (t >= 1) {
+            finishFade();
+        }
+    }
+
+    /**
+     * Termina el crossfade en curso (si hay): libera el saliente y deja el
+     * entrante a volumen pleno
+     */
+    private void finishFade() {
+        if (fadeTimer != null) {
+            fadeTimer.stop();
+        }
+        if (fadingEngine != null) {
+            fadingEngine.stop();
+            fadingEngine.dispose();
+            fadingEngine = null;
+            fadingGain = null;
+        }
+        currentGain.set(1);
+    }
+
+    // ========== HISTORIAL ==========
+
+    /**
+     * Suma el avance normal de la reproducción (los seeks no cuentan)
+     */
+    private void countPlayed(Duration oldTime, Duration newTime) {
+        if (oldTime == null || newTime == null || sessionStartedAt == 0) {
+            return;
+        }
+        double delta = newTime.toMillis() - oldTime.toMillis();
+        if (delta > 0 && delta <= MAX_TICK_MILLIS) {
+            sessionPlayedMillis += (long) delta;
+        }
+    }
+
+    /**
+     * Registra en el historial lo que sonó la canción actual (al terminar,
+     * detenerse o cambiar de canción) y empieza una sesión nueva
+     */
+    private void finishSession() {
+        Song song = currentSong.get();
+        if (history != null && song != null && sessionStartedAt != 0) {
+            history.record(song, sessionStartedAt, sessionPlayedMillis);
         }
+        sessionStartedAt = 0;
+        sessionPlayedMillis = 0;
     }
 
     /**
@@ -285,15 +585,16 @@ public class AudioService {
      */
     public void setAudioSpectrumListener(AudioSpectrumListener listener) {
         this.spectrumListener = listener;
-        if (mediaPlayer != null) {
-            mediaPlayer.setAudioSpectrumListener(listener);
+        if (engine != null) {
+            engine.setAudioSpectrumListener(listener);
         }
     }
 
     /**
-     * Obtiene el MediaPlayer actual (para configuraciones avanzadas)
+     * Obtiene el MediaPlayer actual (para configuraciones avanzadas; null con
+     * otros motores)
      */
     public MediaPlayer getMediaPlayer() {
-        return mediaPlayer;
+        return engine instanceof MediaPlayerEngine ? ((MediaPlayerEngine) engine).getMediaPlayer() : null;
     }
 }
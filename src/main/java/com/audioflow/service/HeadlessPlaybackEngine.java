@@ -0,0 +1,314 @@
+package com.audioflow.service;
+
+import com.mpatric.mp3agic.Mp3File;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.util.Duration;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Motor de reproducción sin audio ni toolkit de JavaFX: simula el paso del
+ * tiempo y emite los mismos eventos que los motores reales (listo, posición,
+ * espectro, fin). Permite ejercitar {@link AudioService}, la cola y la
+ * navegación en un servidor sin pantalla ni placa de sonido.
+ *
+ * Con velocidad positiva, un reloj compartido avanza la posición en tiempo
+ * real multiplicado por la velocidad (1 = tiempo real, 50 = cincuenta veces
+ * más rápido). Con velocidad 0 el tiempo solo avanza con {@link #advance},
+ * sin hilos: determinista y tan rápido como se llame.
+ *
+ * La duración se lee del archivo (MP3 con mp3agic; WAV, AIFF y AU con
+ * javax.sound) o se usa {@link #DEFAULT_DURATION}.
+ */
+public class HeadlessPlaybackEngine implements PlaybackEngine {
+
+    public static final Duration DEFAULT_DURATION = Duration.minutes(3);
+    // Cada cuánto tiempo simulado se publica la posición
+    private static final double POSITION_STEP_MILLIS = 100;
+    private static final long TICK_MILLIS = 10;
+    private static final float SILENCE_DB = -60f;
+
+    private static final ScheduledExecutorService CLOCK = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "audioflow-headless-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Executor callbacks;
+    private final double speed;
+    private final Function<File, Duration> durations;
+
+    private final ReadOnlyObjectWrapper<Status> status = new ReadOnlyObjectWrapper<>(Status.LOADING);
+    private final ReadOnlyObjectWrapper<Duration> currentTime = new ReadOnlyObjectWrapper<>(Duration.ZERO);
+    private final DoubleProperty volume = new SimpleDoubleProperty(1.0);
+    private final BooleanProperty muted = new SimpleBooleanProperty(false);
+
+    private Duration duration = Duration.UNKNOWN;
+    private double positionMillis;
+    private double sinceSpectrumMillis;
+    private boolean playWhenReady;
+    private boolean ended;
+    private boolean disposed;
+    private ScheduledFuture<?> ticker;
+    private long lastTickNanos;
+
+    private Runnable onReady;
+    private Runnable onEndOfMedia;
+    private AudioSpectrumListener spectrumListener;
+    private int spectrumBands = 128;
+    private double spectrumInterval = 0.1;
+
+    /**
+     * @param callbacks dónde se ejecutan los eventos (con velocidad positiva,
+     *                  un solo hilo: el del reloj no debe tocar el estado)
+     * @param speed     multiplicador del tiempo real, o 0 para avanzar a mano
+     */
+    public HeadlessPlaybackEngine(Executor callbacks, double speed) {
+        this(callbacks, speed, HeadlessPlaybackEngine::probeDuration);
+    }
+
+    /**
+     * @param durations duración simulada de cada archivo
+     */
+    public HeadlessPlaybackEngine(Executor callbacks, double speed, Function<File, Duration> durations) {
+        this.callbacks = callbacks;
+        this.speed = speed;
+        this.durations = durations;
+    }
+
+    /**
+     * Fábrica para {@link AudioService}
+     */
+    public static Factory factory(Executor callbacks, double speed) {
+        return () -> new HeadlessPlaybackEngine(callbacks, speed);
+    }
+
+    // ========== CARGA ==========
+
+    @Override
+    public void load(File file) {
+        // Asíncrono, como los motores reales
+        callbacks.execute(() -> {
+            if (disposed) {
+                return;
+            }
+            duration = durations.apply(file);
+            status.set(Status.READY);
+            if (onReady != null)
+                onReady.run();
+            if (playWhenReady) {
+                play();
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        stopTicker();
+    }
+
+    // ========== CONTROL ==========
+
+    @Override
+    public void play() {
+        if (disposed) {
+            return;
+        }
+        if (status.get() == Status.LOADING) {
+            playWhenReady = true;
+            return;
+        }
+        if (ended) {
+            seek(Duration.ZERO);
+        }
+        status.set(Status.PLAYING);
+        if (speed > 0 && ticker == null) {
+            lastTickNanos = System.nanoTime();
+            ticker = CLOCK.scheduleAtFixedRate(() -> callbacks.execute(this::tick),
+                    TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void pause() {
+        playWhenReady = false;
+        if (status.get() == Status.PLAYING) {
+            stopTicker();
+            status.set(Status.PAUSED);
+        }
+    }
+
+    @Override
+    public void stop() {
+        playWhenReady = false;
+        if (status.get() != Status.LOADING && !disposed) {
+            stopTicker();
+            seek(Duration.ZERO);
+            status.set(Status.STOPPED);
+        }
+    }
+
+    @Override
+    public void seek(Duration position) {
+        if (status.get() == Status.LOADING || disposed || position == null || position.isUnknown()) {
+            return;
+        }
+        positionMillis = Math.max(0, Math.min(position.toMillis(), totalMillis()));
+        ended = false;
+        currentTime.set(Duration.millis(positionMillis));
+    }
+
+    /**
+     * Avanza el tiempo simulado (solo mientras suena). Publica la posición
+     * en pasos de 100 ms y el espectro a su intervalo, igual que en tiempo
+     * real, y avisa el fin si se llega a la duración.
+     */
+    public void advance(Duration amount) {
+        double remaining = amount.toMillis();
+        while (remaining > 0 && status.get() == Status.PLAYING && !disposed) {
+            double step = Math.min(remaining, Math.min(POSITION_STEP_MILLIS, totalMillis() - positionMillis));
+            positionMillis += step;
+            remaining -= step;
+            currentTime.set(Duration.millis(positionMillis));
+            publishSpectrum(step);
+            if (positionMillis >= totalMillis()) {
+                finished();
+            }
+        }
+    }
+
+    // ========== ESTADO ==========
+
+    @Override
+    public ReadOnlyObjectProperty<Status> statusProperty() {
+        return status.getReadOnlyProperty();
+    }
+
+    @Override
+    public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
+        return currentTime.getReadOnlyProperty();
+    }
+
+    @Override
+    public Duration getDuration() {
+        return duration;
+    }
+
+    @Override
+    public DoubleProperty volumeProperty() {
+        return volume;
+    }
+
+    @Override
+    public BooleanProperty mutedProperty() {
+        return muted;
+    }
+
+    // ========== CALLBACKS ==========
+
+    @Override
+    public void setOnReady(Runnable callback) {
+        this.onReady = callback;
+    }
+
+    @Override
+    public void setOnEndOfMedia(Runnable callback) {
+        this.onEndOfMedia = callback;
+    }
+
+    @Override
+    public void setAudioSpectrum(int bands, double intervalSeconds) {
+        this.spectrumBands = bands;
+        this.spectrumInterval = intervalSeconds;
+    }
+
+    @Override
+    public void setAudioSpectrumListener(AudioSpectrumListener listener) {
+        this.spectrumListener = listener;
+    }
+
+    // ========== DURACIÓN ==========
+
+    /**
+     * Duración real del archivo si se puede leer sin decodificarlo;
+     * si no, {@link #DEFAULT_DURATION}
+     */
+    public static Duration probeDuration(File file) {
+        try {
+            if (file.getName().toLowerCase().endsWith(".mp3")) {
+                return Duration.millis(new Mp3File(file).getLengthInMilliseconds());
+            }
+            AudioFileFormat format = AudioSystem.getAudioFileFormat(file);
+            if (format.getFrameLength() > 0) {
+                return Duration.seconds(format.getFrameLength() / format.getFormat().getFrameRate());
+            }
+        } catch (Exception e) {
+            // Archivo ilegible o formato desconocido: se simula la duración por defecto
+        }
+        return DEFAULT_DURATION;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private void tick() {
+        if (ticker == null || status.get() != Status.PLAYING) {
+            return;
+        }
+        long now = System.nanoTime();
+        double elapsed = (now - lastTickNanos) / 1_000_000.0 * speed;
+        lastTickNanos = now;
+        advance(Duration.millis(elapsed));
+    }
+
+    private void finished() {
+        ended = true;
+        stopTicker();
+        status.set(Status.STOPPED);
+        if (onEndOfMedia != null)
+            onEndOfMedia.run();
+    }
+
+    /**
+     * Espectro de silencio al mismo ritmo que un motor real
+     */
+    private void publishSpectrum(double stepMillis) {
+        if (spectrumListener == null) {
+            return;
+        }
+        sinceSpectrumMillis += stepMillis;
+        if (sinceSpectrumMillis >= spectrumInterval * 1000) {
+            sinceSpectrumMillis = 0;
+            float[] magnitudes = new float[spectrumBands];
+            Arrays.fill(magnitudes, SILENCE_DB);
+            spectrumListener.spectrumDataUpdate(positionMillis / 1000, spectrumInterval, magnitudes,
+                    new float[spectrumBands]);
+        }
+    }
+
+    private double totalMillis() {
+        return duration.isUnknown() ? DEFAULT_DURATION.toMillis() : duration.toMillis();
+    }
+
+    private void stopTicker() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.audioflow.service;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+import java.io.File;
+
+/**
+ * Motor de reproducción con el MediaPlayer de JavaFX (el de siempre).
+ * Decodifica MP3, WAV, AAC y los demás formatos de JavaFX Media.
+ */
+public class MediaPlayerEngine implements PlaybackEngine {
+
+    private MediaPlayer player;
+
+    private final ReadOnlyObjectWrapper<Status> status = new ReadOnlyObjectWrapper<>(Status.LOADING);
+    private final ReadOnlyObjectWrapper<Duration> currentTime = new ReadOnlyObjectWrapper<>(Duration.ZERO);
+    private final DoubleProperty volume = new SimpleDoubleProperty(1.0);
+    private final BooleanProperty muted = new SimpleBooleanProperty(false);
+
+    private Runnable onReady;
+    private Runnable onEndOfMedia;
+    private AudioSpectrumListener spectrumListener;
+    private int spectrumBands = 128;
+    private double spectrumInterval = 0.1;
+
+    // ========== CARGA ==========
+
+    @Override
+    public void load(File file) {
+        try {
+            player = new MediaPlayer(new Media(file.toURI().toString()));
+        } catch (Exception e) {
+            System.err.println("Error al abrir el archivo: " + e.getMessage());
+            status.set(Status.HALTED);
+            return;
+        }
+
+        player.volumeProperty().bind(volume);
+        player.muteProperty().bind(muted);
+        player.setAudioSpectrumNumBands(spectrumBands);
+        player.setAudioSpectrumInterval(spectrumInterval);
+        player.setAudioSpectrumListener(spectrumListener);
+
+        player.currentTimeProperty().addListener((obs, oldTime, newTime) -> currentTime.set(newTime));
+        player.statusProperty().addListener((obs, oldStatus, newStatus) -> status.set(toStatus(newStatus)));
+        player.setOnReady(() -> {
+            if (onReady != null)
+                onReady.run();
+        });
+        player.setOnEndOfMedia(() -> {
+            if (onEndOfMedia != null)
+                onEndOfMedia.run();
+        });
+        player.setOnError(() -> System.err.println("Error de reproducción: " + player.getError().getMessage()));
+    }
+
+    @Override
+    public void dispose() {
+        if (player != null) {
+            player.stop();
+            player.dispose();
+            player = null;
+        }
+    }
+
+    // ========== CONTROL ==========
+
+    @Override
+    public void play() {
+        if (player != null) {
+            player.play();
+        }
+    }
+
+    @Override
+    public void pause() {
+        if (player != null) {
+            player.pause();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (player != null) {
+            player.stop();
+        }
+    }
+
+    @Override
+    public void seek(Duration position) {
+        if (player != null) {
+            player.seek(position);
+        }
+    }
+
+    // ========== ESTADO ==========
+
+    @Override
+    public ReadOnlyObjectProperty<Status> statusProperty() {
+        return status.getReadOnlyProperty();
+    }
+
+    @Override
+    public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
+        return currentTime.getReadOnlyProperty();
+    }
+
+    @Override
+    public Duration getDuration() {
+        return player != null ? player.getMedia().getDuration() : Duration.UNKNOWN;
+    }
+
+    @Override
+    public DoubleProperty volumeProperty() {
+        return volume;
+    }
+
+    @Override
+    public BooleanProperty mutedProperty() {
+        return muted;
+    }
+
+    /**
+     * El MediaPlayer subyacente (null antes de cargar o después de liberar)
+     */
+    public MediaPlayer getMediaPlayer() {
+        return player;
+    }
+
+    // ========== CALLBACKS ==========
+
+    @Override
+    public void setOnReady(Runnable callback) {
+        this.onReady = callback;
+    }
+
+    @Override
+    public void setOnEndOfMedia(Runnable callback) {
+        this.onEndOfMedia = callback;
+    }
+
+    @Override
+    public void setAudioSpectrum(int bands, double intervalSeconds) {
+        this.spectrumBands = bands;
+        this.spectrumInterval = intervalSeconds;
+        if (player != null) {
+            player.setAudioSpectrumNumBands(bands);
+            player.setAudioSpectrumInterval(intervalSeconds);
+        }
+    }
+
+    @Override
+    public void setAudioSpectrumListener(AudioSpectrumListener listener) {
+        this.spectrumListener = listener;
+        if (player != null) {
+            player.setAudioSpectrumListener(listener);
+        }
+    }
+
+    private static Status toStatus(MediaPlayer.Status status) {
+        switch (status) {
+            case READY:
+                return Status.READY;
+            case PLAYING:
+                return Status.PLAYING;
+            case PAUSED:
+                return Status.PAUSED;
+            case STOPPED:
+                return Status.STOPPED;
+            case HALTED:
+            case DISPOSED:
+                return Status.HALTED;
+            default:
+                return Status.LOADING;
+        }
+    }
+}
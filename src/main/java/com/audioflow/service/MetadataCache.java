@@ -0,0 +1,326 @@
+package com.audioflow.service;
+
+import com.audioflow.model.LibraryRegistry;
+import com.audioflow.model.Song;
+import com.audioflow.util.DragDropHandler;
+import com.audioflow.util.StringPool;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caché persistente de metadatos por pista (título, artista, álbum, duración).
+ * Evita volver a parsear cada archivo con mp3agic al cargar o importar playlists.
+ * Una entrada es válida mientras el archivo conserve su tamaño y fecha de
+ * modificación.
+ *
+ * Formato: un archivo de texto con una línea por pista, campos separados por tab
+ * (la v2 agrega al final la fecha de alta, que no se guarda en otro lado para
+ * las canciones que no están en ninguna playlist).
+ * El archivo es de solo agregado: {@link #save()} agenda en un hilo de fondo la
+ * escritura de las entradas nuevas al final (si una pista aparece varias veces,
+ * vale la última). Cuando las líneas repetidas superan a las vigentes, el
+ * archivo se reescribe entero, también en segundo plano.
+ */
+public class MetadataCache {
+
+    private static final String CACHE_FILE = "metadata-cache.tsv";
+    private static final String HEADER = "# AudioFlow metadata cache v2";
+    // Reescribir el archivo cuando tenga más del doble de líneas que entradas vigentes
+    private static final int COMPACT_MIN_LINES = 1024;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "metadata-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static MetadataCache shared;
+
+    private final Path cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Rutas con entradas aún no escritas al archivo
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean loaded = false;
+    private int fileLines; // Líneas de entradas en el archivo (con repetidas)
+
+    public MetadataCache(Path directory) {
+        this.cacheFile = directory.resolve(CACHE_FILE);
+    }
+
+    /**
+     * Caché compartida en el directorio de datos de la aplicación
+     */
+    public static synchronized MetadataCache getShared() {
+        if (shared == null) {
+            shared = new MetadataCache(PlaylistService.defaultStoragePath());
+        }
+        return shared;
+    }
+
+    /**
+     * Devuelve la canción de un archivo. Si ya está en el {@link LibraryRegistry}
+     * se reutiliza; si no, se crea con los metadatos en caché si siguen
+     * vigentes, o extrayéndolos del archivo (y guardándolos en la caché).
+     * Las canciones servidas desde la caché no traen carátula (se carga bajo demanda).
+     */
+    public Song createSong(File file) {
+        return LibraryRegistry.shared().resolve(file, this::readSong);
+    }
+
+    /**
+     * Registra (o actualiza) los metadatos de una canción
+     */
+    public void put(File file, Song song) {
+        ensureLoaded();
+        String path = file.getAbsolutePath();
+        long millis = song.getDurationMillis();
+        entries.put(path, new Entry(file.lastModified(), file.length(), millis,
+                song.getTitle(), song.getArtist(), song.getAlbum(), song.getAddedAt()));
+        // Después de actualizar el mapa: la escritura siempre ve la entrada nueva
+        pending.add(path);
+    }
+
+    /**
+     * Agenda la escritura de los cambios en segundo plano (no bloquea).
+     * Varias llamadas seguidas se agrupan en una sola escritura.
+     */
+    public void save() {
+        if (!pending.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            WRITER.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Escribe ya los cambios pendientes (por ejemplo, al cerrar la aplicación)
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            if (fileLines > COMPACT_MIN_LINES && fileLines > 2 * entries.size()) {
+                rewrite();
+            } else {
+                append();
+            }
+        } catch (IOException e) {
+            System.err.println("Error guardando caché de metadatos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Duración cacheada de una pista, sin abrir el archivo ni validar la
+     * entrada (para estimaciones como el total de una playlist)
+     *
+     * @return la duración en milisegundos, o 0 si no está en la caché
+     */
+    public long getCachedDurationMillis(String path) {
+        ensureLoaded();
+        Entry entry = entries.get(new File(path).getAbsolutePath());
+        return entry != null ? entry.durationMillis : 0;
+    }
+
+    public int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private Song readSong(File file) {
+        ensureLoaded();
+
+        String path = file.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.matches(file)) {
+            Song song = new Song(entry.title, entry.artist, entry.album, entry.durationMillis, path);
+            if (entry.addedAt > 0) {
+                song.setAddedAt(entry.addedAt);
+            } else {
+                // Entrada de la v1: se fija la fecha de alta desde ahora
+                song.setAddedAt(System.currentTimeMillis());
+                put(file, song);
+            }
+            return song;
+        }
+
+        Song song = DragDropHandler.createSongFromFile(file);
+        // La fecha de alta es la de la primera vez que se vio la ruta (aunque el archivo cambie)
+        song.setAddedAt(entry != null && entry.addedAt > 0 ? entry.addedAt : System.currentTimeMillis());
+        put(file, song);
+        return song;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        if (Files.exists(cacheFile)) {
+            StringPool pool = StringPool.shared();
+            try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] f = line.split("\t", -1);
+                    fileLines++;
+                    if (f.length < 7) {
+                        continue; // Línea corrupta, se ignora
+                    }
+                    try {
+                        // Las líneas de la v1 no tienen fecha de alta
+                        long addedAt = f.length > 7 ? Long.parseLong(f[7]) : 0;
+                        // Artista y álbum se repiten entre entradas: una sola copia de cada uno
+                        entries.put(f[0], new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]),
+                                Long.parseLong(f[3]), f[4], pool.intern(f[5]), pool.intern(f[6]), addedAt));
+                    } catch (NumberFormatException e) {
+                        // Línea corrupta, se ignora
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error leyendo caché de metadatos: " + e.getMessage());
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Agrega al final las entradas pendientes
+     */
+    private void append() throws IOException {
+        boolean exists = Files.exists(cacheFile);
+        try (BufferedWriter writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (!exists) {
+                writer.write(HEADER);
+                writer.newLine();
+            } else if (!endsWithNewline()) {
+                writer.newLine(); // Última línea cortada por un cierre abrupto
+            }
+            String path;
+            while ((path = pending.poll()) != null) {
+                Entry entry = entries.get(path);
+                if (entry != null) {
+                    writeEntry(writer, path, entry);
+                    fileLines++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reescribe el archivo solo con las entradas vigentes (escritura atómica vía
+     * archivo temporal). Lo que se agregue mientras tanto queda pendiente para
+     * la próxima escritura.
+     */
+    private void rewrite() throws IOException {
+        // Vaciar antes de recorrer el mapa: lo que llegue después vuelve a quedar pendiente
+        pending.clear();
+        Path tmp = cacheFile.resolveSibling(CACHE_FILE + ".tmp");
+        int lines = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                writeEntry(writer, e.getKey(), e.getValue());
+                lines++;
+            }
+        }
+        Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        fileLines = lines;
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(cacheFile)) {
+            long size = channel.size();
+            if (size == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(size - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private static void writeEntry(BufferedWriter writer, String path, Entry v) throws IOException {
+        writer.write(clean(path));
+        writer.write('\t');
+        writer.write(Long.toString(v.lastModified));
+        writer.write('\t');
+        writer.write(Long.toString(v.size));
+        writer.write('\t');
+        writer.write(Long.toString(v.durationMillis));
+        writer.write('\t');
+        writer.write(clean(v.title));
+        writer.write('\t');
+        writer.write(clean(v.artist));
+        writer.write('\t');
+        writer.write(clean(v.album));
+        writer.write('\t');
+        writer.write(Long.toString(v.addedAt));
+        writer.newLine();
+    }
+
+    private static String clean(String value) {
+        if (value == null)
+            return "";
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Metadatos cacheados de una pista
+     */
+    private static final class Entry {
+        final long lastModified;
+        final long size;
+        final long durationMillis;
+        final String title;
+        final String artist;
+        final String album;
+        final long addedAt; // Primera vez que la pista entró a la biblioteca (0 = desconocida)
+
+        Entry(long lastModified, long size, long durationMillis, String title, String artist, String album,
+                long addedAt) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.durationMillis = durationMillis;
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+            this.addedAt = addedAt;
+        }
+
+        boolean matches(File file) {
+            return file.lastModified() == lastModified && file.length() == size;
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.audioflow.service;
+
+import com.audioflow.util.ByteRingBuffer;
+import com.audioflow.util.SpectrumAnalyzer;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.util.Duration;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Motor de reproducción propio sobre javax.sound.sampled: decodifica el
+ * archivo a PCM de 16 bits y lo escribe en una SourceDataLine.
+ *
+ * Usa dos hilos por canción. El decodificador llena un {@link ByteRingBuffer},
+ * reservado una sola vez. El hilo de audio lo vacía hacia la línea y sobre
+ * esas mismas muestras aplica el volumen y calcula el espectro. La latencia
+ * la fija el buffer de la línea (~100 ms) y un decodificador lento no corta
+ * el audio mientras quede buffer.
+ *
+ * Decodifica los formatos que soporte javax.sound en el classpath: WAV, AIFF
+ * y AU de fábrica; MP3 u OGG con el SPI correspondiente.
+ */
+public class PcmPlaybackEngine implements PlaybackEngine {
+
+    private static final int RING_BYTES = 1 << 18; // ~1.5 s de 44.1 kHz estéreo
+    private static final int CHUNK_BYTES = 4096;
+    private static final double LINE_BUFFER_SECONDS = 0.1;
+    private static final long POSITION_INTERVAL_NANOS = 100_000_000L; // 10 veces por segundo
+    private static final long READ_TIMEOUT_MILLIS = 50;
+    // Si la línea deja de avanzar tanto tiempo al final, ya sonó todo
+    private static final long END_STALL_NANOS = 500_000_000L;
+    private static final int SPECTRUM_SIZE = 1024;
+    private static final float SPECTRUM_THRESHOLD = -60f;
+
+    private final Executor callbacks;
+    private final ByteRingBuffer ring = new ByteRingBuffer(RING_BYTES);
+
+    private final ReadOnlyObjectWrapper<Status> status = new ReadOnlyObjectWrapper<>(Status.LOADING);
+    private final ReadOnlyObjectWrapper<Duration> currentTime = new ReadOnlyObjectWrapper<>(Duration.ZERO);
+    private final DoubleProperty volume = new SimpleDoubleProperty(1.0);
+    private final BooleanProperty muted = new SimpleBooleanProperty(false);
+    private volatile float gain = 1f; // Volumen efectivo, lo lee el hilo de audio
+
+    private File file;
+    private volatile AudioFormat format; // PCM 16 bits con signo, little endian
+    private volatile long totalFrames = AudioSystem.NOT_SPECIFIED;
+    private volatile SourceDataLine line;
+    private Thread decoderThread;
+    private Thread audioThread;
+    private volatile boolean disposed;
+    private boolean playWhenReady;
+    private boolean ended;
+
+    private Runnable onReady;
+    private Runnable onEndOfMedia;
+    private volatile AudioSpectrumListener spectrumListener;
+    private volatile int spectrumBands = 128;
+    private volatile double spectrumInterval = 0.1;
+    private final AtomicBoolean positionPending = new AtomicBoolean();
+
+    /**
+     * Motor que entrega los eventos en el hilo de JavaFX
+     */
+    public PcmPlaybackEngine() {
+        this(Platform::runLater);
+    }
+
+    /**
+     * @param callbacks dónde se ejecutan los callbacks y los cambios de propiedades
+     */
+    public PcmPlaybackEngine(Executor callbacks) {
+        this.callbacks = callbacks;
+        volume.addListener(obs -> updateGain());
+        muted.addListener(obs -> updateGain());
+    }
+
+    // ========== CARGA ==========
+
+    @Override
+    public void load(File file) {
+        this.file = file;
+        decoderThread = new Thread(this::decodeLoop, "audioflow-pcm-decoder");
+        decoderThread.setDaemon(true);
+        decoderThread.start();
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        ring.close();
+        SourceDataLine l = line;
+        if (l != null) {
+            l.stop();
+            l.flush();
+            l.close(); // Desbloquea al hilo de audio si estaba escribiendo
+        }
+        if (decoderThread != null) {
+            decoderThread.interrupt();
+        }
+        if (audioThread != null) {
+            audioThread.interrupt();
+        }
+    }
+
+    // ========== CONTROL ==========
+
+    @Override
+    public void play() {
+        if (disposed) {
+            return;
+        }
+        if (line == null) {
+            playWhenReady = true; // Empieza al terminar de cargar, como MediaPlayer
+            return;
+        }
+        if (ended) {
+            seek(Duration.ZERO);
+        }
+        line.start();
+        status.set(Status.PLAYING);
+    }
+
+    @Override
+    public void pause() {
+        playWhenReady = false;
+        if (line != null && !disposed) {
+            line.stop(); // Lo que queda en la línea se conserva
+            status.set(Status.PAUSED);
+        }
+    }
+
+    @Override
+    public void stop() {
+        playWhenReady = false;
+        if (line != null && !disposed) {
+            line.stop();
+            seek(Duration.ZERO);
+            status.set(Status.STOPPED);
+        }
+    }
+
+    @Override
+    public void seek(Duration position) {
+        AudioFormat f = format;
+        if (f == null || line == null || disposed || position == null || position.isUnknown()) {
+            return;
+        }
+        long frame = Math.max(0, (long) (position.toSeconds() * f.getFrameRate()));
+        if (totalFrames >= 0) {
+            frame = Math.min(frame, totalFrames);
+        }
+        ended = false;
+        // Generación nueva: el decodificador reabre en la posición pedida y
+        // el hilo de audio descarta lo que quedaba de la anterior
+        ring.reset(frame);
+        line.flush();
+        currentTime.set(Duration.seconds(frame / f.getFrameRate()));
+    }
+
+    // ========== ESTADO ==========
+
+    @Override
+    public ReadOnlyObjectProperty<Status> statusProperty() {
+        return status.getReadOnlyProperty();
+    }
+
+    @Override
+    public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
+        return currentTime.getReadOnlyProperty();
+    }
+
+    @Override
+    public Duration getDuration() {
+        AudioFormat f = format;
+        if (f == null || totalFrames < 0) {
+            return Duration.UNKNOWN;
+        }
+        return Duration.seconds(totalFrames / f.getFrameRate());
+    }
+
+    @Override
+    public DoubleProperty volumeProperty() {
+        return volume;
+    }
+
+    @Override
+    public BooleanProperty mutedProperty() {
+        return muted;
+    }
+
+    // ========== CALLBACKS ==========
+
+    @Override
+    public void setOnReady(Runnable callback) {
+        this.onReady = callback;
+    }
+
+    @Override
+    public void setOnEndOfMedia(Runnable callback) {
+        this.onEndOfMedia = callback;
+    }
+
+    @Override
+    public void setAudioSpectrum(int bands, double intervalSeconds) {
+        this.spectrumBands = bands;
+        this.spectrumInterval = intervalSeconds;
+    }
+
+    @Override
+    public void setAudioSpectrumListener(AudioSpectrumListener listener) {
+        this.spectrumListener = listener;
+    }
+
+    // ========== HILO DECODIFICADOR ==========
+
+    private void decodeLoop() {
+        AudioInputStream in = null;
+        try {
+            in = open(0);
+            SourceDataLine l = openLine(format);
+            // Publicar antes de mirar disposed (ambos volátiles): si dispose()
+            // corre en medio, al menos uno de los dos ve al otro y cierra la línea
+            line = l;
+            if (disposed) {
+                l.close();
+                return;
+            }
+            audioThread = new Thread(this::audioLoop, "audioflow-pcm-audio");
+            audioThread.setDaemon(true);
+            audioThread.setPriority(Thread.MAX_PRIORITY);
+            audioThread.start();
+            callbacks.execute(this::loaded);
+
+            byte[] buffer = new byte[CHUNK_BYTES - CHUNK_BYTES % format.getFrameSize()];
+            long gen = ring.generation();
+            boolean eof = false;
+            while (!disposed) {
+                long current = ring.generation();
+                if (current != gen) {
+                    in.close();
+                    gen = current;
+                    in = open(ring.startFrame());
+                    eof = false;
+                }
+                if (eof) {
+                    ring.awaitGenerationChange(gen);
+                    continue;
+                }
+                int n = in.read(buffer);
+                if (n < 0) {
+                    ring.markEnd(gen);
+                    eof = true;
+                } else if (n > 0) {
+                    ring.write(buffer, 0, n, gen); // Rechazado si hubo un seek mientras tanto
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (!disposed) {
+                System.err.println("Error de reproducción PCM: " + e.getMessage());
+                callbacks.execute(() -> status.set(Status.HALTED));
+            }
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Abre la salida de audio para el formato del archivo
+     */
+    protected SourceDataLine openLine(AudioFormat format) throws LineUnavailableException {
+        SourceDataLine l = AudioSystem.getSourceDataLine(format);
+        l.open(format, (int) (format.getFrameRate() * LINE_BUFFER_SECONDS) * format.getFrameSize());
+        return l;
+    }
+
+    /**
+     * Abre el archivo convertido a PCM de 16 bits, posicionado en un frame
+     */
+    private AudioInputStream open(long startFrame) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream source = AudioSystem.getAudioInputStream(file);
+        AudioFormat base = source.getFormat();
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, base.getSampleRate(), 16,
+                base.getChannels(), base.getChannels() * 2, base.getSampleRate(), false);
+        AudioInputStream in = base.matches(pcm) ? source : AudioSystem.getAudioInputStream(pcm, source);
+        if (format == null) {
+            totalFrames = frameLength(source, pcm);
+            format = pcm;
+        }
+
+        long skip = startFrame * pcm.getFrameSize();
+        byte[] scratch = null;
+        while (skip > 0) {
+            long skipped = in.skip(skip);
+            if (skipped <= 0) {
+                // Algunos decodificadores no saltan: se lee y descarta
+                if (scratch == null) {
+                    scratch = new byte[CHUNK_BYTES];
+                }
+                skipped = in.read(scratch, 0, (int) Math.min(scratch.length, skip));
+                if (skipped < 0) {
+                    break;
+                }
+            }
+            skip -= skipped;
+        }
+        return in;
+    }
+
+    /**
+     * Cantidad de frames del archivo (NOT_SPECIFIED si no se puede saber).
+     * Los decodificadores de formatos comprimidos suelen informar la
+     * duración en las propiedades del archivo.
+     */
+    private long frameLength(AudioInputStream source, AudioFormat pcm) {
+        if (source.getFrameLength() != AudioSystem.NOT_SPECIFIED
+                && source.getFormat().getFrameRate() == pcm.getFrameRate()) {
+            return source.getFrameLength();
+        }
+        try {
+            AudioFileFormat fileFormat = AudioSystem.getAudioFileFormat(file);
+            Object micros = fileFormat.properties().get("duration");
+            if (micros instanceof Long) {
+                return (long) ((Long) micros / 1_000_000.0 * pcm.getFrameRate());
+            }
+        } catch (IOException | UnsupportedAudioFileException e) {
+            // Sin duración conocida
+        }
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    /**
+     * En el hilo de la aplicación, al terminar de abrir el archivo
+     */
+    private void loaded() {
+        if (disposed) {
+            return;
+        }
+        status.set(Status.READY);
+        if (onReady != null)
+            onReady.run();
+        if (playWhenReady) {
+            play();
+        }
+    }
+
+    // ========== HILO DE AUDIO ==========
+
+    private void audioLoop() {
+        SourceDataLine l = line;
+        AudioFormat f = format;
+        int frameSize = f.getFrameSize();
+        int channels = f.getChannels();
+        byte[] chunk = new byte[CHUNK_BYTES - CHUNK_BYTES % frameSize];
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SPECTRUM_SIZE);
+
+        long gen = ring.generation();
+        long genStart = 0; // Frame del archivo donde empezó la generación
+        long lineOrigin = 0; // Posición de la línea en ese momento
+        long written = 0; // Frames escritos a la línea en esta generación
+        long spectrumFrames = 0;
+        long lastPost = 0;
+        try {
+            while (!disposed) {
+                int n = ring.read(chunk, 0, chunk.length, READ_TIMEOUT_MILLIS);
+                if (ring.readGeneration() != gen) {
+                    // Hubo un seek: lo que quedaba en la línea es de la posición vieja
+                    l.flush();
+                    gen = ring.readGeneration();
+                    genStart = ring.readStartFrame();
+                    lineOrigin = l.getLongFramePosition();
+                    written = 0;
+                }
+                if (n < 0) {
+                    awaitPlayed(l, gen, lineOrigin, written, genStart);
+                    continue;
+                }
+                if (n > 0) {
+                    float g = gain;
+                    if (g != 1f) {
+                        applyGain(chunk, n, g);
+                    }
+                    if (spectrumListener != null) {
+                        spectrumFrames += feedSpectrum(analyzer, chunk, n, channels);
+                        if (spectrumFrames >= spectrumInterval * f.getFrameRate()) {
+                            spectrumFrames = 0;
+                            postSpectrum(analyzer, genStart + written);
+                        }
+                    }
+                    l.write(chunk, 0, n); // Espera si la línea está llena o en pausa
+                    written += n / frameSize;
+                }
+                long now = System.nanoTime();
+                if (now - lastPost >= POSITION_INTERVAL_NANOS && l.isRunning()) {
+                    lastPost = now;
+                    postPosition(gen, genStart + l.getLongFramePosition() - lineOrigin);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            if (!disposed) {
+                System.err.println("Error en el hilo de audio: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Se terminaron los datos: espera a que la línea reproduzca lo que le
+     * queda, avisa el fin y espera un seek (o la liberación)
+     */
+    private void awaitPlayed(SourceDataLine l, long gen, long lineOrigin, long written, long genStart)
+            throws InterruptedException {
+        long lastPosition = -1;
+        long lastProgress = System.nanoTime();
+        while (!disposed && ring.generation() == gen) {
+            long played = l.getLongFramePosition() - lineOrigin;
+            if (played >= written) {
+                break;
+            }
+            long now = System.nanoTime();
+            if (played != lastPosition || !l.isRunning()) {
+                lastPosition = played;
+                lastProgress = now;
+            } else if (now - lastProgress > END_STALL_NANOS) {
+                break;
+            }
+            postPosition(gen, genStart + played);
+            Thread.sleep(10);
+        }
+        if (!disposed && ring.generation() == gen) {
+            callbacks.execute(() -> finished(gen));
+            ring.awaitGenerationChange(gen);
+        }
+    }
+
+    /**
+     * En el hilo de la aplicación, al terminar de sonar el archivo
+     */
+    private void finished(long gen) {
+        if (disposed || ring.generation() != gen) {
+            return; // Hubo un seek mientras se avisaba
+        }
+        ended = true;
+        line.stop();
+        currentTime.set(getDuration().isUnknown() ? currentTime.get() : getDuration());
+        status.set(Status.STOPPED);
+        if (onEndOfMedia != null)
+            onEndOfMedia.run();
+    }
+
+    private void postPosition(long gen, long frame) {
+        if (!positionPending.compareAndSet(false, true)) {
+            return; // El anterior todavía no se procesó: no se acumulan
+        }
+        Duration time = Duration.seconds(frame / format.getFrameRate());
+        callbacks.execute(() -> {
+            positionPending.set(false);
+            if (!disposed && !ended && ring.generation() == gen) {
+                currentTime.set(time);
+            }
+        });
+    }
+
+    private void postSpectrum(SpectrumAnalyzer analyzer, long frame) {
+        AudioSpectrumListener listener = spectrumListener;
+        float[] magnitudes = new float[spectrumBands];
+        analyzer.compute(magnitudes, SPECTRUM_THRESHOLD);
+        float[] phases = new float[magnitudes.length];
+        double timestamp = frame / format.getFrameRate();
+        double interval = spectrumInterval;
+        callbacks.execute(() -> {
+            if (!disposed) {
+                listener.spectrumDataUpdate(timestamp, interval, magnitudes, phases);
+            }
+        });
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private void updateGain() {
+        gain = muted.get() ? 0f : (float) Math.max(0, Math.min(1, volume.get()));
+    }
+
+    /**
+     * Escala las muestras de 16 bits little endian
+     */
+    private static void applyGain(byte[] data, int length, float gain) {
+        for (int i = 0; i + 1 < length; i += 2) {
+            int sample = (short) ((data[i] & 0xff) | (data[i + 1] << 8));
+            sample = Math.round(sample * gain);
+            data[i] = (byte) sample;
+            data[i + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Pasa las muestras (mezcladas a mono) al analizador
+     *
+     * @return frames agregados
+     */
+    private static int feedSpectrum(SpectrumAnalyzer analyzer, byte[] data, int length, int channels) {
+        int frameBytes = channels * 2;
+        int frames = length / frameBytes;
+        for (int frame = 0; frame < frames; frame++) {
+            int base = frame * frameBytes;
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                int i = base + c * 2;
+                sum += (short) ((data[i] & 0xff) | (data[i + 1] << 8));
+            }
+            analyzer.push(sum / (32768f * channels));
+        }
+        return frames;
+    }
+
+    private static void closeQuietly(AudioInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nada que hacer
+            }
+        }
+    }
+}
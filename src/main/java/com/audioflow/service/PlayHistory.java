@@ -0,0 +1,367 @@
+package com.audioflow.service;
+
+import com.audioflow.model.LibraryRegistry;
+import com.audioflow.model.Song;
+import com.audioflow.util.LongHashMap;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Historial de reproducción.
+ *
+ * Cada vez que termina de sonar una canción (terminó, se saltó o se detuvo)
+ * se escribe un registro (id de canción, inicio, milisegundos escuchados) en
+ * un buffer circular de tamaño fijo mapeado a memoria: escribir es copiar 24
+ * bytes, sin E/S explícita, y al llenarse se pisan los registros más viejos.
+ * "Escuchadas recientemente" se lee hacia atrás desde el último registro, sin
+ * recorrer el archivo.
+ *
+ * Los totales por canción (reproducciones, última vez, tiempo escuchado) se
+ * mantienen en memoria y se guardan cada tanto con un {@link SnapshotStore}.
+ * Al abrir se carga ese punto de control y se reaplican los registros del
+ * buffer posteriores a él, así una caída no pierde reproducciones.
+ */
+public class PlayHistory {
+
+    private static final String HISTORY_FILE = "play-history.bin";
+    private static final String COUNTS_FILE = "play-counts.tsv";
+    private static final String COUNTS_HEADER = "written=";
+    // Ids alternativos que tomaron rutas con colisión de hash (id, tabulador, ruta)
+    private static final String IDS_FILE = "song-ids.tsv";
+
+    // Cabecera: magic, versión, capacidad, (libre), total de registros escritos
+    private static final int MAGIC = 0x41464831; // "AFH1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int WRITTEN_OFFSET = 16;
+    // Registro: id de canción, inicio (epoch ms), milisegundos escuchados, marcas
+    private static final int RECORD_BYTES = 24;
+    private static final int FLAG_COUNTED = 1;
+
+    public static final int DEFAULT_CAPACITY = 1 << 16; // ~1.5 MB
+    // Se guardan los totales cada tantos registros (el buffer cubre el resto)
+    private static final int CHECKPOINT_EVERY = 16;
+    // Una reproducción cuenta si se escuchó al menos esto o la mitad de la canción
+    private static final long MIN_COUNTED_MILLIS = 30_000;
+
+    private static PlayHistory shared;
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final SnapshotStore countsStore;
+    private final LongHashMap<SongStats> stats = new LongHashMap<>(1024);
+    private long written; // Total de registros escritos (el siguiente va en written % capacity)
+    private long checkpointed;
+
+    public PlayHistory(Path directory, int capacity) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(HISTORY_FILE);
+        this.countsStore = SnapshotStore.forFile(directory.resolve(COUNTS_FILE),
+                content -> content.startsWith(COUNTS_HEADER));
+
+        int existing = readCapacity(file);
+        this.capacity = existing > 0 ? existing : capacity;
+        long size = HEADER_BYTES + (long) this.capacity * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        if (existing > 0) {
+            written = buffer.getLong(WRITTEN_OFFSET);
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, this.capacity);
+            buffer.putLong(WRITTEN_OFFSET, 0);
+        }
+        loadCounts();
+    }
+
+    /**
+     * Historial compartido en el directorio de datos de la aplicación.
+     * Aplica los totales guardados a cada canción que se registra en la biblioteca.
+     *
+     * @return el historial, o null si no se pudo abrir el archivo
+     */
+    public static synchronized PlayHistory getShared() {
+        if (shared == null) {
+            try {
+                shared = new PlayHistory(PlaylistService.defaultStoragePath(), DEFAULT_CAPACITY);
+                pinSongIds(PlaylistService.defaultStoragePath().resolve(IDS_FILE));
+                LibraryRegistry.shared().addRegistrationListener(shared::applyTo);
+                System.out.println("✓ Historial de reproducción: " + shared.size() + " registros");
+            } catch (IOException e) {
+                System.err.println("No se pudo abrir el historial de reproducción: " + e.getMessage());
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Los ids se guardan en el historial: si una ruta tuvo que tomar un id
+     * alternativo por colisión, se anota para que lo recupere en cada
+     * ejecución, se registre antes o después que la ruta con la que colisiona
+     */
+    private static void pinSongIds(Path file) {
+        Map<String, Long> assignments = new HashMap<>();
+        if (Files.exists(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    int tab = line.indexOf('\t');
+                    if (tab <= 0) {
+                        continue;
+                    }
+                    try {
+                        assignments.put(line.substring(tab + 1), Long.parseLong(line.substring(0, tab)));
+                    } catch (NumberFormatException e) {
+                        // Línea cortada por una caída: se ignora
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("No se pudieron leer los ids de canciones: " + e.getMessage());
+            }
+        }
+        LibraryRegistry.shared().pinIds(assignments, (path, id) -> {
+            try {
+                Files.writeString(file, id + "\t" + path + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("No se pudo guardar el id de " + path + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // ========== REGISTRO ==========
+
+    /**
+     * Registra que una canción sonó. Cuenta como reproducción si se escuchó
+     * al menos 30 segundos o la mitad de la canción; el registro se guarda
+     * igual (sirve para "escuchadas recientemente").
+     */
+    public synchronized void record(Song song, long startedAt, long playedMillis) {
+        long id = song.getId() != 0 ? song.getId() : LibraryRegistry.shared().register(song).getId();
+        long duration = song.getDurationMillis();
+        boolean counted = playedMillis >= MIN_COUNTED_MILLIS || (duration > 0 && playedMillis * 2 >= duration);
+        int played = (int) Math.min(playedMillis, Integer.MAX_VALUE);
+        append(id, startedAt, played, counted);
+
+        apply(id, startedAt, played, counted);
+        if (counted) {
+            song.recordPlay(startedAt);
+        }
+        if (written - checkpointed >= CHECKPOINT_EVERY) {
+            saveCounts();
+        }
+    }
+
+    /**
+     * Copia a la canción los totales guardados (al registrarla en la biblioteca)
+     */
+    public synchronized void applyTo(Song song) {
+        SongStats s = stats.get(song.getId());
+        if (s != null) {
+            if (s.playCount > song.getPlayCount()) {
+                song.setPlayCount(s.playCount);
+            }
+            if (s.lastPlayed > song.getLastPlayed()) {
+                song.setLastPlayed(s.lastPlayed);
+            }
+        }
+    }
+
+    // ========== CONSULTAS ==========
+
+    public synchronized int getPlayCount(long songId) {
+        SongStats s = stats.get(songId);
+        return s != null ? s.playCount : 0;
+    }
+
+    /**
+     * Última vez que sonó (epoch ms, 0 si nunca)
+     */
+    public synchronized long getLastPlayed(long songId) {
+        SongStats s = stats.get(songId);
+        return s != null ? s.lastPlayed : 0;
+    }
+
+    /**
+     * Tiempo total escuchado de una canción
+     */
+    public synchronized long getPlayedMillis(long songId) {
+        SongStats s = stats.get(songId);
+        return s != null ? s.playedMillis : 0;
+    }
+
+    /**
+     * Ids de las últimas canciones escuchadas, de la más reciente a la más
+     * vieja y sin repetir. Lee hacia atrás desde el último registro y se
+     * detiene al juntar {@code limit}.
+     */
+    public synchronized List<Long> recentSongIds(int limit) {
+        List<Long> result = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        long oldest = Math.max(0, written - capacity);
+        for (long n = written - 1; n >= oldest && result.size() < limit; n--) {
+            long id = buffer.getLong(offsetOf(n));
+            if (seen.add(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Registros guardados en el buffer (como máximo su capacidad)
+     */
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    // ========== BUFFER CIRCULAR ==========
+
+    private void append(long songId, long startedAt, int playedMillis, boolean counted) {
+        int offset = offsetOf(written);
+        buffer.putLong(offset, songId);
+        buffer.putLong(offset + 8, startedAt);
+        buffer.putInt(offset + 16, playedMillis);
+        buffer.putInt(offset + 20, counted ? FLAG_COUNTED : 0);
+        // El contador se actualiza después del registro: si el proceso cae en
+        // medio, el registro incompleto queda fuera
+        written++;
+        buffer.putLong(WRITTEN_OFFSET, written);
+    }
+
+    private int offsetOf(long recordNumber) {
+        return HEADER_BYTES + (int) (recordNumber % capacity) * RECORD_BYTES;
+    }
+
+    /**
+     * Capacidad de un archivo de historial existente y válido (0 si no hay)
+     */
+    private static int readCapacity(Path file) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            java.nio.ByteBuffer header = java.nio.ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Leer la cabecera completa
+            }
+            int capacity = header.getInt(8);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION && capacity > 0
+                    && channel.size() == HEADER_BYTES + (long) capacity * RECORD_BYTES) {
+                return capacity;
+            }
+        } catch (IOException e) {
+            System.err.println("Error leyendo historial: " + e.getMessage());
+        }
+
+        System.err.println("⚠ Historial de reproducción dañado; se empieza uno nuevo");
+        try {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("No se pudo apartar el historial dañado: " + e.getMessage());
+        }
+        return 0;
+    }
+
+    // ========== TOTALES POR CANCIÓN ==========
+
+    /**
+     * Suma un registro a los totales
+     */
+    private void apply(long songId, long startedAt, int playedMillis, boolean counted) {
+        SongStats s = stats.get(songId);
+        if (s == null) {
+            s = new SongStats();
+            stats.put(songId, s);
+        }
+        s.playedMillis += playedMillis;
+        if (counted) {
+            s.playCount++;
+            s.lastPlayed = Math.max(s.lastPlayed, startedAt);
+        }
+    }
+
+    private void loadCounts() {
+        String content = countsStore.load();
+        long savedAt = 0;
+        if (content != null) {
+            String[] lines = content.split("\n");
+            try {
+                savedAt = Long.parseLong(lines[0].substring(COUNTS_HEADER.length()).trim());
+            } catch (NumberFormatException e) {
+                savedAt = 0;
+            }
+            for (int i = 1; i < lines.length; i++) {
+                String[] f = lines[i].split("\t");
+                if (f.length < 4) {
+                    continue;
+                }
+                try {
+                    SongStats s = new SongStats();
+                    s.playCount = Integer.parseInt(f[1]);
+                    s.lastPlayed = Long.parseLong(f[2]);
+                    s.playedMillis = Long.parseLong(f[3]);
+                    stats.put(Long.parseLong(f[0]), s);
+                } catch (NumberFormatException e) {
+                    // Línea corrupta, se ignora
+                }
+            }
+        }
+
+        boolean resync = false;
+        if (savedAt > written) {
+            // El historial se recreó (estaba dañado): los totales ya cubren lo anterior
+            // y la numeración empieza de nuevo; sin esto no se volvería a guardar
+            // hasta superar el número viejo y al reiniciar se saltearían los registros nuevos
+            System.err.println("⚠ Historial reiniciado; punto de control " + savedAt + " → " + written);
+            savedAt = written;
+            resync = true;
+        }
+
+        // Reaplicar lo escrito en el buffer después del último punto de control
+        long from = Math.max(savedAt, Math.max(0, written - capacity));
+        for (long n = from; n < written; n++) {
+            int offset = offsetOf(n);
+            apply(buffer.getLong(offset), buffer.getLong(offset + 8), buffer.getInt(offset + 16),
+                    (buffer.getInt(offset + 20) & FLAG_COUNTED) != 0);
+        }
+        checkpointed = savedAt;
+        if (from < written || resync) {
+            saveCounts();
+        }
+    }
+
+    private void saveCounts() {
+        StringBuilder sb = new StringBuilder(COUNTS_HEADER).append(written).append('\n');
+        stats.forEachEntry((id, s) -> sb.append(id).append('\t').append(s.playCount).append('\t')
+                .append(s.lastPlayed).append('\t').append(s.playedMillis).append('\n'));
+        countsStore.save(sb.toString());
+        checkpointed = written;
+    }
+
+    /**
+     * Totales de una canción
+     */
+    private static final class SongStats {
+        int playCount;
+        long lastPlayed;
+        long playedMillis;
+    }
+}
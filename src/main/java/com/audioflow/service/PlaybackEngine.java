@@ -0,0 +1,161 @@
+package com.audioflow.service;
+
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.util.Duration;
+
+import java.io.File;
+
+/**
+ * Motor de reproducción: reproduce un archivo (un "plato").
+ *
+ * {@link AudioService} crea un motor por canción cargada, y otro para la
+ * canción precargada o para la saliente de un crossfade, con una
+ * {@link Factory}. Así la cola, la precarga y el crossfade funcionan igual
+ * con cualquier implementación.
+ *
+ * Los callbacks y los cambios de las propiedades llegan en el hilo de la
+ * aplicación (el de JavaFX); los métodos se llaman desde ese mismo hilo.
+ */
+public interface PlaybackEngine {
+
+    /**
+     * Propiedad de sistema que elige el motor al iniciar
+     * ({@code -Daudioflow.engine=pcm})
+     */
+    String ENGINE_PROPERTY = "audioflow.engine";
+
+    /**
+     * Velocidad del motor sin audio ({@code -Daudioflow.engine.speed=20})
+     */
+    String SPEED_PROPERTY = "audioflow.engine.speed";
+
+    enum Status {
+        LOADING, READY, PLAYING, PAUSED, STOPPED, HALTED
+    }
+
+    /**
+     * Crea motores nuevos (uno por canción)
+     */
+    @FunctionalInterface
+    interface Factory {
+        PlaybackEngine create();
+    }
+
+    // ========== CARGA ==========
+
+    /**
+     * Abre el archivo. Es asíncrono: al terminar el estado pasa a READY y se
+     * llama a onReady (o a HALTED si no se pudo abrir).
+     */
+    void load(File file);
+
+    /**
+     * Libera el archivo, la salida de audio y los hilos del motor
+     */
+    void dispose();
+
+    // ========== CONTROL ==========
+
+    void play();
+
+    void pause();
+
+    /**
+     * Detiene y vuelve al principio
+     */
+    void stop();
+
+    void seek(Duration position);
+
+    // ========== ESTADO ==========
+
+    ReadOnlyObjectProperty<Status> statusProperty();
+
+    default Status getStatus() {
+        return statusProperty().get();
+    }
+
+    /**
+     * Posición de reproducción (se actualiza varias veces por segundo mientras suena)
+     */
+    ReadOnlyObjectProperty<Duration> currentTimeProperty();
+
+    default Duration getCurrentTime() {
+        return currentTimeProperty().get();
+    }
+
+    /**
+     * Duración del archivo (UNKNOWN hasta que esté listo)
+     */
+    Duration getDuration();
+
+    // ========== VOLUMEN ==========
+
+    /**
+     * Volumen lineal de 0.0 a 1.0
+     */
+    DoubleProperty volumeProperty();
+
+    BooleanProperty mutedProperty();
+
+    // ========== CALLBACKS ==========
+
+    void setOnReady(Runnable callback);
+
+    void setOnEndOfMedia(Runnable callback);
+
+    /**
+     * Análisis de espectro para el visualizador (magnitudes en dB, como MediaPlayer)
+     */
+    void setAudioSpectrum(int bands, double intervalSeconds);
+
+    void setAudioSpectrumListener(AudioSpectrumListener listener);
+
+    // ========== SELECCIÓN ==========
+
+    /**
+     * Fábrica del motor elegido con {@value #ENGINE_PROPERTY}:
+     * {@code mediaplayer} (por defecto), {@code pcm} o {@code headless}
+     * (sin audio, a la velocidad de {@value #SPEED_PROPERTY})
+     */
+    static Factory factoryFromSystemProperty() {
+        String name = System.getProperty(ENGINE_PROPERTY, "mediaplayer").strip().toLowerCase();
+        switch (name) {
+            case "pcm":
+            case "javasound":
+                System.out.println("✓ Motor de audio: PCM (javax.sound)");
+                return PcmPlaybackEngine::new;
+            case "headless":
+                double speed = speedFromSystemProperty();
+                System.out.println("✓ Motor de audio: simulado, sin salida de sonido (x" + speed + ")");
+                return HeadlessPlaybackEngine.factory(Platform::runLater, speed);
+            case "mediaplayer":
+                return MediaPlayerEngine::new;
+            default:
+                System.err.println("Motor de audio desconocido: " + name + " (se usa mediaplayer)");
+                return MediaPlayerEngine::new;
+        }
+    }
+
+    /**
+     * Velocidad de {@value #SPEED_PROPERTY}; si no es un número válido
+     * (o es negativa) se usa tiempo real
+     */
+    private static double speedFromSystemProperty() {
+        String value = System.getProperty(SPEED_PROPERTY, "1").strip();
+        try {
+            double speed = Double.parseDouble(value);
+            if (speed >= 0 && !Double.isInfinite(speed)) {
+                return speed;
+            }
+        } catch (NumberFormatException e) {
+            // Se avisa abajo
+        }
+        System.err.println("Velocidad de motor inválida: " + value + " (se usa 1)");
+        return 1;
+    }
+}
@@ -0,0 +1,334 @@
+package com.audioflow.service;
+
+import com.audioflow.model.LibraryRegistry;
+import com.audioflow.model.Song;
+import com.audioflow.util.SongBatcher;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Servicio de importación/exportación de playlists en formatos M3U/M3U8 y PLS.
+ * Lee y escribe en streaming (línea a línea), por lo que la memoria usada no
+ * depende del tamaño de la playlist. Las rutas relativas se resuelven contra la
+ * carpeta del archivo de playlist, y los metadatos salen de la {@link MetadataCache}.
+ */
+public class PlaylistFileService {
+
+    /**
+     * Formatos soportados
+     */
+    public enum Format {
+        M3U8, PLS;
+
+        /**
+         * Detecta el formato por la extensión del archivo (.m3u, .m3u8, .pls)
+         */
+        public static Format fromPath(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            if (name.endsWith(".pls")) {
+                return PLS;
+            }
+            if (name.endsWith(".m3u") || name.endsWith(".m3u8")) {
+                return M3U8;
+            }
+            throw new IllegalArgumentException("Formato de playlist no soportado: " + name);
+        }
+    }
+
+    private final MetadataCache metadataCache;
+
+    public PlaylistFileService() {
+        this(MetadataCache.getShared());
+    }
+
+    public PlaylistFileService(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    // ========== IMPORTACIÓN ==========
+
+    /**
+     * Importa una playlist entregando las canciones en lotes.
+     * Puede ejecutarse en un hilo en segundo plano; el consumidor recibe listas
+     * nuevas en cada lote.
+     *
+     * @return cantidad de canciones importadas
+     */
+    public int importPlaylist(Path playlistFile, Consumer<List<Song>> onBatch) throws IOException {
+        SongBatcher batcher = new SongBatcher(onBatch);
+        Path baseDir = playlistFile.toAbsolutePath().getParent();
+
+        try (BufferedReader reader = openReader(playlistFile)) {
+            if (Format.fromPath(playlistFile) == Format.PLS) {
+                readPls(reader, baseDir, batcher);
+            } else {
+                readM3u(reader, baseDir, batcher);
+            }
+        }
+
+        batcher.flush();
+        metadataCache.save();
+        System.out.println("✓ Playlist importada: " + playlistFile.getFileName() + " (" + batcher.getTotal()
+                + " canciones)");
+        return batcher.getTotal();
+    }
+
+    private void readM3u(BufferedReader reader, Path baseDir, Consumer<Song> out) throws IOException {
+        String line;
+        String hintTitle = null;
+        long hintMillis = 0;
+
+        while ((line = reader.readLine()) != null) {
+            line = stripBom(line).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            if (line.startsWith("#EXTINF:")) {
+                // #EXTINF:<segundos>[ atributos],<Artista - Título>
+                String info = line.substring(8);
+                int comma = info.indexOf(',');
+                String secs = comma >= 0 ? info.substring(0, comma) : info;
+                int space = secs.indexOf(' ');
+                if (space >= 0) {
+                    secs = secs.substring(0, space);
+                }
+                hintMillis = parseSeconds(secs) * 1000;
+                hintTitle = comma >= 0 ? info.substring(comma + 1).trim() : null;
+            } else if (!line.startsWith("#")) {
+                Song song = resolveEntry(line, baseDir, hintTitle, hintMillis);
+                if (song != null) {
+                    out.accept(song);
+                }
+                hintTitle = null;
+                hintMillis = 0;
+            }
+        }
+    }
+
+    private void readPls(BufferedReader reader, Path baseDir, Consumer<Song> out) throws IOException {
+        // Las entradas se emiten al cambiar de número, así solo hay una pendiente
+        int pendingIndex = -1;
+        String pendingFile = null;
+        String pendingTitle = null;
+        long pendingMillis = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = stripBom(line).trim();
+            int eq = line.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+
+            String key = line.substring(0, eq).trim().toLowerCase();
+            String value = line.substring(eq + 1).trim();
+
+            String field;
+            if (key.startsWith("file")) {
+                field = "file";
+            } else if (key.startsWith("title")) {
+                field = "title";
+            } else if (key.startsWith("length")) {
+                field = "length";
+            } else {
+                continue; // NumberOfEntries, Version, etc.
+            }
+
+            int index = (int) parseSeconds(key.substring(field.length()));
+            if (index != pendingIndex) {
+                emitPls(pendingFile, pendingTitle, pendingMillis, baseDir, out);
+                pendingIndex = index;
+                pendingFile = null;
+                pendingTitle = null;
+                pendingMillis = 0;
+            }
+
+            switch (field) {
+                case "file" -> pendingFile = value;
+                case "title" -> pendingTitle = value;
+                default -> pendingMillis = parseSeconds(value) * 1000;
+            }
+        }
+
+        emitPls(pendingFile, pendingTitle, pendingMillis, baseDir, out);
+    }
+
+    private void emitPls(String file, String title, long millis, Path baseDir, Consumer<Song> out) {
+        if (file != null) {
+            Song song = resolveEntry(file, baseDir, title, millis);
+            if (song != null) {
+                out.accept(song);
+            }
+        }
+    }
+
+    /**
+     * Convierte una entrada de playlist en canción.
+     * Si el archivo existe, los metadatos salen de la caché; si no, se usan las
+     * pistas (#EXTINF / TitleN) guardadas en la propia playlist.
+     */
+    private Song resolveEntry(String location, Path baseDir, String hintTitle, long hintMillis) {
+        Path path = resolvePath(location, baseDir);
+        if (path == null) {
+            return null; // URL remota o ruta inválida
+        }
+
+        File file = path.toFile();
+        if (file.isFile()) {
+            return metadataCache.createSong(file);
+        }
+
+        Song registered = LibraryRegistry.shared().find(file.getAbsolutePath());
+        if (registered != null) {
+            return registered;
+        }
+
+        String title = file.getName();
+        String artist = Song.UNKNOWN_ARTIST;
+        if (hintTitle != null && !hintTitle.isBlank()) {
+            int sep = hintTitle.indexOf(" - ");
+            if (sep > 0) {
+                artist = hintTitle.substring(0, sep).trim();
+                title = hintTitle.substring(sep + 3).trim();
+            } else {
+                title = hintTitle;
+            }
+        }
+        return LibraryRegistry.shared().register(
+                new Song(title, artist, Song.UNKNOWN_ALBUM, Math.max(0, hintMillis), file.getAbsolutePath()));
+    }
+
+    private Path resolvePath(String location, Path baseDir) {
+        try {
+            if (location.regionMatches(true, 0, "file:", 0, 5)) {
+                return Paths.get(URI.create(location));
+            }
+            if (location.contains("://")) {
+                return null;
+            }
+            // Playlists creadas en Windows usan '\' como separador
+            if (File.separatorChar == '/') {
+                location = location.replace('\\', '/');
+            }
+            Path path = Paths.get(location);
+            if (!path.isAbsolute() && baseDir != null) {
+                path = baseDir.resolve(path);
+            }
+            return path.normalize();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // ========== EXPORTACIÓN ==========
+
+    /**
+     * Exporta canciones a M3U8 o PLS (según la extensión del destino).
+     * Escribe en un archivo temporal y lo mueve al final, así nunca queda un
+     * archivo a medio escribir.
+     *
+     * @return cantidad de canciones exportadas
+     */
+    public int exportPlaylist(Iterable<Song> songs, Path target) throws IOException {
+        Format format = Format.fromPath(target);
+        Path absolute = target.toAbsolutePath();
+        Path baseDir = absolute.getParent();
+        Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        int count = 0;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            if (format == Format.PLS) {
+                writer.write("[playlist]");
+                writer.newLine();
+            } else {
+                writer.write("#EXTM3U");
+                writer.newLine();
+            }
+
+            for (Song song : songs) {
+                count++;
+                String location = relativize(song.getFilePath(), baseDir);
+                long seconds = song.getDurationMillis() > 0 ? song.getDurationMillis() / 1000 : -1;
+                String title = song.getArtist() + " - " + song.getTitle();
+
+                if (format == Format.PLS) {
+                    writer.write("File" + count + "=" + location);
+                    writer.newLine();
+                    writer.write("Title" + count + "=" + title);
+                    writer.newLine();
+                    writer.write("Length" + count + "=" + seconds);
+                    writer.newLine();
+                } else {
+                    writer.write("#EXTINF:" + seconds + "," + title);
+                    writer.newLine();
+                    writer.write(location);
+                    writer.newLine();
+                }
+            }
+
+            if (format == Format.PLS) {
+                writer.write("NumberOfEntries=" + count);
+                writer.newLine();
+                writer.write("Version=2");
+                writer.newLine();
+            }
+        }
+
+        Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("✓ Playlist exportada: " + absolute.getFileName() + " (" + count + " canciones)");
+        return count;
+    }
+
+    /**
+     * Devuelve la ruta relativa a la carpeta de la playlist si el archivo está
+     * dentro de ella; si no, la ruta absoluta.
+     */
+    private String relativize(String filePath, Path baseDir) {
+        try {
+            Path path = Paths.get(filePath).toAbsolutePath().normalize();
+            if (baseDir != null && path.startsWith(baseDir)) {
+                return baseDir.relativize(path).toString();
+            }
+            return path.toString();
+        } catch (InvalidPathException e) {
+            return filePath;
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private BufferedReader openReader(Path file) throws IOException {
+        // UTF-8 tolerante: bytes inválidos (M3U antiguos en Latin-1) se reemplazan
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(file),
+                StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)));
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
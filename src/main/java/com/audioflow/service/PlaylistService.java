@@ -1,34 +1,44 @@
 package com.audioflow.service;
 
+import com.audioflow.model.LibraryRegistry;
 import com.audioflow.model.Playlist;
+import com.audioflow.model.PlaylistSummary;
 import com.audioflow.model.Song;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
-import com.audioflow.util.DragDropHandler;
+import java.util.concurrent.Executor;
 
 /**
  * Servicio para persistencia de playlists en formato JSON.
- * Guarda/carga playlists desde %APPDATA%/AudioFlow/
+ * Guarda/carga playlists desde %APPDATA%/AudioFlow/ a través de un
+ * {@link SnapshotStore} (escrituras atómicas con checksum y recuperación).
  */
 public class PlaylistService {
 
     private static final String APP_FOLDER = "AudioFlow";
     private static final String PLAYLISTS_FILE = "playlists.json";
+    private static final String SMART_PLAYLISTS_FILE = "smart-playlists.json";
+    // Cantidad y duración de cada playlist, para listarlas sin leer sus canciones
+    private static final String SUMMARIES_FILE = "playlists-summary.tsv";
+    private static final String SUMMARIES_HEADER = "playlists-crc32=";
 
     private final Path storagePath;
+    private final MetadataCache metadataCache;
+    private final SnapshotStore store;
+    private final SnapshotStore smartStore;
+    private final SnapshotStore summaryStore;
 
     public PlaylistService() {
-        // Obtener directorio de datos de la aplicación
-        String appData = System.getenv("APPDATA");
-        if (appData == null || appData.isEmpty()) {
-            appData = System.getProperty("user.home");
-        }
-
-        this.storagePath = Paths.get(appData, APP_FOLDER);
+        this.storagePath = defaultStoragePath();
+        this.metadataCache = MetadataCache.getShared();
         ensureDirectoryExists();
+        this.store = SnapshotStore.forFile(getPlaylistsFilePath(), PlaylistService::isJsonArray);
+        this.smartStore = SnapshotStore.forFile(storagePath.resolve(SMART_PLAYLISTS_FILE),
+                PlaylistService::isJsonArray);
+        this.summaryStore = SnapshotStore.forFile(storagePath.resolve(SUMMARIES_FILE),
+                content -> content.startsWith(SUMMARIES_HEADER));
     }
 
     /**
@@ -36,7 +46,24 @@ public class PlaylistService {
      */
     public PlaylistService(Path customPath) {
         this.storagePath = customPath;
+        this.metadataCache = new MetadataCache(customPath);
         ensureDirectoryExists();
+        this.store = SnapshotStore.forFile(getPlaylistsFilePath(), PlaylistService::isJsonArray);
+        this.smartStore = SnapshotStore.forFile(storagePath.resolve(SMART_PLAYLISTS_FILE),
+                PlaylistService::isJsonArray);
+        this.summaryStore = SnapshotStore.forFile(storagePath.resolve(SUMMARIES_FILE),
+                content -> content.startsWith(SUMMARIES_HEADER));
+    }
+
+    /**
+     * Directorio de datos de la aplicación (%APPDATA%/AudioFlow o ~/AudioFlow)
+     */
+    public static Path defaultStoragePath() {
+        String appData = System.getenv("APPDATA");
+        if (appData == null || appData.isEmpty()) {
+            appData = System.getProperty("user.home");
+        }
+        return Paths.get(appData, APP_FOLDER);
     }
 
     // ========== OPERACIONES CRUD ==========
@@ -69,51 +96,130 @@ public class PlaylistService {
     }
 
     /**
-     * Carga todas las playlists guardadas
+     * Carga todas las playlists guardadas, materializando todas sus canciones.
+     * Para listar playlists usar {@link #loadPlaylistSummaries()}, que es mucho
+     * más liviano.
      */
     public List<Playlist> loadPlaylists() {
         List<Playlist> result = new ArrayList<>();
 
         try {
-            List<Map<String, Object>> raw = loadAllPlaylistsRaw();
+            for (Map<String, Object> p : loadAllPlaylistsRaw()) {
+                result.add(materializePlaylist(p, Runnable::run));
+            }
+        } catch (Exception e) {
+            System.err.println("Error cargando playlists: " + e.getMessage());
+        }
 
-            for (Map<String, Object> p : raw) {
+        return result;
+    }
+
+    /**
+     * Carga solo los resúmenes de las playlists (nombre, cantidad de canciones y
+     * duración total). Se leen del archivo de resúmenes, sin abrir el de
+     * playlists, mientras su checksum coincida con el de playlists.json; si
+     * no (archivo viejo, recuperado o sin resúmenes) se recalculan una vez.
+     */
+    public List<PlaylistSummary> loadPlaylistSummaries() {
+        List<PlaylistSummary> saved = readSummaries(store.checksum());
+        if (saved != null) {
+            return saved;
+        }
+        List<PlaylistSummary> result = summarize(loadAllPlaylistsRaw());
+        writeSummaries(result);
+        return result;
+    }
+
+    /**
+     * Calcula los resúmenes desde la representación cruda. Las canciones
+     * guardadas sin duración toman la de la caché de metadatos.
+     */
+    private List<PlaylistSummary> summarize(List<Map<String, Object>> playlists) {
+        List<PlaylistSummary> result = new ArrayList<>();
+
+        try {
+            for (Map<String, Object> p : playlists) {
                 String name = (String) p.get("name");
-                Playlist playlist = new Playlist(name);
+                int count = 0;
+                long totalMillis = 0;
 
                 @SuppressWarnings("unchecked")
                 List<Map<String, String>> songs = (List<Map<String, String>>) p.get("songs");
                 if (songs != null) {
+                    count = songs.size();
                     for (Map<String, String> songData : songs) {
-                        String filePath = songData.getOrDefault("filePath", "");
-                        File file = new File(filePath);
-
-                        Song song;
-                        // Si el archivo existe, extraer metadata completa incluyendo album art
-                        if (file.exists() && file.isFile()) {
-                            song = DragDropHandler.createSongFromFile(file);
-                        } else {
-                            // Archivo no existe, usar datos guardados
-                            song = new Song(
-                                    songData.getOrDefault("title", "Unknown"),
-                                    songData.getOrDefault("artist", "Unknown"),
-                                    songData.getOrDefault("album", "Unknown"),
-                                    javafx.util.Duration.ZERO,
-                                    filePath);
+                        long millis = parseMillis(songData.get("durationMillis"));
+                        if (millis <= 0 && songData.get("filePath") != null) {
+                            // Playlists guardadas antes de persistir la duración: se usa la caché
+                            millis = metadataCache.getCachedDurationMillis(songData.get("filePath"));
                         }
-                        playlist.addSong(song);
+                        totalMillis += millis;
                     }
                 }
 
-                result.add(playlist);
+                result.add(new PlaylistSummary(name, count, totalMillis));
             }
         } catch (Exception e) {
-            System.err.println("Error cargando playlists: " + e.getMessage());
+            System.err.println("Error cargando resúmenes de playlists: " + e.getMessage());
         }
 
         return result;
     }
 
+    /**
+     * Carga una única playlist por nombre, materializando sus canciones
+     * (en el hilo que llama; ver {@link #loadPlaylist(String, Executor)})
+     *
+     * @return la playlist, o una playlist vacía si no existe
+     */
+    public Playlist loadPlaylist(String name) {
+        return loadPlaylist(name, Runnable::run);
+    }
+
+    /**
+     * Carga una única playlist en un hilo en segundo plano. Las canciones que
+     * ya estaban en la biblioteca pueden estar en listas de la interfaz: sus
+     * estadísticas guardadas se combinan en {@code uiThread} (una sola tarea),
+     * nunca desde el hilo de carga.
+     *
+     * @return la playlist, o una playlist vacía si no existe
+     */
+    public Playlist loadPlaylist(String name, Executor uiThread) {
+        try {
+            for (Map<String, Object> p : loadAllPlaylistsRaw()) {
+                if (name.equals(p.get("name"))) {
+                    return materializePlaylist(p, uiThread);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error cargando playlist " + name + ": " + e.getMessage());
+        }
+        return new Playlist(name);
+    }
+
+    /**
+     * Renombra una playlist guardada sin necesidad de cargar sus canciones
+     */
+    public boolean renamePlaylist(String oldName, String newName) throws IOException {
+        List<Map<String, Object>> allPlaylists = loadAllPlaylistsRaw();
+        boolean renamed = false;
+
+        for (Map<String, Object> p : allPlaylists) {
+            if (oldName.equals(p.get("name"))) {
+                p.put("name", newName);
+                renamed = true;
+                break;
+            }
+        }
+
+        if (renamed) {
+            writePlaylistsFile(allPlaylists);
+            System.out.println("✓ Playlist renombrada: " + oldName + " → " + newName);
+        }
+
+        return renamed;
+    }
+
     /**
      * Elimina una playlist por nombre
      */
@@ -133,10 +239,69 @@ public class PlaylistService {
      * Verifica si existe una playlist con el nombre dado
      */
     public boolean playlistExists(String name) {
-        return loadPlaylists().stream()
+        return loadPlaylistSummaries().stream()
                 .anyMatch(p -> p.getName().equalsIgnoreCase(name));
     }
 
+    // ========== LISTAS INTELIGENTES ==========
+
+    /**
+     * Reglas de las listas inteligentes guardadas: nombre → consulta, en el
+     * orden en que se crearon. Solo se guarda la regla; los miembros se
+     * calculan sobre la biblioteca al cargar.
+     */
+    public Map<String, String> loadSmartPlaylistRules() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        try {
+            for (Map<String, Object> p : loadSmartPlaylistsRaw()) {
+                Object name = p.get("name");
+                Object rule = p.get("rule");
+                if (name != null && rule != null) {
+                    rules.put(name.toString(), rule.toString());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error cargando listas inteligentes: " + e.getMessage());
+        }
+        return rules;
+    }
+
+    /**
+     * Guarda (o actualiza) la regla de una lista inteligente
+     */
+    public void saveSmartPlaylistRule(String name, String rule) throws IOException {
+        List<Map<String, Object>> all = loadSmartPlaylistsRaw();
+        Map<String, Object> entry = null;
+        for (Map<String, Object> p : all) {
+            if (name.equals(p.get("name"))) {
+                entry = p;
+                break;
+            }
+        }
+        if (entry == null) {
+            entry = new LinkedHashMap<>();
+            entry.put("name", name);
+            all.add(entry);
+        }
+        entry.put("rule", rule);
+
+        smartStore.save(toJsonArray(all));
+        System.out.println("✓ Lista inteligente guardada: " + name + " [" + rule + "]");
+    }
+
+    /**
+     * Elimina una lista inteligente por nombre
+     */
+    public boolean deleteSmartPlaylistRule(String name) throws IOException {
+        List<Map<String, Object>> all = loadSmartPlaylistsRaw();
+        boolean removed = all.removeIf(p -> name.equals(p.get("name")));
+        if (removed) {
+            smartStore.save(toJsonArray(all));
+            System.out.println("✓ Lista inteligente eliminada: " + name);
+        }
+        return removed;
+    }
+
     // ========== MÉTODOS AUXILIARES ==========
 
     private void ensureDirectoryExists() {
@@ -152,41 +317,195 @@ public class PlaylistService {
     }
 
     private List<Map<String, Object>> loadAllPlaylistsRaw() {
-        Path file = getPlaylistsFilePath();
-
-        if (!Files.exists(file)) {
+        // El store valida el checksum y recupera la última generación buena si hace falta
+        String content = store.load();
+        if (content == null) {
             return new ArrayList<>();
         }
+        return parseJsonArray(content);
+    }
 
-        try {
-            String content = Files.readString(file, StandardCharsets.UTF_8);
-            return parseJsonArray(content);
-        } catch (IOException e) {
-            System.err.println("Error leyendo archivo: " + e.getMessage());
+    private List<Map<String, Object>> loadSmartPlaylistsRaw() {
+        String content = smartStore.load();
+        if (content == null) {
             return new ArrayList<>();
         }
+        return parseJsonArray(content);
     }
 
     private void writePlaylistsFile(List<Map<String, Object>> playlists) throws IOException {
-        String json = toJsonArray(playlists);
-        Files.writeString(getPlaylistsFilePath(), json, StandardCharsets.UTF_8);
+        store.save(toJsonArray(playlists));
+        writeSummaries(summarize(playlists));
     }
 
-    private List<Map<String, String>> songsToList(Playlist playlist) {
-        List<Map<String, String>> songs = new ArrayList<>();
+    /**
+     * Guarda los resúmenes marcados con el checksum del contenido actual de
+     * playlists.json (se escribe después que él, en el mismo hilo)
+     */
+    private void writeSummaries(List<PlaylistSummary> summaries) {
+        long checksum = store.checksum();
+        if (checksum < 0) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(SUMMARIES_HEADER).append(Long.toHexString(checksum)).append('\n');
+        for (PlaylistSummary summary : summaries) {
+            sb.append(summary.getSongCount()).append('\t')
+                    .append(summary.getTotalDurationMillis()).append('\t')
+                    .append(summary.getName()).append('\n');
+        }
+        summaryStore.save(sb.toString());
+    }
+
+    /**
+     * Resúmenes guardados, si corresponden al contenido con ese checksum
+     *
+     * @return los resúmenes, o null si no hay o están desactualizados
+     */
+    private List<PlaylistSummary> readSummaries(long checksum) {
+        String content = summaryStore.load();
+        if (checksum < 0 || content == null) {
+            return null;
+        }
+        String[] lines = content.split("\n");
+        if (!lines[0].equals(SUMMARIES_HEADER + Long.toHexString(checksum))) {
+            return null;
+        }
+        List<PlaylistSummary> result = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split("\t", 3);
+            if (fields.length < 3) {
+                return null;
+            }
+            try {
+                result.add(new PlaylistSummary(fields[2], Integer.parseInt(fields[0]), Long.parseLong(fields[1])));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Validación estructural mínima: un archivo truncado no cierra el array
+     */
+    private static boolean isJsonArray(String content) {
+        String trimmed = content.trim();
+        return trimmed.startsWith("[") && trimmed.endsWith("]");
+    }
+
+    private List<Map<String, Object>> songsToList(Playlist playlist) {
+        List<Map<String, Object>> songs = new ArrayList<>();
 
         for (Song song : playlist.getSongs()) {
-            Map<String, String> songData = new LinkedHashMap<>();
+            Map<String, Object> songData = new LinkedHashMap<>();
             songData.put("title", song.getTitle());
             songData.put("artist", song.getArtist());
             songData.put("album", song.getAlbum());
             songData.put("filePath", song.getFilePath());
+            // Duración guardada para poder calcular resúmenes sin abrir los archivos
+            if (song.getDurationMillis() > 0) {
+                songData.put("durationMillis", song.getDurationMillis());
+            }
+            // Estadísticas para las reglas de las listas inteligentes
+            if (song.getAddedAt() > 0) {
+                songData.put("addedAt", song.getAddedAt());
+            }
+            if (song.getPlayCount() > 0) {
+                songData.put("playCount", song.getPlayCount());
+                songData.put("lastPlayed", song.getLastPlayed());
+            }
             songs.add(songData);
         }
 
         return songs;
     }
 
+    /**
+     * Construye una Playlist completa desde su representación cruda
+     *
+     * @param uiThread dónde se combinan las estadísticas de las canciones ya registradas
+     */
+    private Playlist materializePlaylist(Map<String, Object> p, Executor uiThread) {
+        String name = (String) p.get("name");
+        Playlist playlist = new Playlist(name);
+        List<Song> registered = new ArrayList<>();
+        List<Map<String, String>> registeredData = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> songs = (List<Map<String, String>>) p.get("songs");
+        if (songs != null) {
+            for (Map<String, String> songData : songs) {
+                String filePath = songData.getOrDefault("filePath", "");
+                File file = new File(filePath);
+                Song existing;
+
+                Song song;
+                // Si el archivo existe, usar metadatos de la caché (o extraerlos si cambió)
+                if (file.exists() && file.isFile()) {
+                    existing = LibraryRegistry.shared().find(file.getAbsolutePath());
+                    song = metadataCache.createSong(file);
+                } else {
+                    existing = LibraryRegistry.shared().find(filePath);
+                    // Archivo no existe, usar datos guardados (salvo que ya esté en la biblioteca)
+                    song = LibraryRegistry.shared().resolve(filePath, () -> new Song(
+                            songData.getOrDefault("title", "Unknown"),
+                            songData.getOrDefault("artist", "Unknown"),
+                            songData.getOrDefault("album", "Unknown"),
+                            parseMillis(songData.get("durationMillis")),
+                            filePath));
+                }
+                if (song == existing) {
+                    // Ya registrada: modificarla avisa a las listas de la interfaz
+                    registered.add(song);
+                    registeredData.add(songData);
+                } else {
+                    restoreStats(song, songData); // Recién creada: nadie más la ve todavía
+                }
+                playlist.addSong(song);
+            }
+        }
+
+        if (!registered.isEmpty()) {
+            uiThread.execute(() -> {
+                for (int i = 0; i < registered.size(); i++) {
+                    restoreStats(registered.get(i), registeredData.get(i));
+                }
+            });
+        }
+        metadataCache.save();
+        return playlist;
+    }
+
+    /**
+     * Combina las estadísticas guardadas con las de la canción (la misma
+     * canción puede venir de varias playlists): la fecha de alta más antigua
+     * y el mayor número de reproducciones
+     */
+    private void restoreStats(Song song, Map<String, String> songData) {
+        long addedAt = parseMillis(songData.get("addedAt"));
+        if (addedAt > 0 && addedAt < song.getAddedAt()) {
+            song.setAddedAt(addedAt);
+        }
+        long playCount = parseMillis(songData.get("playCount"));
+        if (playCount > song.getPlayCount()) {
+            song.setPlayCount((int) Math.min(Integer.MAX_VALUE, playCount));
+        }
+        long lastPlayed = parseMillis(songData.get("lastPlayed"));
+        if (lastPlayed > song.getLastPlayed()) {
+            song.setLastPlayed(lastPlayed);
+        }
+    }
+
+    private long parseMillis(Object value) {
+        if (value == null)
+            return 0;
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     // ========== JSON SIMPLE (sin dependencias externas) ==========
 
     private String toJsonArray(List<Map<String, Object>> list) {
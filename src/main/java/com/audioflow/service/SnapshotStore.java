@@ -0,0 +1,340 @@
+package com.audioflow.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Almacenamiento a prueba de caídas para archivos de datos de la aplicación.
+ *
+ * Cada guardado escribe un snapshot con checksum CRC32 en un archivo temporal,
+ * lo sincroniza a disco y lo renombra atómicamente sobre el archivo actual,
+ * conservando las N generaciones anteriores (archivo.1, archivo.2, ...).
+ * Al cargar se valida el checksum y, si el archivo actual está truncado o
+ * dañado, se recupera automáticamente la última generación válida. Los
+ * archivos inválidos se apartan como .corrupt antes de volver a escribir.
+ *
+ * Las escrituras se hacen en un hilo propio y se agrupan: guardar solo copia el
+ * contenido en memoria, así no agrega latencia a la UI.
+ */
+public class SnapshotStore {
+
+    private static final String MAGIC = "#AUDIOFLOW-SNAPSHOT v1";
+    private static final int DEFAULT_GENERATIONS = 3;
+
+    // Un store por archivo: varias instancias de servicios comparten el mismo estado
+    private static final Map<Path, SnapshotStore> STORES = new ConcurrentHashMap<>();
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // Asegurar que los guardados pendientes lleguen a disco al cerrar la app
+        Runtime.getRuntime().addShutdownHook(new Thread(SnapshotStore::flushAll, "snapshot-flush"));
+    }
+
+    private final Path file;
+    private final int generations;
+    private final Predicate<String> validator;
+    private final AtomicReference<String> pending = new AtomicReference<>();
+
+    private String current; // Último contenido válido (cargado o guardado)
+    private boolean loaded = false;
+    private long currentChecksum = -1; // CRC32 de current (-1 = sin calcular)
+
+    private SnapshotStore(Path file, int generations, Predicate<String> validator) {
+        this.file = file;
+        this.generations = generations;
+        this.validator = validator;
+    }
+
+    /**
+     * Obtiene el store de un archivo (compartido entre todos los que lo usen),
+     * con {@value #DEFAULT_GENERATIONS} generaciones anteriores
+     *
+     * @param validator validación adicional del contenido (también se aplica a
+     *                  archivos antiguos sin checksum)
+     */
+    public static SnapshotStore forFile(Path file, Predicate<String> validator) {
+        return forFile(file, DEFAULT_GENERATIONS, validator);
+    }
+
+    /**
+     * Obtiene el store de un archivo conservando {@code generations} generaciones
+     * anteriores. Si el store ya existía, se usa la configuración con la que se creó.
+     */
+    public static SnapshotStore forFile(Path file, int generations, Predicate<String> validator) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Generaciones inválidas: " + generations);
+        }
+        return STORES.computeIfAbsent(file.toAbsolutePath().normalize(),
+                path -> new SnapshotStore(path, generations, validator));
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Devuelve el contenido más reciente y válido.
+     * Si el archivo actual está dañado, recurre a las generaciones anteriores.
+     *
+     * @return el contenido, o null si no hay ningún snapshot válido
+     */
+    public synchronized String load() {
+        if (loaded) {
+            return current;
+        }
+
+        for (int gen = 0; gen <= generations; gen++) {
+            Path candidate = generationPath(gen);
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+
+            String content = readValidated(candidate);
+            if (content != null) {
+                if (gen > 0) {
+                    System.err.println("⚠ " + file.getFileName() + " dañado o incompleto; recuperado desde "
+                            + candidate.getFileName());
+                    save(content); // Restaurar como archivo actual
+                }
+                current = content;
+                loaded = true;
+                return current;
+            }
+
+            // Apartarlo antes de que los próximos guardados lo roten fuera
+            System.err.println("⚠ Snapshot inválido: " + candidate.getFileName());
+            quarantine(candidate);
+        }
+
+        loaded = true;
+        return current;
+    }
+
+    /**
+     * CRC32 del contenido más reciente sin decodificar el archivo: el del
+     * contenido en memoria si ya se cargó o guardó, si no el de la cabecera del
+     * archivo actual (solo se lee la primera línea). Sirve para saber si un
+     * dato derivado guardado aparte sigue correspondiendo a este contenido.
+     *
+     * @return el checksum, o -1 si no se conoce (sin archivo, formato antiguo o truncado)
+     */
+    public synchronized long checksum() {
+        if (loaded) {
+            if (current == null) {
+                return -1;
+            }
+            if (currentChecksum < 0) {
+                currentChecksum = crc32(current.getBytes(StandardCharsets.UTF_8));
+            }
+            return currentChecksum;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(MAGIC)) {
+                return -1;
+            }
+            long crc = -1;
+            long length = -1;
+            for (String part : header.split(" ")) {
+                if (part.startsWith("crc32=")) {
+                    crc = Long.parseLong(part.substring(6), 16);
+                } else if (part.startsWith("length=")) {
+                    length = Long.parseLong(part.substring(7));
+                }
+            }
+            long headerBytes = (header + "\n").getBytes(StandardCharsets.UTF_8).length;
+            // Un archivo truncado no coincide en tamaño (y load recuperaría otra generación)
+            return length >= 0 && Files.size(file) == headerBytes + length ? crc : -1;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String readValidated(Path path) {
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            String content = decode(bytes);
+            return content != null && validator.test(content) ? content : null;
+        } catch (IOException e) {
+            System.err.println("Error leyendo " + path.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodifica un snapshot verificando longitud y checksum.
+     * Los archivos antiguos sin cabecera se aceptan tal cual.
+     */
+    private static String decode(byte[] bytes) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (!text.startsWith(MAGIC)) {
+            return text;
+        }
+
+        int newline = text.indexOf('\n');
+        if (newline < 0) {
+            return null;
+        }
+
+        long expectedCrc = -1;
+        int expectedLength = -1;
+        for (String part : text.substring(0, newline).split(" ")) {
+            try {
+                if (part.startsWith("crc32=")) {
+                    expectedCrc = Long.parseLong(part.substring(6), 16);
+                } else if (part.startsWith("length=")) {
+                    expectedLength = Integer.parseInt(part.substring(7));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        int headerBytes = text.substring(0, newline + 1).getBytes(StandardCharsets.UTF_8).length;
+        int bodyLength = bytes.length - headerBytes;
+        if (expectedLength != bodyLength) {
+            return null; // Truncado
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, headerBytes, bodyLength);
+        if (crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        return new String(bytes, headerBytes, bodyLength, StandardCharsets.UTF_8);
+    }
+
+    // ========== ESCRITURA ==========
+
+    /**
+     * Guarda un nuevo contenido. Retorna de inmediato; la escritura a disco se
+     * hace en segundo plano y, si llegan varios guardados seguidos, solo se
+     * escribe el último.
+     */
+    public void save(String content) {
+        synchronized (this) {
+            current = content;
+            currentChecksum = -1;
+            loaded = true;
+        }
+        if (pending.getAndSet(content) == null) {
+            WRITER.submit(this::drain);
+        }
+    }
+
+    /**
+     * Espera a que los guardados pendientes de todos los stores lleguen a disco
+     */
+    public static void flushAll() {
+        try {
+            WRITER.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error esperando escrituras pendientes: " + e.getMessage());
+        }
+    }
+
+    private void drain() {
+        String content = pending.getAndSet(null);
+        if (content != null) {
+            try {
+                writeSnapshot(content);
+            } catch (IOException e) {
+                System.err.println("Error guardando " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeSnapshot(String content) throws IOException {
+        byte[] body = content.getBytes(StandardCharsets.UTF_8);
+        byte[] header = (MAGIC + " crc32=" + Long.toHexString(crc32(body)) + " length=" + body.length + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        // 1. Escribir y sincronizar el temporal
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(header.length + body.length);
+            buffer.put(header).put(body).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        // 2. Rotar generaciones: actual -> .1 -> .2 -> ... -> .N
+        Files.deleteIfExists(generationPath(generations));
+        for (int gen = generations - 1; gen >= 0; gen--) {
+            Path source = generationPath(gen);
+            if (Files.exists(source)) {
+                Files.move(source, generationPath(gen + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        // 3. Publicar el nuevo snapshot de forma atómica
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // 4. Sincronizar el directorio para que los renombres sobrevivan a un corte de luz
+        syncDirectory(file.getParent());
+    }
+
+    /**
+     * fsync del directorio. Algunos sistemas (Windows) no permiten abrir un
+     * directorio; ahí el renombre ya es durable y se ignora el error.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // No soportado en esta plataforma
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static long crc32(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private Path generationPath(int generation) {
+        return generation == 0 ? file : file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    /**
+     * Aparta un archivo dañado (archivo.corrupt, archivo.1.corrupt, ...) para
+     * que no se pierda en la rotación
+     */
+    private void quarantine(Path damaged) {
+        try {
+            Files.move(damaged, damaged.resolveSibling(damaged.getFileName() + ".corrupt"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("No se pudo apartar el archivo dañado: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.audioflow.util;
+
+/**
+ * Buffer circular de bytes de tamaño fijo entre un hilo productor y uno
+ * consumidor (por ejemplo, decodificador y salida de audio). Se reserva una
+ * sola vez: escribir y leer solo copian.
+ *
+ * Cada contenido pertenece a una "generación". {@link #reset(long)} descarta
+ * lo pendiente y empieza una generación nueva (un seek): las escrituras de la
+ * generación anterior se rechazan, así no se cuelan datos viejos.
+ */
+public final class ByteRingBuffer {
+
+    private final byte[] data;
+    private int head; // Próximo byte a leer
+    private int size;
+    private long generation;
+    private long startFrame; // Posición del archivo donde empieza la generación actual
+    private boolean ended; // El productor llegó al final en esta generación
+    private boolean closed;
+    private long readGeneration; // Generación de los últimos bytes leídos
+    private long readStartFrame; // Y dónde empieza esa generación
+
+    public ByteRingBuffer(int capacity) {
+        this.data = new byte[capacity];
+    }
+
+    // ========== PRODUCTOR ==========
+
+    /**
+     * Escribe todos los bytes, esperando mientras el buffer está lleno.
+     *
+     * @return false si la generación cambió o el buffer se cerró (los bytes
+     *         que faltaban se descartan)
+     */
+    public synchronized boolean write(byte[] src, int offset, int length, long gen) throws InterruptedException {
+        while (length > 0) {
+            while (size == data.length && gen == generation && !closed) {
+                wait();
+            }
+            if (gen != generation || closed) {
+                return false;
+            }
+            int tail = (head + size) % data.length;
+            int n = Math.min(length, Math.min(data.length - size, data.length - tail));
+            System.arraycopy(src, offset, data, tail, n);
+            size += n;
+            offset += n;
+            length -= n;
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Marca el final de los datos de una generación
+     */
+    public synchronized void markEnd(long gen) {
+        if (gen == generation) {
+            ended = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Espera a que empiece otra generación (o a que se cierre el buffer)
+     */
+    public synchronized void awaitGenerationChange(long gen) throws InterruptedException {
+        while (gen == generation && !closed) {
+            wait();
+        }
+    }
+
+    // ========== CONSUMIDOR ==========
+
+    /**
+     * Lee hasta {@code length} bytes, esperando como máximo {@code timeoutMillis}
+     * si no hay datos.
+     *
+     * @return bytes leídos, 0 si venció la espera, -1 si se terminaron los
+     *         datos de la generación o el buffer se cerró
+     */
+    public synchronized int read(byte[] dst, int offset, int length, long timeoutMillis) throws InterruptedException {
+        if (size == 0 && !ended && !closed) {
+            wait(timeoutMillis);
+        }
+        readGeneration = generation;
+        readStartFrame = startFrame;
+        if (size == 0) {
+            return ended || closed ? -1 : 0;
+        }
+        int n = Math.min(length, Math.min(size, data.length - head));
+        System.arraycopy(data, head, dst, offset, n);
+        head = (head + n) % data.length;
+        size -= n;
+        notifyAll();
+        return n;
+    }
+
+    /**
+     * Generación de lo devuelto por el último {@link #read}
+     */
+    public synchronized long readGeneration() {
+        return readGeneration;
+    }
+
+    /**
+     * Posición donde empieza la generación de lo devuelto por el último {@link #read}
+     */
+    public synchronized long readStartFrame() {
+        return readStartFrame;
+    }
+
+    // ========== CONTROL ==========
+
+    /**
+     * Descarta lo pendiente y empieza una generación nueva
+     *
+     * @param startFrame posición donde empiezan los datos nuevos
+     */
+    public synchronized void reset(long startFrame) {
+        generation++;
+        this.startFrame = startFrame;
+        head = 0;
+        size = 0;
+        ended = false;
+        notifyAll();
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized long startFrame() {
+        return startFrame;
+    }
+
+    /**
+     * Despierta a los dos hilos y rechaza todo lo que siga
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+}
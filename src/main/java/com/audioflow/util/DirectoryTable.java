@@ -0,0 +1,80 @@
+package com.audioflow.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabla de directorios: asigna un id entero a cada carpeta distinta.
+ *
+ * Una canción guarda su ruta como (id de directorio, nombre de archivo); las
+ * miles de canciones de una misma carpeta comparten una sola cadena con la
+ * ruta del directorio. Los ids son estables mientras dure la aplicación.
+ */
+public final class DirectoryTable {
+
+    private static final DirectoryTable SHARED = new DirectoryTable();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] directories = new String[64];
+    private int count;
+
+    /**
+     * Tabla común de la aplicación
+     */
+    public static DirectoryTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Id de un directorio (incluye el separador final); lo registra si es nuevo
+     */
+    public int idOf(String directory) {
+        Integer id = ids.get(directory);
+        return id != null ? id : register(directory);
+    }
+
+    /**
+     * Id de un directorio ya registrado, o -1 si ninguna canción lo usa
+     */
+    public int find(String directory) {
+        Integer id = ids.get(directory);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Ruta del directorio con ese id
+     */
+    public String directory(int id) {
+        return directories[id];
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Posición donde empieza el nombre de archivo dentro de una ruta
+     * (después del último separador, '/' o '\')
+     */
+    public static int fileNameStart(String path) {
+        return Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private synchronized int register(String directory) {
+        Integer existing = ids.get(directory);
+        if (existing != null) {
+            return existing;
+        }
+        if (count == directories.length) {
+            directories = Arrays.copyOf(directories, count * 2);
+        }
+        int id = count++;
+        String[] current = directories;
+        current[id] = directory;
+        directories = current; // Publica el valor antes que el id
+        ids.put(directory, id);
+        return id;
+    }
+}
@@ -10,6 +10,9 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Utilidad para manejar Drag & Drop de archivos de audio.
@@ -43,8 +46,8 @@ public class DragDropHandler {
     public static Song createSongFromFile(File file) {
         String filePath = file.getAbsolutePath();
         String title = extractTitleFromFilename(file.getName());
-        String artist = "Artista Desconocido";
-        String album = "Álbum Desconocido";
+        String artist = Song.UNKNOWN_ARTIST;
+        String album = Song.UNKNOWN_ALBUM;
         Image albumArt = null;
         Duration duration = null;
 
@@ -99,6 +102,31 @@ public class DragDropHandler {
         return song;
     }
 
+    /**
+     * Carga bajo demanda la carátula de una canción que no la tiene
+     * (por ejemplo, creada desde la caché de metadatos).
+     */
+    public static void loadAlbumArt(Song song) {
+        if (song.getAlbumArt() != null || !song.getFilePath().toLowerCase().endsWith(".mp3")) {
+            return;
+        }
+        File file = new File(song.getFilePath());
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            Mp3File mp3File = new Mp3File(file);
+            if (mp3File.hasId3v2Tag()) {
+                byte[] imageData = mp3File.getId3v2Tag().getAlbumImage();
+                if (imageData != null && imageData.length > 0) {
+                    song.setAlbumArt(new Image(new ByteArrayInputStream(imageData)));
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("  ⚠ No se pudo cargar la carátula: " + e.getMessage());
+        }
+    }
+
     /**
      * Formatea una duración como mm:ss
      */
@@ -131,32 +159,48 @@ public class DragDropHandler {
      */
     public static List<Song> processFiles(List<File> files) {
         List<Song> songs = new ArrayList<>();
+        processFiles(files, file -> true, DragDropHandler::createSongFromFile, songs::addAll);
+        return songs;
+    }
+
+    /**
+     * Ingesta por lotes: recorre archivos y directorios (recursivamente), descarta
+     * los que no pasan el filtro y entrega las canciones creadas en lotes.
+     *
+     * @param filter      se evalúa antes de leer metadatos (ej. descartar duplicados)
+     * @param songFactory crea la canción (ej. desde la caché de metadatos)
+     * @param onBatch     recibe cada lote de canciones
+     * @return cantidad de canciones ingeridas
+     */
+    public static int processFiles(List<File> files, Predicate<File> filter, Function<File, Song> songFactory,
+            Consumer<List<Song>> onBatch) {
+        SongBatcher batcher = new SongBatcher(onBatch);
         for (File file : files) {
             if (file.isDirectory()) {
-                songs.addAll(scanDirectory(file));
-            } else if (isAudioFile(file)) {
-                songs.add(createSongFromFile(file));
+                scanDirectory(file, filter, songFactory, batcher);
+            } else if (isAudioFile(file) && filter.test(file)) {
+                batcher.accept(songFactory.apply(file));
             }
         }
-        return songs;
+        batcher.flush();
+        return batcher.getTotal();
     }
 
     /**
      * Escanea un directorio recursivamente
      */
-    private static List<Song> scanDirectory(File directory) {
-        List<Song> songs = new ArrayList<>();
+    private static void scanDirectory(File directory, Predicate<File> filter, Function<File, Song> songFactory,
+            Consumer<Song> out) {
         File[] files = directory.listFiles();
         if (files != null) {
             for (File file : files) {
                 if (file.isDirectory()) {
-                    songs.addAll(scanDirectory(file));
-                } else if (isAudioFile(file)) {
-                    songs.add(createSongFromFile(file));
+                    scanDirectory(file, filter, songFactory, out);
+                } else if (isAudioFile(file) && filter.test(file)) {
+                    out.accept(songFactory.apply(file));
                 }
             }
         }
-        return songs;
     }
 
     /**
@@ -0,0 +1,56 @@
+package com.audioflow.util;
+
+import java.util.Arrays;
+
+/**
+ * Lista creciente de enteros primitivos (sin boxing).
+ * Se usa para listas de postings e índices donde una List&lt;Integer&gt;
+ * costaría un objeto por elemento.
+ */
+public final class IntList {
+
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this(4);
+    }
+
+    public IntList(int initialCapacity) {
+        this.data = new int[Math.max(1, initialCapacity)];
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size + (size >> 1) + 1);
+        }
+        data[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + ", tamaño " + size);
+        }
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Acceso directo al arreglo interno (válido hasta {@link #size()}).
+     * Evita copias en los recorridos de alto volumen.
+     */
+    public int[] rawArray() {
+        return data;
+    }
+}
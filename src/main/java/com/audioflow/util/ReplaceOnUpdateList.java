@@ -0,0 +1,117 @@
+package com.audioflow.util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista transparente de una lista que convierte los eventos de actualización
+ * (un elemento cambió sus datos) en reemplazos del mismo elemento.
+ *
+ * Un {@link javafx.collections.transformation.SortedList} reordena la lista
+ * completa ante una actualización, pero ante un reemplazo solo quita el
+ * elemento y lo vuelve a insertar con búsqueda binaria. Editar una canción en
+ * una biblioteca de 100k ordenada deja de costar un ordenamiento completo.
+ *
+ * Al revés, cada alta o baja le cuesta O(n) al SortedList: los cambios
+ * masivos (miles de elementos) se entregan como reemplazo de la lista entera,
+ * que el SortedList resuelve con un solo ordenamiento.
+ */
+public class ReplaceOnUpdateList<E> extends TransformationList<E, E> {
+
+    // Elementos agregados + quitados a partir de los cuales conviene reordenar todo
+    private static final int BULK_CHANGE = 256;
+
+    public ReplaceOnUpdateList(ObservableList<? extends E> source) {
+        super(source);
+    }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends E> change) {
+        if (isBulk(change)) {
+            replaceEverything(change);
+            return;
+        }
+
+        change.reset();
+        beginChange();
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                int[] permutation = new int[change.getTo() - change.getFrom()];
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    permutation[i - change.getFrom()] = change.getPermutation(i);
+                }
+                nextPermutation(change.getFrom(), change.getTo(), permutation);
+            } else if (change.wasUpdated()) {
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    nextSet(i, getSource().get(i));
+                }
+            } else {
+                if (change.wasRemoved()) {
+                    nextRemove(change.getFrom(), change.getRemoved());
+                }
+                if (change.wasAdded()) {
+                    nextAdd(change.getFrom(), change.getTo());
+                }
+            }
+        }
+        endChange();
+    }
+
+    private static boolean isBulk(ListChangeListener.Change<?> change) {
+        int changed = 0;
+        while (change.next()) {
+            if (!change.wasPermutated() && !change.wasUpdated()) {
+                changed += change.getRemovedSize() + change.getAddedSize();
+            }
+        }
+        return changed > BULK_CHANGE;
+    }
+
+    /**
+     * Reconstruye el contenido anterior (tramos sin cambios + quitados) y
+     * notifica el reemplazo de toda la lista en un único sub-cambio
+     */
+    private void replaceEverything(ListChangeListener.Change<? extends E> change) {
+        List<? extends E> current = getSource();
+        List<E> previous = new ArrayList<>();
+        int cursor = 0;
+        change.reset();
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) {
+                continue;
+            }
+            previous.addAll(current.subList(cursor, change.getFrom()));
+            previous.addAll(change.getRemoved());
+            cursor = change.getTo();
+        }
+        previous.addAll(current.subList(cursor, current.size()));
+
+        beginChange();
+        nextReplace(0, current.size(), previous);
+        endChange();
+    }
+
+    @Override
+    public E get(int index) {
+        return getSource().get(index);
+    }
+
+    @Override
+    public int size() {
+        return getSource().size();
+    }
+
+    @Override
+    public int getSourceIndex(int index) {
+        return index;
+    }
+
+    @Override
+    public int getViewIndex(int index) {
+        return index;
+    }
+}
@@ -0,0 +1,64 @@
+package com.audioflow.util;
+
+import com.audioflow.model.Song;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Acumula canciones y las entrega en lotes de tamaño fijo.
+ * Es el camino común de ingesta: drag & drop e importación de playlists
+ * entregan lotes, así la UI recibe un único cambio por lote en lugar de uno
+ * por canción, y nunca hay más de un lote pendiente en memoria.
+ */
+public class SongBatcher implements Consumer<Song> {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final int batchSize;
+    private final Consumer<List<Song>> sink;
+    private List<Song> batch;
+    private int total;
+
+    public SongBatcher(Consumer<List<Song>> sink) {
+        this(DEFAULT_BATCH_SIZE, sink);
+    }
+
+    public SongBatcher(int batchSize, Consumer<List<Song>> sink) {
+        this.batchSize = Math.max(1, batchSize);
+        this.sink = sink;
+        this.batch = new ArrayList<>(this.batchSize);
+    }
+
+    /**
+     * Agrega una canción; entrega el lote si se llenó
+     */
+    @Override
+    public void accept(Song song) {
+        batch.add(song);
+        total++;
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Entrega el lote pendiente (si lo hay).
+     * Cada lote entregado es una lista nueva, segura para pasar a otro hilo.
+     */
+    public void flush() {
+        if (!batch.isEmpty()) {
+            List<Song> full = batch;
+            batch = new ArrayList<>(batchSize);
+            sink.accept(full);
+        }
+    }
+
+    /**
+     * Cantidad total de canciones recibidas
+     */
+    public int getTotal() {
+        return total;
+    }
+}
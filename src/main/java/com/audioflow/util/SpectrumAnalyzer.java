@@ -0,0 +1,118 @@
+package com.audioflow.util;
+
+/**
+ * Espectro de una señal mono en bandas de frecuencia, en dB (como el
+ * AudioSpectrumListener de MediaPlayer: 0 dB es la escala completa y nada
+ * baja del umbral).
+ *
+ * Guarda las últimas muestras en una ventana circular y calcula una FFT
+ * radix-2 con ventana de Hann. Todos los arreglos se reservan al crearlo.
+ * No es seguro entre hilos.
+ */
+public final class SpectrumAnalyzer {
+
+    private final int size;
+    private final float[] samples; // Ventana circular de las últimas muestras
+    private int next;
+    private final double[] window;
+    private final double[] re;
+    private final double[] im;
+    private final double windowSum;
+
+    /**
+     * @param size cantidad de muestras por análisis (potencia de 2)
+     */
+    public SpectrumAnalyzer(int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("El tamaño debe ser potencia de 2: " + size);
+        }
+        this.size = size;
+        this.samples = new float[size];
+        this.window = new double[size];
+        this.re = new double[size];
+        this.im = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (size - 1));
+            sum += window[i];
+        }
+        this.windowSum = sum;
+    }
+
+    /**
+     * Agrega una muestra (-1.0 a 1.0)
+     */
+    public void push(float sample) {
+        samples[next] = sample;
+        next = (next + 1) & (size - 1);
+    }
+
+    /**
+     * Calcula las magnitudes de las últimas muestras en {@code bands.length}
+     * bandas de igual ancho entre 0 y la mitad de la frecuencia de muestreo
+     *
+     * @param threshold valor mínimo en dB (ej: -60)
+     */
+    public void compute(float[] bands, float threshold) {
+        for (int i = 0; i < size; i++) {
+            re[i] = samples[(next + i) & (size - 1)] * window[i];
+            im[i] = 0;
+        }
+        fft();
+
+        int bins = size / 2;
+        for (int b = 0; b < bands.length; b++) {
+            int from = b * bins / bands.length;
+            int to = Math.max(from + 1, (b + 1) * bins / bands.length);
+            double peak = 0;
+            for (int k = from; k < to; k++) {
+                peak = Math.max(peak, Math.hypot(re[k], im[k]));
+            }
+            double db = 20 * Math.log10(2 * peak / windowSum + 1e-12);
+            bands[b] = (float) Math.max(threshold, Math.min(0, db));
+        }
+    }
+
+    /**
+     * FFT iterativa en el lugar (Cooley-Tukey)
+     */
+    private void fft() {
+        for (int i = 1, j = 0; i < size; i++) {
+            int bit = size >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int length = 2; length <= size; length <<= 1) {
+            double angle = -2 * Math.PI / length;
+            double wRe = Math.cos(angle);
+            double wIm = Math.sin(angle);
+            for (int start = 0; start < size; start += length) {
+                double curRe = 1;
+                double curIm = 0;
+                for (int k = 0; k < length / 2; k++) {
+                    int a = start + k;
+                    int b = a + length / 2;
+                    double tRe = re[b] * curRe - im[b] * curIm;
+                    double tIm = re[b] * curIm + im[b] * curRe;
+                    re[b] = re[a] - tRe;
+                    im[b] = im[a] - tIm;
+                    re[a] += tRe;
+                    im[a] += tIm;
+                    double nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+}
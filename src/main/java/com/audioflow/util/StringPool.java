@@ -0,0 +1,47 @@
+package com.audioflow.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool de cadenas repetidas (artistas, álbumes y sus claves de búsqueda).
+ *
+ * En una biblioteca grande el mismo artista aparece en cientos de canciones y
+ * cada lector de metadatos crea su propia copia del texto. El pool devuelve
+ * siempre la misma instancia para textos iguales, así la memoria crece con
+ * los valores distintos y no con la cantidad de canciones.
+ *
+ * Es seguro entre hilos (la importación lee metadatos en segundo plano). Los
+ * valores no se liberan: la cantidad de artistas y álbumes distintos es
+ * acotada.
+ */
+public final class StringPool {
+
+    private static final StringPool SHARED = new StringPool();
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Pool común de la aplicación
+     */
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Devuelve la instancia canónica de un texto (null se devuelve tal cual)
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * Cantidad de textos distintos en el pool
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,48 @@
+package com.audioflow.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalización de texto para búsqueda y ordenamiento.
+ * "Canción" → "cancion", "Álbum Desconocido" → "album desconocido".
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+        // Clase de utilidad - no instanciar
+    }
+
+    /**
+     * Pliega un texto: descompone Unicode (NFD), elimina diacríticos y pasa a
+     * minúsculas. Los textos ASCII se resuelven sin normalizar.
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        boolean ascii = true;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+                    && type != Character.ENCLOSING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -5,6 +5,9 @@ module com.audioflow {
     requires javafx.media;
     requires javafx.graphics;
 
+    // javax.sound.sampled (motor de reproducción PCM)
+    requires java.desktop;
+
     // Librerías de Terceros (JFoenix e Iconos)
     requires com.jfoenix;
     requires org.kordamp.ikonli.javafx;
@@ -21,6 +24,7 @@ module com.audioflow {
     exports com.audioflow;
     exports com.audioflow.controller;
     exports com.audioflow.model;
+    exports com.audioflow.search;
     exports com.audioflow.service;
     exports com.audioflow.util;
     exports com.audioflow.component;
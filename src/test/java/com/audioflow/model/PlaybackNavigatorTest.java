@@ -0,0 +1,176 @@
+package com.audioflow.model;
+
+import com.audioflow.service.AudioService;
+import com.audioflow.service.HeadlessPlaybackEngine;
+import com.audioflow.service.PlaybackEngine;
+import javafx.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Navegación cola + biblioteca reproduciendo con el motor sin audio a
+ * velocidad 0: el tiempo avanza a mano y los eventos llegan en el mismo
+ * hilo, así que todo es determinista.
+ */
+class PlaybackNavigatorTest {
+
+    private static final Duration SONG_DURATION = Duration.seconds(30);
+
+    @TempDir
+    Path dir;
+
+    private Playlist library;
+    private PlayQueue queue;
+    private PlaybackNavigator navigator;
+    private AudioService audio;
+    private final List<HeadlessPlaybackEngine> engines = new ArrayList<>();
+    private final List<Song> played = new ArrayList<>();
+    private int preloadHits; // Canciones que al cargarse ya estaban precargadas
+
+    @BeforeEach
+    void setUp() {
+        library = new Playlist("test");
+        queue = new PlayQueue();
+        navigator = new PlaybackNavigator(library, queue);
+        audio = new AudioService(null, () -> {
+            HeadlessPlaybackEngine engine = new HeadlessPlaybackEngine(Runnable::run, 0, file -> SONG_DURATION);
+            engines.add(engine);
+            return engine;
+        });
+        audio.setUpcomingSong(() -> navigator.peekNext(audio.getCurrentSong()));
+        audio.setOnEndOfMedia(() -> play(navigator.next(audio.getCurrentSong(), true)));
+    }
+
+    // ========== NAVEGACIÓN ==========
+
+    @Test
+    void queueGoesBeforeLibraryAndPreviousReturnsToLibrary() throws IOException {
+        addSongs(3);
+        Song queued = song("queued");
+        queue.add(queued);
+
+        play(library.getCurrentSong());
+        assertSame(queued, navigator.next(library.getCurrentSong(), false));
+        assertSame(library.getSongs().get(0), navigator.previous(queued));
+        assertSame(library.getSongs().get(1), navigator.next(library.getSongs().get(0), false));
+        assertSame(library.getSongs().get(0), navigator.previous(library.getSongs().get(1)));
+        assertNull(navigator.previous(library.getSongs().get(0)));
+    }
+
+    @Test
+    void repeatOneReplaysOnlyWhenTheSongEnds() throws IOException {
+        addSongs(3);
+        library.setRepeatMode(RepeatMode.ONE);
+        Song first = library.getCurrentSong();
+
+        assertSame(first, navigator.peekNext(first));
+        assertSame(first, navigator.next(first, true));
+        assertSame(library.getSongs().get(1), navigator.next(first, false));
+    }
+
+    // ========== REPRODUCCIÓN SIN AUDIO ==========
+
+    @Test
+    void playsQueueThenLibraryToTheEnd() throws IOException {
+        addSongs(5);
+        Song queued = song("queued");
+        queue.add(queued);
+
+        play(library.getCurrentSong());
+        playUntilSilent();
+
+        List<Song> expected = new ArrayList<>();
+        expected.add(library.getSongs().get(0));
+        expected.add(queued);
+        expected.addAll(library.getSongs().subList(1, 5));
+        assertEquals(expected, played);
+        // Después de la primera, cada canción ya estaba precargada
+        assertEquals(played.size() - 1, preloadHits);
+    }
+
+    @Test
+    void shuffleWithRepeatPreloadsAcrossRounds() throws IOException {
+        int size = 20;
+        int rounds = 5;
+        addSongs(size);
+        library.setShuffle(true);
+        library.setRepeatMode(RepeatMode.ALL);
+
+        play(library.getCurrentSong());
+        while (played.size() < size * rounds) {
+            advancePlaying();
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            Set<Song> distinct = new HashSet<>(played.subList(round * size, (round + 1) * size));
+            assertEquals(size, distinct.size(), "vuelta " + round);
+        }
+        for (int i = 1; i < played.size(); i++) {
+            assertNotSame(played.get(i - 1), played.get(i), "repetida seguida en " + i);
+        }
+        // También al cambiar de vuelta la siguiente ya estaba precargada
+        assertEquals(played.size() - 1, preloadHits);
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private void play(Song song) {
+        if (song == null) {
+            return;
+        }
+        if (song == audio.getPreloadedSong()) {
+            preloadHits++;
+        }
+        played.add(song);
+        audio.setOnReady(audio::play);
+        audio.loadSong(song);
+    }
+
+    private void playUntilSilent() {
+        while (advancePlaying()) {
+            // Cada vuelta avanza un segundo simulado
+        }
+    }
+
+    /**
+     * Avanza un segundo el motor que está sonando
+     *
+     * @return false si no suena ninguno
+     */
+    private boolean advancePlaying() {
+        for (HeadlessPlaybackEngine engine : engines) {
+            if (engine.getStatus() == PlaybackEngine.Status.PLAYING) {
+                engine.advance(Duration.seconds(1));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addSongs(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            library.addSong(song("song" + i));
+        }
+        assertNotNull(library.getCurrentSong());
+    }
+
+    private Song song(String title) throws IOException {
+        Path file = Files.createFile(dir.resolve(title + ".mp3"));
+        return new Song(title, "artista", "álbum", SONG_DURATION, file.toString());
+    }
+}
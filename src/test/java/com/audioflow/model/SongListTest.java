@@ -0,0 +1,114 @@
+package com.audioflow.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Las operaciones masivas notifican un único evento; cada evento se anota
+ * como la lista de sus sub-cambios ("+0..3", "-1x2", "perm 0..4", "upd 2").
+ */
+class SongListTest {
+
+    private SongList list;
+    private List<Song> songs;
+    private final List<List<String>> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        list = new SongList();
+        songs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            songs.add(new Song("song" + i, "artista", "álbum", Duration.seconds(60), "/musica/song" + i + ".mp3"));
+        }
+        list.addListener((ListChangeListener<Song>) change -> {
+            List<String> parts = new ArrayList<>();
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    parts.add("perm " + change.getFrom() + ".." + change.getTo());
+                } else if (change.wasUpdated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        parts.add("upd " + i);
+                    }
+                } else {
+                    if (change.wasRemoved()) {
+                        parts.add("-" + change.getFrom() + "x" + change.getRemovedSize());
+                    }
+                    if (change.wasAdded()) {
+                        parts.add("+" + change.getFrom() + ".." + change.getTo());
+                    }
+                }
+            }
+            events.add(parts);
+        });
+    }
+
+    // ========== OPERACIONES MASIVAS ==========
+
+    @Test
+    void addAllNotifiesOnce() {
+        list.addAll(songs.subList(0, 3));
+        list.addAll(1, songs.subList(3, 5));
+
+        assertEquals(List.of(List.of("+0..3"), List.of("+1..3")), events);
+        assertEquals(List.of(songs.get(0), songs.get(3), songs.get(4), songs.get(1), songs.get(2)), list);
+    }
+
+    @Test
+    void removeAllNotifiesOnceWithOneSubChangePerRun() {
+        list.addAll(songs);
+        events.clear();
+
+        // Dos tramos: [1, 2] y [4]
+        assertTrue(list.removeAll(List.of(songs.get(1), songs.get(2), songs.get(4))));
+
+        assertEquals(List.of(List.of("-1x2", "-2x1")), events);
+        assertEquals(List.of(songs.get(0), songs.get(3), songs.get(5)), list);
+        assertFalse(list.contains(songs.get(1)));
+    }
+
+    @Test
+    void removeAllWithoutMatchesDoesNotNotify() {
+        list.addAll(songs.subList(0, 3));
+        events.clear();
+
+        assertFalse(list.removeAll(List.of(songs.get(5))));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void moveRangeNotifiesOnePermutation() {
+        list.addAll(songs);
+        events.clear();
+
+        list.moveRange(1, 3, 3); // [1, 2] pasa a empezar en 3
+
+        assertEquals(List.of(List.of("perm 0..5")), events);
+        assertEquals(List.of(songs.get(0), songs.get(3), songs.get(4), songs.get(1), songs.get(2), songs.get(5)),
+                list);
+    }
+
+    // ========== CAMBIOS DE METADATOS ==========
+
+    @Test
+    void metadataChangeUpdatesEveryPositionOfTheSong() {
+        Song repeated = songs.get(0);
+        list.addAll(List.of(repeated, songs.get(1), repeated, songs.get(2)));
+        events.clear();
+
+        repeated.setTitle("otro");
+        list.moveRange(0, 1, 3); // Posiciones vencidas: se recalculan con el próximo cambio
+        repeated.setTitle("otro más");
+
+        assertEquals(List.of(List.of("upd 0", "upd 2"), List.of("perm 0..4"), List.of("upd 1", "upd 3")), events);
+        assertEquals(4, list.getStats().getCount());
+    }
+}
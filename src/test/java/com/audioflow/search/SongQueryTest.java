@@ -0,0 +1,113 @@
+package com.audioflow.search;
+
+import com.audioflow.model.Song;
+import javafx.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tabla de consultas contra una canción fija: sintaxis, alias en español,
+ * plegado de tildes y mayúsculas, y errores de análisis.
+ */
+class SongQueryTest {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private Song song;
+
+    @BeforeEach
+    void setUp() {
+        song = new Song("De Música Ligera", "Soda Stereo", "Canción Animal Live",
+                Duration.seconds(210), "/musica/de-musica-ligera.mp3");
+        song.setRating(4);
+        song.setPlayCount(0);
+        song.setAddedAt(System.currentTimeMillis() - 10 * DAY_MILLIS);
+        song.setLastPlayed(0); // Nunca escuchada: infinitamente vieja
+    }
+
+    // ========== PREDICADOS ==========
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', textBlock = """
+            artist:"soda stereo"                  | true
+            artista:"SODA STEREO"                 | true
+            artist:soda                           | false
+            artist:~soda                          | true
+            artist!=queen                         | true
+            album:~live                           | true
+            disco:~vivo                           | false
+            titulo:"de musica ligera"             | true
+            rating>=4                             | true
+            rating>4                              | false
+            estrellas=4                           | true
+            rating!=4                             | false
+            duration<5m                           | true
+            duration>3:30                         | false
+            duracion>=3m30s                       | true
+            duration=210                          | true
+            duration<90s                          | false
+            plays=0                               | true
+            reproducciones>0                      | false
+            added<30d                             | true
+            added<1d                              | false
+            played>90d                            | true
+            -artist:queen                         | true
+            -rating=4                             | false
+            artist:queen OR rating=4              | true
+            artist:queen OR rating=5              | false
+            musica                                | true
+            sica                                  | false
+            "de musica"                           | true
+            soda ligera                           | true
+            soda queen                            | false
+            (artist:queen OR album:~animal) plays=0 | true
+            -(artist:queen OR album:~animal)      | false
+            """)
+    void matchesTable(String query, boolean expected) {
+        assertEquals(expected, SongQuery.parse(query).matches(song));
+    }
+
+    // ========== ERRORES ==========
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "rating:~4",
+            "artist<3",
+            "rating>=x",
+            "duration<5q",
+            "(artist:queen",
+            "\"sin cerrar",
+            "artist:",
+            ")",
+            "artist:queen OR"
+    })
+    void rejectsInvalidQueries(String query) {
+        assertThrows(IllegalArgumentException.class, () -> SongQuery.parse(query));
+    }
+
+    // ========== CLASIFICACIÓN ==========
+
+    @Test
+    void classifiesQueries() {
+        assertFalse(SongQuery.parse("soda stereo").isStructured());
+        assertTrue(SongQuery.parse("artist:soda").isStructured());
+        assertTrue(SongQuery.parse("-soda").isStructured());
+
+        assertTrue(SongQuery.parse("added<3d").isTimeRelative());
+        assertTrue(SongQuery.parse("rating=5 OR played>1d").isTimeRelative());
+        assertFalse(SongQuery.parse("rating=5").isTimeRelative());
+
+        assertTrue(SongQuery.looksStructured("rating>=4"));
+        assertTrue(SongQuery.looksStructured("soda -queen"));
+        assertFalse(SongQuery.looksStructured("soda stereo"));
+    }
+}
@@ -0,0 +1,194 @@
+package com.audioflow.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guardado y recuperación de snapshots con archivos dañados a mano.
+ *
+ * Los stores son compartidos por ruta y recuerdan lo cargado, así que cada
+ * test escribe con un store y lee con otro: copia los archivos a otro nombre
+ * (como si fuera una nueva ejecución) y los daña ahí.
+ */
+class SnapshotStoreTest {
+
+    private static final int GENERATIONS = 2;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void waitForWrites() {
+        // Recuperar una generación la vuelve a guardar: que termine antes de borrar el directorio
+        SnapshotStore.flushAll();
+    }
+
+    // ========== ESCRITURA ==========
+
+    @Test
+    void rotatesGenerations() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "a", "b", "c", "d");
+
+        assertEquals("d", body(file));
+        assertEquals("c", body(generation(file, 1)));
+        assertEquals("b", body(generation(file, 2)));
+        assertFalse(Files.exists(generation(file, 3)));
+        assertFalse(Files.exists(dir.resolve("data.txt.tmp")));
+    }
+
+    @Test
+    void reloadsLatestContent() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "uno", "dos");
+
+        assertEquals("dos", reopen(file, "copy.txt").load());
+    }
+
+    // ========== RECUPERACIÓN ==========
+
+    @Test
+    void checksumMismatchFallsBackToPreviousGeneration() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "previo", "actual");
+        Path copy = copyOf(file, "copy.txt");
+        flipLastByte(copy);
+
+        SnapshotStore store = store(copy);
+        assertEquals("previo", store.load());
+
+        // El dañado se aparta y la generación válida vuelve a ser la actual
+        assertTrue(Files.exists(dir.resolve("copy.txt.corrupt")));
+        SnapshotStore.flushAll();
+        assertEquals("previo", body(copy));
+    }
+
+    @Test
+    void truncatedFileFallsBackToPreviousGeneration() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "previo", "contenido actual");
+        Path copy = copyOf(file, "copy.txt");
+        byte[] bytes = Files.readAllBytes(copy);
+        Files.write(copy, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertEquals(-1, store(copy).checksum());
+        assertEquals("previo", store(copy).load());
+        assertTrue(Files.exists(dir.resolve("copy.txt.corrupt")));
+    }
+
+    @Test
+    void rejectedByValidatorFallsBackToPreviousGeneration() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "ok previo", "roto");
+        copyOf(file, "copy.txt");
+
+        SnapshotStore store = SnapshotStore.forFile(dir.resolve("copy.txt"), GENERATIONS,
+                content -> content.startsWith("ok"));
+        assertEquals("ok previo", store.load());
+    }
+
+    @Test
+    void everyGenerationDamagedLoadsNothing() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "a", "b", "c");
+        Path copy = copyOf(file, "copy.txt");
+        flipLastByte(copy);
+        flipLastByte(generation(copy, 1));
+        flipLastByte(generation(copy, 2));
+
+        assertNull(store(copy).load());
+        assertTrue(Files.exists(dir.resolve("copy.txt.corrupt")));
+        assertTrue(Files.exists(dir.resolve("copy.txt.1.corrupt")));
+        assertTrue(Files.exists(dir.resolve("copy.txt.2.corrupt")));
+    }
+
+    // ========== CHECKSUM ==========
+
+    @Test
+    void checksumFromHeaderMatchesLoadedContent() throws IOException {
+        Path file = dir.resolve("data.txt");
+        writeAll(file, "contenido");
+        Path copy = copyOf(file, "copy.txt");
+
+        SnapshotStore store = store(copy);
+        long fromHeader = store.checksum();
+        assertNotEquals(-1, fromHeader);
+        store.load();
+        assertEquals(fromHeader, store.checksum());
+
+        store.save("otro");
+        assertNotEquals(fromHeader, store.checksum());
+    }
+
+    @Test
+    void checksumUnknownWithoutFile() {
+        assertEquals(-1, store(dir.resolve("missing.txt")).checksum());
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static SnapshotStore store(Path file) {
+        return SnapshotStore.forFile(file, GENERATIONS, content -> true);
+    }
+
+    /**
+     * Guarda cada contenido y espera a que llegue a disco (uno por generación)
+     */
+    private static void writeAll(Path file, String... contents) {
+        SnapshotStore store = store(file);
+        for (String content : contents) {
+            store.save(content);
+            SnapshotStore.flushAll();
+        }
+    }
+
+    /**
+     * Copia el archivo y sus generaciones con otro nombre
+     */
+    private Path copyOf(Path file, String name) throws IOException {
+        Path copy = dir.resolve(name);
+        for (int gen = 0; gen <= GENERATIONS; gen++) {
+            Path source = generation(file, gen);
+            if (Files.exists(source)) {
+                Files.copy(source, generation(copy, gen), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return copy;
+    }
+
+    private SnapshotStore reopen(Path file, String name) throws IOException {
+        return store(copyOf(file, name));
+    }
+
+    private static Path generation(Path file, int gen) {
+        return gen == 0 ? file : file.resolveSibling(file.getFileName() + "." + gen);
+    }
+
+    /**
+     * Contenido sin la cabecera
+     */
+    private static String body(Path file) throws IOException {
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        return text.substring(text.indexOf('\n') + 1);
+    }
+
+    private static void flipLastByte(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(file, bytes);
+    }
+}